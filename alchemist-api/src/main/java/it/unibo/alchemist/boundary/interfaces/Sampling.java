@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.boundary.interfaces;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * How often an {@link OutputMonitor} wants to be notified of the simulation steps.
+ * Time-based samplings divide the simulated time in intervals, and the monitor gets notified only of the first
+ * step whose time falls in a new interval (namely, when {@code (long) (time / interval)} grows).
+ * Step-based samplings notify the monitor only of the steps whose number is a multiple of the interval.
+ */
+public final class Sampling implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Sampling EVERY_STEP = new Sampling(Double.NaN, 1);
+
+    private final double timeInterval;
+    private final long stepInterval;
+
+    private Sampling(final double timeInterval, final long stepInterval) {
+        this.timeInterval = timeInterval;
+        this.stepInterval = stepInterval;
+    }
+
+    /**
+     * @return a sampling notifying every single step
+     */
+    public static Sampling everyStep() {
+        return EVERY_STEP;
+    }
+
+    /**
+     * @param interval the number of steps between two notifications
+     * @return a sampling notifying the steps multiple of interval
+     */
+    public static Sampling everySteps(final long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("The step interval must be positive, but it is " + interval);
+        }
+        return interval == 1 ? EVERY_STEP : new Sampling(Double.NaN, interval);
+    }
+
+    /**
+     * @param interval the simulated time between two notifications
+     * @return a sampling notifying the first step of every time interval
+     */
+    public static Sampling everyTime(final double interval) {
+        if (!(interval > 0) || Double.isInfinite(interval)) {
+            throw new IllegalArgumentException("The time interval must be positive and finite, but it is " + interval);
+        }
+        return new Sampling(interval, 0);
+    }
+
+    /**
+     * @return true if the sampling is based on the simulated time, false if it is based on the step number
+     */
+    public boolean isTimeBased() {
+        return stepInterval == 0;
+    }
+
+    /**
+     * @return the simulated time between two notifications, NaN if the sampling is step-based
+     */
+    public double getTimeInterval() {
+        return timeInterval;
+    }
+
+    /**
+     * @return the number of steps between two notifications, 0 if the sampling is time-based
+     */
+    public long getStepInterval() {
+        return stepInterval;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other instanceof Sampling) {
+            final Sampling sampling = (Sampling) other;
+            return stepInterval == sampling.stepInterval
+                && Double.compare(timeInterval, sampling.timeInterval) == 0;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timeInterval, stepInterval);
+    }
+
+    @Override
+    public String toString() {
+        return isTimeBased() ? "every " + timeInterval + " time units" : "every " + stepInterval + " steps";
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.boundary.interfaces;
+
+import it.unibo.alchemist.model.interfaces.Actionable;
+import it.unibo.alchemist.model.interfaces.Environment;
+import it.unibo.alchemist.model.interfaces.Position;
+import it.unibo.alchemist.model.interfaces.Time;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * A monitor whose observation of each step is split in two phases,
+ * so that the slow one can run on a thread other than the simulation's.
+ * First, {@link #snapshot(Environment, Actionable, Time, long)} is invoked by the simulation flow,
+ * and copies the data the monitor needs out of the environment.
+ * Then, {@link #stepDone(Object)} consumes the snapshot, and must not access the environment,
+ * which may be changing in the meanwhile.
+ *
+ * @param <T> Concentration Type
+ * @param <P> {@link Position} Type
+ * @param <S> Snapshot Type
+ */
+public interface SnapshotOutputMonitor<T, P extends Position<? extends P>, S> extends Serializable {
+
+    /**
+     * Invoked by the simulation flow as soon as the initialization phase is completed,
+     * before any snapshot is taken.
+     *
+     * @param environment
+     *            the environment
+     */
+    default void initialized(@Nonnull final Environment<T, P> environment) { }
+
+    /**
+     * Invoked by the simulation flow every time a simulation step is done.
+     * Copies the data to observe: neither the environment nor the reaction may be retained,
+     * and the returned snapshot must not share mutable state with the simulation.
+     *
+     * @param environment
+     *            The current environment
+     * @param reaction
+     *            The last reaction executed
+     * @param time
+     *            The time at this simulation point
+     * @param step
+     *            The current simulation step
+     * @return the snapshot of the data to observe, or null if there is nothing to observe at this step
+     */
+    @Nullable
+    S snapshot(
+        @Nonnull Environment<T, P> environment,
+        @Nullable Actionable<T> reaction,
+        @Nonnull Time time,
+        long step
+    );
+
+    /**
+     * Consumes a snapshot. Snapshots are consumed in the order they have been taken,
+     * possibly by a thread other than the simulation's.
+     *
+     * @param snapshot
+     *            a snapshot taken by {@link #snapshot(Environment, Actionable, Time, long)}
+     */
+    void stepDone(@Nonnull S snapshot);
+
+    /**
+     * Invoked once all the snapshots have been consumed, after the simulation finished:
+     * the environment does not change anymore.
+     *
+     * @param environment
+     *            The current environment
+     * @param time
+     *            The time at which the simulation ended
+     * @param step
+     *            The last step number
+     */
+    default void finished(
+        @Nonnull final Environment<T, P> environment,
+        @Nonnull final Time time,
+        final long step
+    ) { }
+}
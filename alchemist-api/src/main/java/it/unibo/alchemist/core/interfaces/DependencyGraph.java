@@ -12,14 +12,18 @@ import it.unibo.alchemist.model.interfaces.Actionable;
 import it.unibo.alchemist.model.interfaces.Node;
 import org.danilopianini.util.ListSet;
 
+import java.io.Serializable;
+import java.util.Collection;
+
 /**
  * This interface allows to separate the usage of a dependency graph from its
  * implementation.
+ * Dependency graphs are {@link Serializable}, so that a running simulation can be checkpointed.
  *
  * @param <T>
  *            The parametrization type for reactions
  */
-public interface DependencyGraph<T> {
+public interface DependencyGraph<T> extends Serializable {
 
     /**
      * Given two nodes, the graph assumes they are now neighbors and calculates the
@@ -42,6 +46,20 @@ public interface DependencyGraph<T> {
      */
     void createDependencies(Actionable<T> reactionHandler);
 
+    /**
+     * Creates the dependencies of a group of new reactions, producing the same result of calling
+     * {@link #createDependencies(Actionable)} on each of them, in iteration order.
+     * Implementations may compute the dependencies in parallel:
+     * the environment must not be modified until this method returns.
+     *
+     * @param reactionHandlers the reaction handlers whose dependencies should be calculated.
+     */
+    default void createDependencies(final Collection<? extends Actionable<T>> reactionHandlers) {
+        for (final Actionable<T> reactionHandler : reactionHandlers) {
+            createDependencies(reactionHandler);
+        }
+    }
+
     /**
      * This method removes all the dependencies (both in and out dependencies) for a
      * given reaction handler. This method is meant to be used in order to keep the
@@ -64,6 +82,8 @@ public interface DependencyGraph<T> {
 
     /**
      * Returns the set of reactions that may be influenced by the provided reaction.
+     * Implementations may return a read-only view, reflecting the subsequent changes to the graph:
+     * callers that need the dependencies as they were before a change must copy them.
      *
      * @param reaction the input reaction
      * @return the set of reactions that may be influenced by the provided reaction
@@ -11,15 +11,20 @@ package it.unibo.alchemist.core.interfaces;
 
 import it.unibo.alchemist.model.interfaces.Actionable;
 
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * The type which describes the concentration of a molecule
  * 
  * This interface is meant to be implemented by the data structure(s) which must
  * manage the reactions.
+ * Schedulers are {@link Serializable}, so that a running simulation can be checkpointed.
  * 
  * @param <T> concentration type
  */
-public interface Scheduler<T> {
+public interface Scheduler<T> extends Serializable {
 
     /**
      * Adds a reaction to the data structure.
@@ -36,6 +41,20 @@ public interface Scheduler<T> {
      */
     Actionable<T> getNext();
 
+    /**
+     * Allows to access all the reactions scheduled at the very same time of {@link #getNext()}.
+     * The order of the returned list is not necessarily the order in which the reactions will be returned by
+     * subsequent calls to {@link #getNext()}.
+     * The default implementation is conservative, and only returns the result of {@link #getNext()}.
+     *
+     * @return the reactions scheduled at the same time of the next one (including it),
+     *         or an empty list if there are no reactions
+     */
+    default List<Actionable<T>> getNextSimultaneous() {
+        final Actionable<T> next = getNext();
+        return next == null ? Collections.emptyList() : Collections.singletonList(next);
+    }
+
     /**
      * Removes a reaction from the structure. If the reaction is not present,
      * nothing is done and an Exception is thrown.
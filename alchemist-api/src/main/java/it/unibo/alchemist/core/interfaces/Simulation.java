@@ -9,6 +9,7 @@
 
 package it.unibo.alchemist.core.interfaces;
 
+import java.nio.file.Path;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -16,6 +17,7 @@ import it.unibo.alchemist.model.interfaces.Actionable;
 import org.jooq.lambda.fi.lang.CheckedRunnable;
 
 import it.unibo.alchemist.boundary.interfaces.OutputMonitor;
+import it.unibo.alchemist.boundary.interfaces.Sampling;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Neighborhood;
 import it.unibo.alchemist.model.interfaces.Node;
@@ -38,6 +40,38 @@ public interface Simulation<T, P extends Position<? extends P>> extends Runnable
      */
     void addOutputMonitor(OutputMonitor<T, P> op);
 
+    /**
+     * Adds an {@link OutputMonitor} to this simulation, which gets notified of the simulation steps only
+     * as frequently as required by the provided {@link Sampling}.
+     * Initialization and termination are always notified.
+     *
+     * @param op the OutputMonitor to add
+     * @param sampling how often the monitor must be notified
+     */
+    void addOutputMonitor(OutputMonitor<T, P> op, Sampling sampling);
+
+    /**
+     * Saves a snapshot of the whole state of this simulation (environment, scheduled events, time, and step)
+     * to the provided file, so that the simulation can later get resumed from it.
+     * The snapshot is taken by the simulation thread, as soon as the step being executed (if any) completes:
+     * there is no guarantee on when this command will be actually processed.
+     * {@link OutputMonitor}s are not part of the snapshot.
+     * Failing to write the snapshot makes the simulation terminate, as any other failing command would.
+     *
+     * @param destination the file to write. If it exists, it gets replaced only once the new snapshot is complete
+     */
+    void checkpoint(Path destination);
+
+    /**
+     * Periodically saves a snapshot of the whole state of this simulation to the provided file,
+     * as frequently as required by the provided {@link Sampling}, as per {@link #checkpoint(Path)}.
+     * Every snapshot replaces the previous one.
+     *
+     * @param destination the file to write
+     * @param sampling how often a snapshot must be taken
+     */
+    void checkpoint(Path destination, Sampling sampling);
+
     /**
      * Allows to access the current environment.
      *
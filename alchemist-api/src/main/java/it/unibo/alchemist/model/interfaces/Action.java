@@ -50,4 +50,12 @@ public interface Action<T> extends Serializable {
      */
     ListSet<? extends Dependency> getOutboundDependencies();
 
+    /**
+     * @return true if executing this action may draw from a random generator shared with other nodes
+     *         (typically, the one of the simulation)
+     */
+    default boolean usesSharedRandomGenerator() {
+        return false;
+    }
+
 }
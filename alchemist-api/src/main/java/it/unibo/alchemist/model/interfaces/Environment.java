@@ -13,8 +13,13 @@ import org.danilopianini.util.ListSet;
 
 import javax.annotation.Nonnull;
 import java.io.Serializable;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Interface for an environment. Every environment must implement this
@@ -71,6 +76,25 @@ public interface Environment<T, P extends Position<? extends P>> extends Seriali
      */
     boolean addNode(Node<T> node, P p);
 
+    /**
+     * Adds many nodes at once, in iteration order, as {@link #addNode(Node, Position)} would.
+     * Implementations may defer the notifications to the simulation (and to their own hooks) until the whole
+     * batch is in place, but the resulting neighborhoods, including the order of the neighbors,
+     * must be the same that adding nodes one by one would produce.
+     *
+     * @param nodes the nodes to add, mapped to the positions where to place them
+     * @return the number of nodes actually added to this environment
+     */
+    default int addNodes(final Map<Node<T>, P> nodes) {
+        int added = 0;
+        for (final Map.Entry<Node<T>, P> entry : nodes.entrySet()) {
+            if (addNode(entry.getKey(), entry.getValue())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
     /**
      * @param terminator
      *            a {@link Predicate} indicating whether the simulation should
@@ -186,6 +210,71 @@ public interface Environment<T, P extends Position<? extends P>> extends Seriali
      */
     ListSet<Node<T>> getNodesWithinRange(P center, double range);
 
+    /**
+     * Executes the provided action on every node within the given range from
+     * a node, the node itself excluded. Unlike
+     * {@link #getNodesWithinRange(Node, double)}, implementations may visit the
+     * nodes without building any collection. The order of visit is unspecified,
+     * and the action must not modify the environment.
+     *
+     * @param center
+     *            the node to consider as center
+     * @param range
+     *            the exploration range
+     * @param action
+     *            the action to execute on each node within range
+     */
+    default void forEachNodeWithinRange(Node<T> center, double range, Consumer<? super Node<T>> action) {
+        getNodesWithinRange(center, range).forEach(action);
+    }
+
+    /**
+     * Executes the provided action on every node within the given range from
+     * a {@link Position}. Unlike {@link #getNodesWithinRange(Position, double)},
+     * implementations may visit the nodes without building any collection.
+     * The order of visit is unspecified, and the action must not modify the
+     * environment.
+     *
+     * @param center
+     *            the {@link Position} to consider as center
+     * @param range
+     *            the exploration range
+     * @param action
+     *            the action to execute on each node within range
+     */
+    default void forEachNodeWithinRange(P center, double range, Consumer<? super Node<T>> action) {
+        getNodesWithinRange(center, range).forEach(action);
+    }
+
+    /**
+     * Finds the k nodes closest to a node, the node itself excluded, among
+     * those satisfying the provided filter. Nodes at the same distance are
+     * ordered by id, so that the result does not depend on how the nodes are
+     * stored. By default, sorts all the nodes: implementations may rely on
+     * their spatial index instead.
+     *
+     * @param center
+     *            the node to consider as center
+     * @param k
+     *            the maximum number of nodes to find
+     * @param filter
+     *            the condition nodes must satisfy to be considered
+     * @return the (at most) k closest nodes, from the nearest to the farthest
+     */
+    default List<Node<T>> getNearestNodes(Node<T> center, int k, Predicate<? super Node<T>> filter) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one node must be searched for, but k is " + k);
+        }
+        return getNodes().stream()
+            .filter(node -> !node.equals(center) && filter.test(node))
+            .sorted(
+                Comparator.<Node<T>>comparingDouble(node -> getDistanceBetweenNodes(center, node))
+                    .thenComparingInt(Node::getId)
+            )
+            .limit(k)
+            .collect(Collectors.toList());
+    }
+
     /**
      * This method allows to know which are the smallest coordinates
      * represented.
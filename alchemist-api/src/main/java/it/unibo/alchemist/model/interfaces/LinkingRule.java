@@ -47,4 +47,16 @@ public interface LinkingRule<T, P extends Position<? extends P>> extends Seriali
      */
     boolean isLocallyConsistent();
 
+    /**
+     * Notifies this rule that a node has been removed from the environment,
+     * so that rules keeping information about single nodes can release it.
+     * By default, does nothing.
+     *
+     * @param node
+     *            the node that has been removed
+     * @param environment
+     *            the environment the node has been removed from
+     */
+    default void nodeRemoved(Node<T> node, Environment<T, P> environment) { }
+
 }
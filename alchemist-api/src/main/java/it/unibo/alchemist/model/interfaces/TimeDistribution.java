@@ -37,6 +37,16 @@ public interface TimeDistribution<T> extends Cloneable, Serializable {
      */
     Time getNextOccurence();
 
+    /**
+     * Primitive version of {@link #getNextOccurence()}, used by the simulation core to avoid
+     * materializing {@link Time} objects. Implementations storing the next occurrence as a double should override it.
+     *
+     * @return the next time at which the event will occur, as a double
+     */
+    default double getNextOccurenceAsDouble() {
+        return getNextOccurence().toDouble();
+    }
+
     /**
      * @return how many times per time unit the event will happen on average
      */
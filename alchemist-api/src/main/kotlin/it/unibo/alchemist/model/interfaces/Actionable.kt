@@ -82,6 +82,29 @@ sealed interface Actionable<T> : Comparable<Actionable<T>>, Serializable {
      */
     val tau: Time get() = timeDistribution.nextOccurence
 
+    /**
+     * @return The global time at which this reaction is scheduled to be
+     * executed, as a primitive double: the schedulers rely on it,
+     * so that implementations can avoid creating a new [Time] at each update
+     */
+    val tauAsDouble: Double get() = tau.toDouble()
+
+    /**
+     * A handle reserved to the scheduler holding this entity, so that it can be found without any lookup.
+     * Negative when not scheduled. Implementations able to store it return the last value set;
+     * by default, nothing gets stored, and schedulers need to look this entity up.
+     */
+    var schedulerHandle: Int
+        get() = -1
+        set(value) = Unit
+
+    /**
+     * @return true if executing this entity may draw from a random generator shared with other nodes
+     * (typically, the one of the simulation): concurrent executions would make the order of the draws,
+     * and thus the results, depend on thread scheduling. By default, true if any of the [actions] does.
+     */
+    fun usesSharedRandomGenerator(): Boolean = actions.any { it.usesSharedRandomGenerator() }
+
     /**
      * @return the [TimeDistribution] for this [Reaction]
      */
@@ -54,6 +54,39 @@ publishing.publications {
     }
 }
 
+/*
+ * Performance benchmarks, kept out of the test suite: run them with the benchmark task.
+ */
+val benchmark: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[benchmark.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[benchmark.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    benchmark.implementationConfigurationName(alchemist("euclidean-geometry"))
+    benchmark.implementationConfigurationName(alchemist("implementationbase"))
+    benchmark.implementationConfigurationName(incarnation("biochemistry"))
+    benchmark.runtimeOnlyConfigurationName(incarnation("sapere"))
+}
+
+val environmentBenchmark by tasks.registering(JavaExec::class) {
+    group = "verification"
+    description = "Compares the movement throughput of the bidimensional and tridimensional environments."
+    classpath = benchmark.runtimeClasspath
+    mainClass.set("it.unibo.alchemist.core.benchmark.EnvironmentBenchmarkKt")
+}
+
+tasks.register<JavaExec>("benchmark") {
+    group = "verification"
+    description = "Measures the throughput of the schedulers, then of the environments."
+    classpath = benchmark.runtimeClasspath
+    mainClass.set("it.unibo.alchemist.core.benchmark.SchedulerBenchmarkKt")
+    finalizedBy(environmentBenchmark)
+}
+
 tasks.compileTestKotlin {
     kotlinOptions {
         freeCompilerArgs = listOf(
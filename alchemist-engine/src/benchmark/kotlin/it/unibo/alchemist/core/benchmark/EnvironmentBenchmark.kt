@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.benchmark
+
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.actions.BrownianMove
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.environments.Continuous3DEnvironment
+import it.unibo.alchemist.model.implementations.environments.GridSpatialIndex
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.positions.Euclidean3DPosition
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Position
+import org.apache.commons.math3.random.MersenneTwister
+import kotlin.math.PI
+import kotlin.math.cbrt
+import kotlin.math.sqrt
+import kotlin.system.measureNanoTime
+
+private const val NODES = 100_000
+private const val MOVES = 1_000_000
+private const val WARMUP_MOVES = 200_000
+private const val RANGE = 1.0
+private const val MEAN_NEIGHBORS = 10.0
+
+/**
+ * Compares the throughput of random node movements (each one refreshing the neighborhoods) in a
+ * [Continuous2DEnvironment] and in a [Continuous3DEnvironment], both indexed by grids,
+ * with [NODES] nodes deployed uniformly at the same mean number of neighbors.
+ * The two environments share their grid implementation, so they are expected to perform alike.
+ * Run it through the `environmentBenchmark` task of this project.
+ */
+fun main() {
+    // Side of the square and of the cube with MEAN_NEIGHBORS nodes within RANGE, on average
+    val side2D = sqrt(NODES * PI * RANGE * RANGE / MEAN_NEIGHBORS)
+    val side3D = cbrt(NODES * 4 * PI * RANGE * RANGE * RANGE / (3 * MEAN_NEIGHBORS))
+    val bidimensional = Continuous2DEnvironment(
+        SupportedIncarnations.get<Any, Euclidean2DPosition>("sapere").orElseThrow(),
+        GridSpatialIndex(),
+    )
+    val tridimensional = Continuous3DEnvironment(
+        SupportedIncarnations.get<Any, Euclidean3DPosition>("sapere").orElseThrow(),
+    )
+    println("2D with $NODES nodes: ${runScenario(bidimensional, side2D)} moves/s")
+    println("3D with $NODES nodes: ${runScenario(tridimensional, side3D)} moves/s")
+}
+
+private fun <P : Position<P>> runScenario(environment: Environment<Any, P>, side: Double): Double {
+    val randomGenerator = MersenneTwister(1)
+    environment.linkingRule = ConnectWithinDistance(RANGE)
+    val moves = List(NODES) {
+        val node = GenericNode(environment)
+        val coordinates = Array<Number>(environment.dimensions) { randomGenerator.nextDouble() * side }
+        environment.addNode(node, environment.makePosition(*coordinates))
+        BrownianMove(environment, node, randomGenerator, RANGE)
+    }
+    repeat(WARMUP_MOVES) { moves[randomGenerator.nextInt(NODES)].execute() }
+    val elapsed = measureNanoTime {
+        repeat(MOVES) { moves[randomGenerator.nextInt(NODES)].execute() }
+    }
+    return MOVES * 1e9 / elapsed
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.benchmark
+
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.ArrayIndexedPriorityQueue
+import it.unibo.alchemist.core.implementations.CalendarQueue
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.PrimitiveIndexedPriorityQueue
+import it.unibo.alchemist.core.interfaces.Scheduler
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import it.unibo.alchemist.model.interfaces.TimeDistribution
+import org.apache.commons.math3.random.MersenneTwister
+import org.apache.commons.math3.random.RandomGenerator
+
+private const val WARMUP = 100_000L
+private const val STEPS = 500_000L
+private val SIZES = listOf(1_000, 10_000, 100_000)
+private val SCHEDULERS: List<Pair<String, () -> Scheduler<Double>>> = listOf(
+    "heap" to { ArrayIndexedPriorityQueue() },
+    "primitive heap" to { PrimitiveIndexedPriorityQueue() },
+    "calendar queue" to { CalendarQueue() },
+)
+private val DISTRIBUTIONS: List<Pair<String, (RandomGenerator) -> TimeDistribution<Double>>> = listOf(
+    "exponential" to { ExponentialTime(1.0, it) },
+    "synchronous" to { DiracComb(DoubleTime(), 1.0) },
+)
+
+/**
+ * Reports the throughput of the [Scheduler] implementations on scenarios of growing size
+ * (hold model: every event reschedules itself), with either exponentially distributed events
+ * or synchronous rounds (all the events of a round are simultaneous).
+ * The heap-based schedulers pay O(log n) per event, the calendar queue O(1) amortized:
+ * the latter is expected to win as the number of reactions grows.
+ * Only the [STEPS] following the first [WARMUP] ones are timed:
+ * building the scenario, initializing the engine, and warming up the JIT are excluded.
+ * Run it through the `benchmark` task of this project.
+ */
+fun main() {
+    DISTRIBUTIONS.forEach { (kind, distribution) ->
+        SIZES.forEach { nodes ->
+            SCHEDULERS.forEach { (name, scheduler) ->
+                val nanos = runScenario(scheduler(), distribution, nodes)
+                println("$name with $nodes $kind reactions: ${STEPS * 1e9 / nanos} events/s")
+            }
+        }
+    }
+}
+
+private fun runScenario(
+    scheduler: Scheduler<Double>,
+    distribution: (RandomGenerator) -> TimeDistribution<Double>,
+    nodes: Int,
+): Long {
+    val randomGenerator = MersenneTwister(1)
+    val incarnation = BiochemistryIncarnation()
+    val environment = Continuous2DEnvironment(incarnation)
+    environment.linkingRule = NoLinks()
+    repeat(nodes) { index ->
+        val node = incarnation.createNode(randomGenerator, environment, null)
+        node.addReaction(
+            incarnation.createReaction(
+                randomGenerator,
+                environment,
+                node,
+                distribution(randomGenerator),
+                "[] --> [a]",
+            )
+        )
+        environment.addNode(node, environment.makePosition(index, 0))
+    }
+    val simulation = Engine(environment, WARMUP + STEPS, Time.INFINITY, scheduler)
+    val stopwatch = Stopwatch()
+    simulation.addOutputMonitor(stopwatch)
+    simulation.play()
+    simulation.run()
+    simulation.error.ifPresent { throw it }
+    return stopwatch.elapsed
+}
+
+/**
+ * Measures the time elapsed between the end of the warm-up and the end of the simulation.
+ */
+private class Stopwatch : OutputMonitor<Double, Euclidean2DPosition> {
+    private var start = 0L
+    var elapsed = 0L
+        private set
+
+    override fun stepDone(
+        environment: Environment<Double, Euclidean2DPosition>,
+        reaction: Actionable<Double>?,
+        time: Time,
+        step: Long,
+    ) {
+        if (step == WARMUP - 1) {
+            start = System.nanoTime()
+        }
+    }
+
+    override fun finished(environment: Environment<Double, Euclidean2DPosition>, time: Time, step: Long) {
+        check(step == WARMUP + STEPS) { "The simulation stopped at step $step" }
+        elapsed = System.nanoTime() - start
+    }
+}
@@ -9,13 +9,17 @@
 package it.unibo.alchemist.core.implementations;
 
 import gnu.trove.impl.Constants;
+import gnu.trove.list.TDoubleList;
+import gnu.trove.list.array.TDoubleArrayList;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import it.unibo.alchemist.core.interfaces.Scheduler;
 import it.unibo.alchemist.model.interfaces.Actionable;
-import it.unibo.alchemist.model.interfaces.Time;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -29,7 +33,7 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
 
     private final TObjectIntMap<Actionable<T>> indexes =
             new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
-    private final List<Time> times = new ArrayList<>();
+    private final TDoubleList times = new TDoubleArrayList();
     private final List<Actionable<T>> tree = new ArrayList<>();
 
     private static int getParent(final int i) {
@@ -42,7 +46,7 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
     @Override
     public void addReaction(final Actionable<T> reaction) {
         tree.add(reaction);
-        times.add(reaction.getTau());
+        times.add(reaction.getTauAsDouble());
         final int index = tree.size() - 1;
         indexes.put(reaction, index);
         updateEffectively(reaction, index);
@@ -50,24 +54,24 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
 
     private void down(final Actionable<T> reaction, final int reactionIndex) {
         int index = reactionIndex;
-        final Time newTime = reaction.getTau();
+        final double newTime = reaction.getTauAsDouble();
         while (true) {
             int minIndex = 2 * index + 1;
             if (minIndex > tree.size() - 1) {
                 return;
             }
-            Time minTime = times.get(minIndex);
+            double minTime = times.get(minIndex);
             Actionable<T> min = tree.get(minIndex);
             final int right = minIndex + 1;
             if (right < tree.size()) {
-                final Time rr = times.get(right);
-                if (rr.compareTo(minTime) < 0) {
+                final double rr = times.get(right);
+                if (Double.compare(rr, minTime) < 0) {
                     min = tree.get(right);
                     minIndex = right;
                     minTime = rr;
                 }
             }
-            if (newTime.compareTo(minTime) > 0) {
+            if (Double.compare(newTime, minTime) > 0) {
                 swap(index, reaction, minIndex, min);
                 index = minIndex;
             } else {
@@ -85,6 +89,31 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
         return result;
     }
 
+    @Override
+    public List<Actionable<T>> getNextSimultaneous() {
+        if (tree.isEmpty()) {
+            return Collections.emptyList();
+        }
+        /*
+         * By the heap property, all the reactions scheduled at the same time of the root
+         * form a connected sub-tree including the root.
+         */
+        final double first = times.get(0);
+        final List<Actionable<T>> result = new ArrayList<>();
+        final Deque<Integer> toVisit = new ArrayDeque<>();
+        toVisit.push(0);
+        while (!toVisit.isEmpty()) {
+            final int index = toVisit.pop();
+            result.add(tree.get(index));
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < tree.size(); child++) {
+                if (Double.compare(times.get(child), first) == 0) {
+                    toVisit.push(child);
+                }
+            }
+        }
+        return result;
+    }
+
     @Override
     public void removeReaction(final Actionable<T> reaction) {
         final int index = indexes.get(reaction);
@@ -92,14 +121,14 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
         if (index == last) {
             tree.remove(index);
             indexes.remove(reaction);
-            times.remove(index);
+            times.removeAt(index);
         } else {
             final Actionable<T> swapped = tree.get(last);
             indexes.put(swapped, index);
             tree.set(index, swapped);
-            times.set(index, swapped.getTau());
+            times.set(index, swapped.getTauAsDouble());
             tree.remove(last);
-            times.remove(last);
+            times.removeAt(last);
             indexes.remove(reaction);
             updateEffectively(swapped, index);
         }
@@ -110,7 +139,7 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
         indexes.put(r2, i1);
         tree.set(i1, r2);
         tree.set(i2, r1);
-        final Time t = times.get(i1);
+        final double t = times.get(i1);
         times.set(i1, times.get(i2));
         times.set(i2, t);
     }
@@ -138,12 +167,12 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
     private boolean up(final Actionable<T> reaction, final int reactionIndex) {
         int index = reactionIndex;
         int parentIndex = getParent(index);
-        final Time newTime = reaction.getTau();
+        final double newTime = reaction.getTauAsDouble();
         if (parentIndex == -1) {
             return false;
         } else {
             Actionable<T> parent = tree.get(parentIndex);
-            if (newTime.compareTo(times.get(parentIndex)) >= 0) {
+            if (Double.compare(newTime, times.get(parentIndex)) >= 0) {
                 return false;
             } else {
                 do {
@@ -154,7 +183,7 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
                         return true;
                     }
                     parent = tree.get(parentIndex);
-                } while (newTime.compareTo(times.get(parentIndex)) < 0);
+                } while (Double.compare(newTime, times.get(parentIndex)) < 0);
                 return true;
             }
         }
@@ -170,7 +199,7 @@ public final class ArrayIndexedPriorityQueue<T> implements Scheduler<T> {
     public void updateReaction(final Actionable<T> reaction) {
         final int index = indexes.get(reaction);
         if (index != indexes.getNoEntryValue()) {
-            times.set(index, reaction.getTau());
+            times.set(index, reaction.getTauAsDouble());
             updateEffectively(reaction, index);
         }
     }
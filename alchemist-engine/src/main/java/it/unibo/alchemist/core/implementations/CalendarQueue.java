@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.implementations;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import it.unibo.alchemist.core.interfaces.Scheduler;
+import it.unibo.alchemist.model.interfaces.Actionable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A calendar queue (R. Brown, "Calendar queues: a fast O(1) priority queue implementation for the simulation
+ * event set problem", Communications of the ACM, 1988).
+ * Reactions are hashed by their scheduled time into an array of buckets ("days"), each covering a fixed time width;
+ * a sweep over the buckets ("year") finds the next reaction.
+ * As in Brown's design, each bucket is kept sorted by time, so that the earliest reaction of a day is always
+ * at the head of its bucket: many simultaneous reactions (e.g., synchronous rounds), which no bucket width can
+ * spread, cost constant time per operation rather than a scan of their whole bucket.
+ * Conversely, inserting in a bucket crowded with many different times is linear in the bucket length.
+ * The number of buckets and their width are adapted as the number of reactions changes,
+ * so that {@link #getNext()}, {@link #addReaction(Actionable)}, {@link #removeReaction(Actionable)}, and
+ * {@link #updateReaction(Actionable)} run in amortized constant time when scheduled times are
+ * reasonably uniformly distributed.
+ * Strongly skewed distributions degrade performance towards linear time:
+ * in such cases, {@link ArrayIndexedPriorityQueue} is a safer choice.
+ * Reactions scheduled at infinite time are kept aside, and never swept.
+ * Reactions with the same scheduled time are returned in a deterministic, though
+ * implementation-specific, order: simulations using this scheduler are reproducible,
+ * but not necessarily identical to those run with a heap-based scheduler.
+ *
+ * @param <T> concentration type
+ */
+public final class CalendarQueue<T> implements Scheduler<T> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_BUCKETS = 2;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+    private static final int RESIZE_SAMPLE = 64;
+    private static final double WIDTH_TO_SEPARATION = 3;
+
+    private final TObjectIntMap<Actionable<T>> handles =
+            new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, NONE);
+    private Actionable<T>[] reactions = newReactionArray(INITIAL_CAPACITY);
+    private double[] times = new double[INITIAL_CAPACITY];
+    private int[] bucketOf = new int[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int[] previous = new int[INITIAL_CAPACITY];
+    private int[] freeHandles = new int[INITIAL_CAPACITY];
+    private int freeHandlesCount;
+    private int handlesCount;
+    /*
+     * The last element of heads is the list of reactions scheduled at infinite time.
+     */
+    private int[] heads = newHeads(MIN_BUCKETS);
+    private int bucketMask = MIN_BUCKETS - 1;
+    private double width = 1;
+    private long sweepStart;
+    private int finiteCount;
+    private int size;
+    private int cachedNext = NONE;
+
+    @Override
+    public void addReaction(final Actionable<T> reaction) {
+        final int handle = allocateHandle();
+        if (handles.putIfAbsent(reaction, handle) != NONE) {
+            releaseHandle(handle);
+            throw new IllegalArgumentException(reaction + " is already scheduled");
+        }
+        reactions[handle] = reaction;
+        size++;
+        enqueue(handle, reaction.getTauAsDouble());
+        resizeIfNeeded();
+    }
+
+    @Override
+    public Actionable<T> getNext() {
+        final int handle = nextHandle();
+        return handle == NONE ? null : reactions[handle];
+    }
+
+    @Override
+    public List<Actionable<T>> getNextSimultaneous() {
+        final int first = nextHandle();
+        if (first == NONE) {
+            return Collections.emptyList();
+        }
+        final double time = times[first];
+        final List<Actionable<T>> result = new ArrayList<>();
+        for (int handle = first; handle != NONE && times[handle] == time; handle = next[handle]) {
+            result.add(reactions[handle]);
+        }
+        return result;
+    }
+
+    @Override
+    public void removeReaction(final Actionable<T> reaction) {
+        final int handle = handles.remove(reaction);
+        if (handle == NONE) {
+            throw new IllegalArgumentException(reaction + " is not scheduled");
+        }
+        dequeue(handle);
+        size--;
+        releaseHandle(handle);
+        resizeIfNeeded();
+    }
+
+    @Override
+    public void updateReaction(final Actionable<T> reaction) {
+        final int handle = handles.get(reaction);
+        if (handle != NONE) {
+            final double time = reaction.getTauAsDouble();
+            if (time != times[handle]) {
+                dequeue(handle);
+                enqueue(handle, time);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(getClass().getSimpleName())
+            .append("[width=").append(width).append(", buckets=").append(bucketMask + 1).append("]\n");
+        for (int bucket = 0; bucket < heads.length; bucket++) {
+            sb.append(bucket == heads.length - 1 ? "∞" : String.valueOf(bucket)).append(':');
+            for (int handle = heads[bucket]; handle != NONE; handle = next[handle]) {
+                sb.append(' ').append(times[handle]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private int nextHandle() {
+        if (cachedNext == NONE && size > 0) {
+            cachedNext = finiteCount == 0 ? heads[infiniteBucket()] : sweep();
+        }
+        return cachedNext;
+    }
+
+    /*
+     * Visits a whole year of buckets starting from the current day. If nothing is found (the next reaction is
+     * more than a year ahead), jumps directly to the day of the earliest reaction.
+     */
+    private int sweep() {
+        for (long day = sweepStart; day < sweepStart + bucketMask + 1; day++) {
+            final int found = earliestInDay(day);
+            if (found != NONE) {
+                sweepStart = day;
+                return found;
+            }
+        }
+        int earliest = NONE;
+        for (int bucket = 0; bucket <= bucketMask; bucket++) {
+            final int head = heads[bucket];
+            if (head != NONE && (earliest == NONE || times[head] < times[earliest])) {
+                earliest = head;
+            }
+        }
+        sweepStart = dayOf(times[earliest]);
+        return earliestInDay(sweepStart);
+    }
+
+    /*
+     * Buckets are sorted, and no reaction is scheduled before the current day: the head is the only candidate.
+     */
+    private int earliestInDay(final long day) {
+        final int head = heads[bucketOfDay(day)];
+        return head != NONE && dayOf(times[head]) == day ? head : NONE;
+    }
+
+    private void enqueue(final int handle, final double time) {
+        times[handle] = time;
+        final int bucket;
+        if (Double.isInfinite(time)) {
+            bucket = infiniteBucket();
+        } else {
+            final long day = dayOf(time);
+            bucket = bucketOfDay(day);
+            if (day < sweepStart || finiteCount == 0) {
+                sweepStart = day;
+            }
+            finiteCount++;
+        }
+        bucketOf[handle] = bucket;
+        /*
+         * Placed before the first reaction not scheduled earlier: simultaneous reactions are inserted at the front
+         * of their group, in constant time.
+         */
+        int before = NONE;
+        int after = heads[bucket];
+        while (after != NONE && times[after] < time) {
+            before = after;
+            after = next[after];
+        }
+        previous[handle] = before;
+        next[handle] = after;
+        if (before == NONE) {
+            heads[bucket] = handle;
+        } else {
+            next[before] = handle;
+        }
+        if (after != NONE) {
+            previous[after] = handle;
+        }
+        if (cachedNext != NONE && (time < times[cachedNext] || bucket == bucketOf[cachedNext])) {
+            /*
+             * Simultaneous reactions are returned in bucket order: a reaction inserted in the bucket of the
+             * cached one may take precedence.
+             */
+            cachedNext = NONE;
+        }
+    }
+
+    private void dequeue(final int handle) {
+        final int bucket = bucketOf[handle];
+        if (previous[handle] == NONE) {
+            heads[bucket] = next[handle];
+        } else {
+            next[previous[handle]] = next[handle];
+        }
+        if (next[handle] != NONE) {
+            previous[next[handle]] = previous[handle];
+        }
+        if (bucket != infiniteBucket()) {
+            finiteCount--;
+        }
+        if (handle == cachedNext) {
+            cachedNext = NONE;
+        }
+    }
+
+    /*
+     * Brown's resizing policy: the number of buckets doubles (halves) when the reactions are twice (half) as many,
+     * and the bucket width is re-estimated from the average separation between scheduled times.
+     */
+    private void resizeIfNeeded() {
+        final int buckets = bucketMask + 1;
+        if (finiteCount > 2 * buckets) {
+            resize(buckets * 2);
+        } else if (finiteCount < buckets / 2 && buckets > MIN_BUCKETS) {
+            resize(buckets / 2);
+        }
+    }
+
+    private void resize(final int buckets) {
+        final int infinite = heads[infiniteBucket()];
+        width = estimateWidth();
+        heads = newHeads(buckets);
+        bucketMask = buckets - 1;
+        finiteCount = 0;
+        cachedNext = NONE;
+        for (int handle = 0; handle < handlesCount; handle++) {
+            if (reactions[handle] != null && !Double.isInfinite(times[handle])) {
+                enqueue(handle, times[handle]);
+            }
+        }
+        heads[infiniteBucket()] = infinite;
+        for (int handle = infinite; handle != NONE; handle = next[handle]) {
+            bucketOf[handle] = infiniteBucket();
+        }
+    }
+
+    /*
+     * Samples the finite scheduled times, and uses the median distance between consecutive samples
+     * (robust with respect to outliers) to estimate the average separation between consecutive reactions.
+     */
+    private double estimateWidth() {
+        final int samples = Math.min(finiteCount, RESIZE_SAMPLE);
+        if (samples < 2) {
+            return width;
+        }
+        final double[] sampled = new double[samples];
+        final int stride = Math.max(1, handlesCount / samples);
+        int taken = 0;
+        for (int handle = 0; handle < handlesCount && taken < samples; handle += stride) {
+            if (reactions[handle] != null && !Double.isInfinite(times[handle])) {
+                sampled[taken++] = times[handle];
+            }
+        }
+        if (taken < 2) {
+            return width;
+        }
+        Arrays.sort(sampled, 0, taken);
+        final double[] gaps = new double[taken - 1];
+        for (int i = 1; i < taken; i++) {
+            gaps[i - 1] = sampled[i] - sampled[i - 1];
+        }
+        Arrays.sort(gaps);
+        final double separation = gaps[gaps.length / 2] * taken / finiteCount;
+        final double estimate = WIDTH_TO_SEPARATION * separation;
+        return estimate > 0 && Double.isFinite(estimate) ? estimate : width;
+    }
+
+    private int allocateHandle() {
+        if (freeHandlesCount > 0) {
+            return freeHandles[--freeHandlesCount];
+        }
+        if (handlesCount == reactions.length) {
+            final int capacity = handlesCount * 2;
+            reactions = Arrays.copyOf(reactions, capacity);
+            times = Arrays.copyOf(times, capacity);
+            bucketOf = Arrays.copyOf(bucketOf, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            freeHandles = Arrays.copyOf(freeHandles, capacity);
+        }
+        return handlesCount++;
+    }
+
+    private void releaseHandle(final int handle) {
+        reactions[handle] = null;
+        freeHandles[freeHandlesCount++] = handle;
+    }
+
+    private long dayOf(final double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    private int bucketOfDay(final long day) {
+        return (int) (day & bucketMask);
+    }
+
+    private int infiniteBucket() {
+        return heads.length - 1;
+    }
+
+    private static int[] newHeads(final int buckets) {
+        final int[] result = new int[buckets + 1];
+        Arrays.fill(result, NONE);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Actionable<T>[] newReactionArray(final int capacity) {
+        return (Actionable<T>[]) new Actionable<?>[capacity];
+    }
+
+}
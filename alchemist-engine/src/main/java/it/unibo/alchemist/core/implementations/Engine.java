@@ -9,9 +9,9 @@
 package it.unibo.alchemist.core.implementations;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Sets;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import it.unibo.alchemist.boundary.interfaces.OutputMonitor;
+import it.unibo.alchemist.boundary.interfaces.Sampling;
 import it.unibo.alchemist.core.interfaces.DependencyGraph;
 import it.unibo.alchemist.core.interfaces.Scheduler;
 import it.unibo.alchemist.core.interfaces.Simulation;
@@ -25,17 +25,34 @@ import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position;
 import it.unibo.alchemist.model.interfaces.Reaction;
 import it.unibo.alchemist.model.interfaces.Time;
+import org.danilopianini.util.ListSet;
 import org.jooq.lambda.fi.lang.CheckedRunnable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -50,7 +67,6 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
 
 import static it.unibo.alchemist.core.interfaces.Status.PAUSED;
 import static it.unibo.alchemist.core.interfaces.Status.RUNNING;
@@ -59,16 +75,23 @@ import static it.unibo.alchemist.core.interfaces.Status.TERMINATED;
 /**
  * This class implements a simulation. It offers a wide number of static
  * factories to ease the creation process.
+ * Subclasses may change the way events are selected and executed by overriding {@link #doStep()},
+ * relying on the protected facilities of this class to keep the simulation state consistent.
+ * Reactions whose putative time is {@link Time#INFINITY} can never fire: they get parked outside the
+ * {@link Scheduler}, and get scheduled again as soon as an update makes their putative time finite.
+ * Running simulations can be checkpointed with {@link #checkpoint(Path)} and resumed with {@link #restore(Path)},
+ * or copied in memory with {@link #fork(int, long, Time)}.
  *
  * @param <T>
  *            concentration type
  * @param <P>
  *            {@link Position} type
  */
-public final class Engine<T, P extends Position<? extends P>> implements Simulation<T, P> {
+public class Engine<T, P extends Position<? extends P>> implements Simulation<T, P> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Engine.class);
     private static final int ALL_PERMITS = Integer.MAX_VALUE;
+    private static final String CHECKPOINT_HEADER = "Alchemist checkpoint v1";
     private final Lock statusLock = new ReentrantLock();
     private final ImmutableMap<Status, SynchBox> statusLocks = Arrays.stream(Status.values())
             .collect(ImmutableMap.toImmutableMap(Function.identity(), it -> new SynchBox()));
@@ -79,19 +102,53 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
     private final Scheduler<T> scheduler;
     private final Time finalTime;
     private final Semaphore monitorLock = new Semaphore(ALL_PERMITS);
-    private final List<OutputMonitor<T, P>> monitors = new LinkedList<>();
+    private final List<OutputMonitor<T, P>> monitors = new ArrayList<>();
+    private final List<SampledOutputMonitor> sampledMonitors = new ArrayList<>();
+    /*
+     * Earliest time and step at which a sampled monitor may be due: checking them costs a comparison per step.
+     */
+    private double nextSamplingTime = Double.POSITIVE_INFINITY;
+    private long nextSamplingStep = Long.MAX_VALUE;
+    /*
+     * Reused across steps, to avoid allocating a new set whenever the topology changes.
+     */
+    private final Set<Actionable<T>> dependenciesBuffer = new LinkedHashSet<>();
+    /*
+     * Nodes whose movement has already been queued since the last time the updates got applied.
+     */
+    private final EpochMarker pendingMovements = new EpochMarker();
+    private final AffectedReactions affectedReactions = new AffectedReactions();
+    /*
+     * Reactions with infinite putative time, kept outside the scheduler. Identity-based, and allocation-free.
+     */
+    private final Set<Actionable<T>> parked = Collections.newSetFromMap(new IdentityHashMap<>());
+    /*
+     * Reactions neither scheduled nor parked while the changes of the current step get applied: those removed,
+     * which may still be referenced by the dependencies collected before the changes (or be the event being
+     * processed), and those added but not scheduled yet. They must not be rescheduled.
+     */
+    private final Set<Actionable<T>> detached = Collections.newSetFromMap(new IdentityHashMap<>());
     private final long finalStep;
+    /*
+     * Pause and termination requests not applied yet.
+     */
+    private final AtomicInteger pendingStops = new AtomicInteger();
     private volatile Status status = Status.INIT;
     private Optional<Throwable> error = Optional.empty();
     private Time currentTime = Time.ZERO;
     private long currentStep;
     private Thread simulationThread;
+    /*
+     * Restored simulations are already initialized: their events are scheduled and their dependencies computed.
+     */
+    private boolean restored;
 
     /**
      * Builds a simulation for a given environment. By default, it uses a
      * DependencyGraph and an IndexedPriorityQueue internally. If you want to
      * use your own implementations of {@link DependencyGraph} and
-     * {@link Scheduler} interfaces, don't use this constructor.
+     * {@link Scheduler} interfaces, use
+     * {@link #Engine(Environment, long, Time, Scheduler, DependencyGraph)}.
      *
      * @param e
      *            the environment at the initial time
@@ -104,7 +161,8 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
      * Builds a simulation for a given environment. By default, it uses a
      * DependencyGraph and an IndexedPriorityQueue internally. If you want to
      * use your own implementations of {@link DependencyGraph} and
-     * {@link Scheduler} interfaces, don't use this constructor.
+     * {@link Scheduler} interfaces, use
+     * {@link #Engine(Environment, long, Time, Scheduler, DependencyGraph)}.
      *
      * @param e
      *            the environment at the initial time
@@ -119,7 +177,39 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
      * Builds a simulation for a given environment. By default, it uses a
      * DependencyGraph and an IndexedPriorityQueue internally. If you want to
      * use your own implementations of {@link DependencyGraph} and
-     * {@link Scheduler} interfaces, don't use this constructor.
+     * {@link Scheduler} interfaces, use
+     * {@link #Engine(Environment, long, Time, Scheduler, DependencyGraph)}.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     */
+    public Engine(final Environment<T, P> e, final long maxSteps, final Time t) {
+        this(e, maxSteps, t, new ArrayIndexedPriorityQueue<>());
+    }
+
+    /**
+     * Builds a simulation for a given environment, using the provided {@link Scheduler}.
+     * By default, it uses a {@link JGraphTDependencyGraph} internally.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     */
+    public Engine(final Environment<T, P> e, final long maxSteps, final Time t, final Scheduler<T> scheduler) {
+        this(e, maxSteps, t, scheduler, new JGraphTDependencyGraph<>(e));
+    }
+
+    /**
+     * Builds a simulation for a given environment, using the provided {@link Scheduler} and {@link DependencyGraph}.
      *
      * @param e
      *            the environment at the initial time
@@ -127,17 +217,29 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
      *            the maximum number of steps to do
      * @param t
      *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param dependencyGraph
+     *            the {@link DependencyGraph} to use. It must be empty, it must be built on the same environment,
+     *            and it must not be shared with other simulations
      */
     @SuppressFBWarnings(
-        value = { "EI_EXPOSE_REP", "MC_OVERRIDABLE_METHOD_CALL_IN_CONSTRUCTOR" },
-        justification = "The environment is stored intentionally, and this class is final"
+        value = { "EI_EXPOSE_REP", "EI_EXPOSE_REP2", "MC_OVERRIDABLE_METHOD_CALL_IN_CONSTRUCTOR" },
+        justification = "Environment, scheduler, and dependency graph are stored intentionally,"
+            + " and no overridable method gets called"
     )
-    public Engine(final Environment<T, P> e, final long maxSteps, final Time t) {
+    public Engine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final DependencyGraph<T> dependencyGraph
+    ) {
         LOGGER.trace("Engine created");
         environment = e;
         environment.setSimulation(this);
-        dependencyGraph = new JGraphTDependencyGraph<>(environment);
-        scheduler = new ArrayIndexedPriorityQueue<>();
+        this.dependencyGraph = Objects.requireNonNull(dependencyGraph);
+        this.scheduler = Objects.requireNonNull(scheduler);
         this.finalStep = maxSteps;
         this.finalTime = t;
     }
@@ -146,7 +248,8 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
      * Builds a simulation for a given environment. By default, it uses a
      * DependencyGraph and an IndexedPriorityQueue internally. If you want to
      * use your own implementations of {@link DependencyGraph} and
-     * {@link Scheduler} interfaces, don't use this constructor.
+     * {@link Scheduler} interfaces, use
+     * {@link #Engine(Environment, long, Time, Scheduler, DependencyGraph)}.
      *
      * @param e
      *            the environment at the initial time
@@ -164,12 +267,226 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         monitorLock.release(ALL_PERMITS);
     }
 
+    /**
+     * Monitors with a sampling other than {@link Sampling#everyStep()} are not invoked at every step:
+     * the engine keeps track of the earliest time and step at which any of them is due,
+     * and checks them only once it gets reached.
+     *
+     * @param op the OutputMonitor to add
+     * @param sampling how often the monitor must be notified
+     */
+    @Override
+    public void addOutputMonitor(final OutputMonitor<T, P> op, final Sampling sampling) {
+        if (sampling.equals(Sampling.everyStep())) {
+            addOutputMonitor(op);
+        } else {
+            monitorLock.acquireUninterruptibly(ALL_PERMITS);
+            sampledMonitors.add(new SampledOutputMonitor(op, sampling));
+            updateNextSampling();
+            monitorLock.release(ALL_PERMITS);
+        }
+    }
+
+    /**
+     * The snapshot is a Java serialization stream, which includes the {@link Environment} (with its nodes,
+     * reactions, and random generators), the {@link Scheduler}, the {@link DependencyGraph}, the current time and
+     * step, and the termination conditions. As such, all of them must be {@link java.io.Serializable}.
+     * Serializing the scheduler and the dependency graph (rather than rebuilding them upon restore) preserves
+     * the order in which simultaneous events get executed and dependencies get updated, so that a restored
+     * simulation continues exactly as the original one would have.
+     * The snapshot gets first written to a temporary file in the same directory, then moved in place.
+     *
+     * @param destination the file to write. If it exists, it gets replaced only once the new snapshot is complete
+     */
+    @Override
+    public void checkpoint(final Path destination) {
+        Objects.requireNonNull(destination);
+        schedule(() -> writeCheckpoint(destination));
+    }
+
+    @Override
+    public void checkpoint(final Path destination, final Sampling sampling) {
+        Objects.requireNonNull(destination);
+        /*
+         * Monitors get notified in the middle of a step: the snapshot must be taken once the step completes.
+         */
+        addOutputMonitor(new OutputMonitor<>() {
+            @Override
+            public void stepDone(
+                @Nonnull final Environment<T, P> environment,
+                @Nullable final Actionable<T> reaction,
+                @Nonnull final Time time,
+                final long step
+            ) {
+                checkpoint(destination);
+            }
+        }, sampling);
+    }
+
+    private void writeCheckpoint(final Path destination) throws IOException {
+        checkCaller();
+        final Path target = destination.toAbsolutePath();
+        final Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeSnapshot(Files.newOutputStream(temporary));
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        LOGGER.info("Checkpoint saved to {} at time {}, step {}", target, currentTime, currentStep);
+    }
+
+    private void writeSnapshot(final OutputStream destination) throws IOException {
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(destination))) {
+            output.writeUTF(CHECKPOINT_HEADER);
+            output.writeUTF(getClass().getName());
+            output.writeLong(finalStep);
+            output.writeObject(finalTime);
+            output.writeObject(environment);
+            output.writeObject(scheduler);
+            output.writeObject(dependencyGraph);
+            output.writeObject(new ArrayList<>(parked));
+            output.writeObject(currentTime);
+            output.writeLong(currentStep);
+        }
+    }
+
+    /**
+     * Restores a simulation from a snapshot written by {@link #checkpoint(Path)}.
+     * The restored simulation is of the same type of the one that wrote the snapshot, which must thus offer
+     * a public constructor with the same signature of
+     * {@link #Engine(Environment, long, Time, Scheduler, DependencyGraph)} (see {@link EngineFactory}).
+     * It starts from the saved time and step, and it is ready to {@link #run()}: the {@link OutputMonitor}s
+     * must be added again, and it must be {@link #play()}ed as any new simulation.
+     *
+     * @param source
+     *            the snapshot to read
+     * @param <T>
+     *            concentration type
+     * @param <P>
+     *            {@link Position} type
+     * @return the restored simulation
+     * @throws IOException
+     *            if the snapshot can not be read
+     * @throws IllegalArgumentException
+     *            if the file is not a snapshot written by {@link #checkpoint(Path)}
+     */
+    public static <T, P extends Position<? extends P>> Engine<T, P> restore(final Path source) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(source)))) {
+            final String engineType = readSnapshotHeader(input, source);
+            final long finalStep = input.readLong();
+            final Time finalTime = (Time) input.readObject();
+            return readSnapshot(input, engineType, finalStep, finalTime);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unable to restore the checkpoint " + source, e);
+        }
+    }
+
+    /**
+     * Creates independent copies of this simulation in its current state, e.g., to share a warm-up phase among
+     * multiple runs, each one continuing with different parameters after the fork.
+     * Copies are deep: they share no mutable state with this simulation or among them, random generators included,
+     * hence every copy continues exactly as this simulation would, until its {@link Environment} gets changed.
+     * The state is serialized once (as per {@link #checkpoint(Path)}) and deserialized for each copy,
+     * so all the simulation components must be {@link java.io.Serializable}.
+     * Copies are restored as per {@link #restore(Path)}, but with new termination conditions.
+     * This method can get called either from the simulation thread (e.g., through {@link #schedule(CheckedRunnable)}),
+     * or once this simulation has successfully terminated (e.g., when the end of the warm-up phase is its final time).
+     *
+     * @param copies
+     *            the number of copies to create
+     * @param maxSteps
+     *            the maximum number of steps the copies must do
+     * @param t
+     *            the maximum time the copies must reach
+     * @return the copies
+     * @throws IllegalStateException
+     *            if called from another thread while this simulation is running, or if the state can not be copied
+     */
+    public List<Engine<T, P>> fork(final int copies, final long maxSteps, final Time t) {
+        if (copies < 0) {
+            throw new IllegalArgumentException("The number of copies can not be negative (provided: " + copies + ")");
+        }
+        final boolean terminated = status == TERMINATED && error.isEmpty();
+        if (!terminated && !Thread.currentThread().equals(simulationThread)) {
+            throw new IllegalStateException(
+                "A simulation can get forked only from its own thread, or once successfully terminated: " + this
+            );
+        }
+        try {
+            final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            writeSnapshot(snapshot);
+            final byte[] state = snapshot.toByteArray();
+            final List<Engine<T, P>> forks = new ArrayList<>(copies);
+            for (int copy = 0; copy < copies; copy++) {
+                try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(state))) {
+                    final String engineType = readSnapshotHeader(input, this);
+                    // Skip the original termination conditions
+                    input.readLong();
+                    input.readObject();
+                    forks.add(readSnapshot(input, engineType, maxSteps, t));
+                }
+            }
+            return forks;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to fork " + this, e);
+        }
+    }
+
+    private static String readSnapshotHeader(final ObjectInputStream input, final Object source) throws IOException {
+        final String header = input.readUTF();
+        if (!CHECKPOINT_HEADER.equals(header)) {
+            throw new IllegalArgumentException(source + " is not a supported checkpoint (" + header + ")");
+        }
+        return input.readUTF();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, P extends Position<? extends P>> Engine<T, P> readSnapshot(
+        final ObjectInputStream input,
+        final String engineType,
+        final long maxSteps,
+        final Time t
+    ) throws IOException, ClassNotFoundException {
+        final Environment<T, P> environment = (Environment<T, P>) input.readObject();
+        final Scheduler<T> scheduler = (Scheduler<T>) input.readObject();
+        final DependencyGraph<T> dependencyGraph = (DependencyGraph<T>) input.readObject();
+        final List<Actionable<T>> parked = (List<Actionable<T>>) input.readObject();
+        final Time time = (Time) input.readObject();
+        final long step = input.readLong();
+        final Engine<T, P> engine = EngineFactory.engine(
+            engineType,
+            environment,
+            maxSteps,
+            t,
+            scheduler,
+            dependencyGraph
+        );
+        engine.parked.addAll(parked);
+        engine.currentTime = time;
+        engine.currentStep = step;
+        engine.restored = true;
+        return engine;
+    }
+
     private void checkCaller() {
-        if (!Thread.currentThread().equals(simulationThread)) {
+        if (!isSimulationThread()) {
             throw new IllegalMonitorStateException("This method must get called from the simulation thread.");
         }
     }
 
+    /**
+     * @return true if the caller is running on the simulation thread
+     */
+    protected final boolean isSimulationThread() {
+        return Thread.currentThread().equals(simulationThread);
+    }
+
     private <R> R doOnStatus(final Supplier<R> fun) {
         try {
             statusLock.lock();
@@ -186,44 +503,128 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         });
     }
 
-    private void doStep() {
+    /**
+     * Executes a single simulation step: the next event is extracted from the {@link Scheduler},
+     * executed (if its conditions allow it), and all the reactions depending on it get updated.
+     * Subclasses overriding this method must make sure that every event gets either processed via
+     * {@link #processEvent(Actionable)}, or moved through {@link #advanceTimeTo(Actionable)},
+     * {@link #updateDependenciesOf(Actionable)} (if executed), and {@link #completeStep(Actionable)}.
+     */
+    protected void doStep() {
         final Actionable<T> nextEvent = scheduler.getNext();
         if (nextEvent == null) {
             this.newStatus(TERMINATED);
             LOGGER.info("No more reactions.");
+            endStep();
         } else {
-            final Time scheduledTime = nextEvent.getTau();
-            if (scheduledTime.compareTo(currentTime) < 0) {
-                throw new IllegalStateException(
-                    nextEvent + " is scheduled in the past at time " + scheduledTime
-                        + ", current time is " + currentTime
-                        + ". Problem occurred at step " + currentStep
-                );
-            }
-            currentTime = scheduledTime;
-            if (nextEvent.canExecute()) {
-                /*
-                 * This must be taken before execution, because the reaction
-                 * might remove itself (or its node) from the environment.
-                 */
-                nextEvent.getConditions().forEach(it.unibo.alchemist.model.interfaces.Condition::reactionReady);
-                nextEvent.execute();
-                Set<Actionable<T>> toUpdate = dependencyGraph.outboundDependencies(nextEvent);
-                if (!afterExecutionUpdates.isEmpty()) {
-                    afterExecutionUpdates.forEach(Update::performChanges);
-                    afterExecutionUpdates.clear();
-                    toUpdate = Sets.union(toUpdate, dependencyGraph.outboundDependencies(nextEvent));
-                }
-                toUpdate.forEach(this::updateReaction);
+            processEvent(nextEvent);
+        }
+    }
+
+    /**
+     * Sequentially processes the provided event, which must be the next one in the {@link Scheduler}.
+     * Must get called from the simulation thread.
+     *
+     * @param nextEvent the event to process
+     */
+    protected final void processEvent(final Actionable<T> nextEvent) {
+        advanceTimeTo(nextEvent);
+        if (nextEvent.canExecute()) {
+            /*
+             * This must be taken before execution, because the reaction
+             * might remove itself (or its node) from the environment.
+             */
+            final List<? extends it.unibo.alchemist.model.interfaces.Condition<T>> conditions =
+                nextEvent.getConditions();
+            for (int i = 0; i < conditions.size(); i++) {
+                conditions.get(i).reactionReady();
+            }
+            nextEvent.execute();
+            updateDependenciesOf(nextEvent);
+        }
+        completeStep(nextEvent);
+    }
+
+    /**
+     * Moves the simulation time forward, to the time at which the provided event is scheduled.
+     *
+     * @param nextEvent the event that is going to be processed
+     * @throws IllegalStateException if the event is scheduled in the past
+     */
+    protected final void advanceTimeTo(final Actionable<T> nextEvent) {
+        final int comparison = Double.compare(nextEvent.getTauAsDouble(), currentTime.toDouble());
+        if (comparison < 0) {
+            throw new IllegalStateException(
+                nextEvent + " is scheduled in the past at time " + nextEvent.getTau()
+                    + ", current time is " + currentTime
+                    + ". Problem occurred at step " + currentStep
+            );
+        }
+        if (comparison > 0) {
+            /*
+             * Simultaneous events keep the current time: their distributions need not create a Time.
+             */
+            currentTime = nextEvent.getTau();
+        }
+    }
+
+    /**
+     * Updates all the reactions that depend on the provided (just executed) event,
+     * including those affected by the environment changes it caused.
+     * If the event caused no topology change (the common case), no object gets allocated by the engine.
+     * Must get called from the simulation thread.
+     *
+     * @param executed the event that has just been executed
+     */
+    protected final void updateDependenciesOf(final Actionable<T> executed) {
+        final ListSet<Actionable<T>> dependencies = dependencyGraph.outboundDependencies(executed);
+        if (afterExecutionUpdates.isEmpty()) {
+            for (int i = 0; i < dependencies.size(); i++) {
+                updateReaction(dependencies.get(i));
+            }
+        } else {
+            /*
+             * The dependency graph may return a live view: the dependencies before the changes must be copied
+             */
+            dependenciesBuffer.addAll(dependencies);
+            for (final Update update : afterExecutionUpdates) {
+                update.performChanges();
             }
-            nextEvent.update(currentTime, true, environment);
-            scheduler.updateReaction(nextEvent);
-            monitorLock.acquireUninterruptibly();
-            for (final OutputMonitor<T, P> monitor : monitors) {
-                monitor.stepDone(environment, nextEvent, currentTime, currentStep);
+            clearAfterExecutionUpdates();
+            dependenciesBuffer.addAll(dependencyGraph.outboundDependencies(executed));
+            for (final Actionable<T> dependency : dependenciesBuffer) {
+                updateReaction(dependency);
             }
-            monitorLock.release();
+            dependenciesBuffer.clear();
         }
+    }
+
+    /**
+     * Completes the processing of an event: reschedules it, notifies the {@link OutputMonitor}s,
+     * checks the termination conditions, and increments the step counter.
+     * Must get called from the simulation thread.
+     *
+     * @param processed the event that has just been processed
+     */
+    protected final void completeStep(final Actionable<T> processed) {
+        processed.update(currentTime, true, environment);
+        reschedule(processed);
+        monitorLock.acquireUninterruptibly();
+        for (int i = 0; i < monitors.size(); i++) {
+            monitors.get(i).stepDone(environment, processed, currentTime, currentStep);
+        }
+        if (currentStep >= nextSamplingStep || currentTime.toDouble() >= nextSamplingTime) {
+            for (int i = 0; i < sampledMonitors.size(); i++) {
+                sampledMonitors.get(i).stepDone(processed);
+            }
+            updateNextSampling();
+        }
+        monitorLock.release();
+        endStep();
+    }
+
+    private void endStep() {
+        detached.clear();
         if (environment.isTerminated()) {
             newStatus(TERMINATED);
             LOGGER.info("Termination condition reached.");
@@ -233,10 +634,14 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
 
     private void finalizeConstructor() {
         this.environment.getGlobalReactions().forEach(this::reactionAdded);
+        final List<Actionable<T>> reactions = new ArrayList<>();
         for (final Node<T> n : environment) {
-            for (final Reaction<T> r : n.getReactions()) {
-                scheduleReaction(r);
-            }
+            reactions.addAll(n.getReactions());
+        }
+        dependencyGraph.createDependencies(reactions);
+        for (final Actionable<T> r : reactions) {
+            r.initializationComplete(currentTime, environment);
+            schedule(r);
         }
     }
 
@@ -246,6 +651,13 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         return environment;
     }
 
+    /**
+     * @return the {@link DependencyGraph} used by this engine
+     */
+    protected final DependencyGraph<T> getDependencyGraph() {
+        return dependencyGraph;
+    }
+
     @Override
     public Optional<Throwable> getError() {
         return error;
@@ -261,6 +673,13 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         return finalTime;
     }
 
+    /**
+     * @return the {@link Scheduler} used by this engine
+     */
+    protected final Scheduler<T> getScheduler() {
+        return scheduler;
+    }
+
     @Override
     public Status getStatus() {
         return status;
@@ -312,14 +731,33 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
     }
 
     private void newStatus(final Status next) {
+        final boolean stop = next == PAUSED || next == TERMINATED;
+        if (stop) {
+            pendingStops.incrementAndGet();
+        }
         schedule(() -> doOnStatus(() -> {
             if (next.isReachableFrom(status)) {
                 status = next;
                 lockForStatus(next).releaseAll();
             }
+            if (stop) {
+                pendingStops.decrementAndGet();
+            }
         }));
     }
 
+    /**
+     * Subclasses processing multiple events per {@link #doStep()} must check this method after each event,
+     * and stop as soon as it returns true, as {@link Engine} would not process any further event.
+     *
+     * @return true if the simulation has been requested to pause or terminate, either by the user
+     *         (e.g., through {@link #pause()} or {@link #goToStep(long)}) or by the {@link Environment} terminators,
+     *         and the request has not been applied yet
+     */
+    protected final boolean isStopRequested() {
+        return pendingStops.get() > 0;
+    }
+
     @Override
     public void nodeAdded(final Node<T> node) {
         checkCaller();
@@ -329,7 +767,13 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
     @Override
     public void nodeMoved(final Node<T> node) {
         checkCaller();
-        afterExecutionUpdates.add(new Movement(node));
+        /*
+         * The reactions to update get computed when the updates are applied:
+         * further movements of the same node would produce the very same result.
+         */
+        if (pendingMovements.mark(node.getId())) {
+            afterExecutionUpdates.add(new Movement(node));
+        }
     }
 
     @Override
@@ -351,6 +795,7 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
     @Override
     public void reactionAdded(final Actionable<T> reactionToAdd) {
         reactionChanged(new ReactionAddition(reactionToAdd));
+        detached.add(reactionToAdd);
     }
 
     @Override
@@ -363,35 +808,56 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         afterExecutionUpdates.add(update);
     }
 
-    private Stream<? extends Actionable<T>> reactionsToUpdateAfterExecution() {
-        return afterExecutionUpdates.stream()
-            .flatMap(Update::getReactionsToUpdate)
-            .distinct();
+    private void clearAfterExecutionUpdates() {
+        afterExecutionUpdates.clear();
+        pendingMovements.clear();
     }
 
     private void processCommand(final CheckedRunnable command) throws Throwable {
         command.run();
-        // Update all reactions before applying dependency graph updates
-        final Set<Actionable<T>> updated = new LinkedHashSet<>();
-        reactionsToUpdateAfterExecution().forEach(r -> {
-            updated.add(r);
-            updateReaction(r);
-        });
-        // Now update the dependency graph as needed
-        afterExecutionUpdates.forEach(Update::performChanges);
-        afterExecutionUpdates.clear();
-        // Now update the new reactions
-        reactionsToUpdateAfterExecution().forEach(r -> {
-            if (!updated.contains(r)) {
-                updateReaction(r);
+        if (!afterExecutionUpdates.isEmpty()) {
+            // Update all reactions before applying dependency graph updates, each one once
+            for (final Update update : afterExecutionUpdates) {
+                update.collectReactionsToUpdate(affectedReactions);
             }
-        });
+            final Iterator<Actionable<T>> toUpdate = affectedReactions.reactions.iterator();
+            while (toUpdate.hasNext()) {
+                final Actionable<T> reaction = toUpdate.next();
+                if (detached.contains(reaction)) {
+                    // Not scheduled yet (or removed): added reactions get updated once scheduled
+                    toUpdate.remove();
+                } else {
+                    updateReaction(reaction);
+                }
+            }
+            final int updated = affectedReactions.reactions.size();
+            // Now update the dependency graph as needed
+            for (final Update update : afterExecutionUpdates) {
+                update.performChanges();
+            }
+            // Finally, update the reactions affected once the changes are in place, skipping those already updated
+            affectedReactions.rescan();
+            for (final Update update : afterExecutionUpdates) {
+                update.collectReactionsToUpdate(affectedReactions);
+            }
+            int index = 0;
+            for (final Actionable<T> reaction : affectedReactions.reactions) {
+                if (index++ >= updated) {
+                    updateReaction(reaction);
+                }
+            }
+            affectedReactions.clear();
+            clearAfterExecutionUpdates();
+            detached.clear();
+        }
     }
 
     @Override
     public void removeOutputMonitor(final OutputMonitor<T, P> op) {
         monitorLock.acquireUninterruptibly(ALL_PERMITS);
         monitors.remove(op);
+        sampledMonitors.removeIf(it -> it.monitor.equals(op));
+        updateNextSampling();
         monitorLock.release(ALL_PERMITS);
     }
 
@@ -400,7 +866,9 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         synchronized (environment) {
             try {
                 simulationThread = Thread.currentThread();
-                finalizeConstructor();
+                if (!restored) {
+                    finalizeConstructor();
+                }
                 status = Status.READY;
                 final long currentThread = Thread.currentThread().getId();
                 LOGGER.trace("Thread {} started running.", currentThread);
@@ -408,6 +876,9 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
                 for (final OutputMonitor<T, P> m : monitors) {
                     m.initialized(environment);
                 }
+                for (final SampledOutputMonitor m : sampledMonitors) {
+                    m.monitor.initialized(environment);
+                }
                 monitorLock.release();
                 while (status.equals(Status.READY)) {
                     idleProcessSingleCommand();
@@ -434,6 +905,9 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
                     for (final OutputMonitor<T, P> m : monitors) {
                         m.finished(environment, currentTime, currentStep);
                     }
+                    for (final SampledOutputMonitor m : sampledMonitors) {
+                        m.monitor.finished(environment, currentTime, currentStep);
+                    }
                 } catch (Throwable e) { //NOPMD: we need to catch everything
                     error.ifPresentOrElse(
                         error -> error.addSuppressed(e),
@@ -482,7 +956,7 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
     private void scheduleReaction(final Actionable<T> reaction) {
         dependencyGraph.createDependencies(reaction);
         reaction.initializationComplete(currentTime, environment);
-        scheduler.addReaction(reaction);
+        schedule(reaction);
     }
 
     @Override
@@ -495,14 +969,62 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         return getClass().getSimpleName() + " t: " + getTime() + ", s: " + getStep();
     }
 
+    private void updateNextSampling() {
+        double time = Double.POSITIVE_INFINITY;
+        long step = Long.MAX_VALUE;
+        for (int i = 0; i < sampledMonitors.size(); i++) {
+            time = Math.min(time, sampledMonitors.get(i).nextTime);
+            step = Math.min(step, sampledMonitors.get(i).nextStep);
+        }
+        nextSamplingTime = time;
+        nextSamplingStep = step;
+    }
+
     private void updateReaction(final Actionable<T> r) {
-        final Time t = r.getTau();
+        final double previousTau = r.getTauAsDouble();
         r.update(currentTime, false, environment);
-        if (!r.getTau().equals(t)) {
-            scheduler.updateReaction(r);
+        if (Double.compare(r.getTauAsDouble(), previousTau) != 0) {
+            reschedule(r);
         }
     }
 
+    private void schedule(final Actionable<T> reaction) {
+        if (!detached.isEmpty()) {
+            detached.remove(reaction);
+        }
+        if (reaction.getTauAsDouble() == Double.POSITIVE_INFINITY) {
+            parked.add(reaction);
+        } else {
+            scheduler.addReaction(reaction);
+        }
+    }
+
+    private void reschedule(final Actionable<T> reaction) {
+        if (!detached.isEmpty() && detached.contains(reaction)) {
+            // Neither scheduled nor parked: updating the scheduler would fail, parking would resurrect it
+            return;
+        }
+        final boolean dormant = reaction.getTauAsDouble() == Double.POSITIVE_INFINITY;
+        if (!parked.isEmpty() && parked.contains(reaction)) {
+            if (!dormant) {
+                parked.remove(reaction);
+                scheduler.addReaction(reaction);
+            }
+        } else if (dormant) {
+            scheduler.removeReaction(reaction);
+            parked.add(reaction);
+        } else {
+            scheduler.updateReaction(reaction);
+        }
+    }
+
+    private void unschedule(final Actionable<T> reaction) {
+        if (!parked.remove(reaction)) {
+            scheduler.removeReaction(reaction);
+        }
+        detached.add(reaction);
+    }
+
     private SynchBox lockForStatus(final Status status) {
         final var statusLock = statusLocks.get(status);
         if (statusLock == null) {
@@ -524,9 +1046,7 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
 
         public void performChanges() { }
 
-        public Stream<? extends Actionable<T>> getReactionsToUpdate() {
-            return Stream.empty();
-        }
+        public void collectReactionsToUpdate(final AffectedReactions target) { }
     }
 
     private final class Movement extends Update {
@@ -538,25 +1058,12 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         }
 
         @Override
-        public Stream<? extends Actionable<T>> getReactionsToUpdate() {
-            return getReactionsRelatedTo(this.sourceNode, environment.getNeighborhood(this.sourceNode))
-                .filter(it ->
-                    it.getInboundDependencies().stream()
-                        .anyMatch(dependency -> dependency.dependsOn(Dependency.MOVEMENT))
-                );
-        }
-
-        private Stream<? extends Actionable<T>> getReactionsRelatedTo(
-            final Node<T> source,
-            final Neighborhood<T> neighborhood
-        ) {
-            return Stream.of(
-                    source.getReactions().stream(),
-                    neighborhood.getNeighbors().stream()
-                        .flatMap(node -> node.getReactions().stream())
-                        .filter(it -> it.getInputContext() == Context.NEIGHBORHOOD),
-                    dependencyGraph.globalInputContextReactions().stream())
-                .reduce(Stream.empty(), Stream::concat);
+        public void collectReactionsToUpdate(final AffectedReactions target) {
+            target.addMovementDependentReactionsOf(sourceNode);
+            for (final Node<T> neighbor : environment.getNeighborhood(sourceNode).getNeighbors()) {
+                target.addMovementDependentNeighborhoodReactionsOf(neighbor);
+            }
+            target.addMovementDependentGlobalReactions();
         }
     }
 
@@ -573,9 +1080,9 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
 
         @Override
         public final void performChanges() {
-            this.sourceNode.getReactions().stream()
-                .map(reactionLevelOperation)
-                .forEach(Update::performChanges);
+            for (final Reaction<T> reaction : sourceNode.getReactions()) {
+                reactionLevelOperation.apply(reaction).performChanges();
+            }
         }
     }
 
@@ -600,8 +1107,8 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         }
 
         @Override
-        public final Stream<? extends Actionable<T>> getReactionsToUpdate() {
-            return Stream.of(sourceActionable);
+        public final void collectReactionsToUpdate(final AffectedReactions target) {
+            target.reactions.add(sourceActionable);
         }
 
         protected Actionable<T> getSourceReaction() {
@@ -618,7 +1125,7 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         @Override
         public void performChanges() {
             dependencyGraph.removeDependencies(getSourceReaction());
-            scheduler.removeReaction(getSourceReaction());
+            unschedule(getSourceReaction());
         }
     }
 
@@ -653,19 +1160,18 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         }
 
         @Override
-        public Stream<? extends Actionable<T>> getReactionsToUpdate() {
-            return Stream.of(
-                    Stream.concat(
-                            // source, target, and all their neighbors are candidates.
-                            Stream.of(sourceNode, targetNode),
-                            Stream.of(environment.getNeighborhood(sourceNode), environment.getNeighborhood(getTargetNode()))
-                                    .flatMap(it -> it.getNeighbors().stream()))
-                            .distinct()
-                            .flatMap(it -> it.getReactions().stream())
-                            .filter(it -> it.getInputContext() == Context.NEIGHBORHOOD),
-                    // Global reactions
-                    dependencyGraph.globalInputContextReactions().stream())
-                    .reduce(Stream.empty(), Stream::concat);
+        public void collectReactionsToUpdate(final AffectedReactions target) {
+            // source, target, and all their neighbors are candidates.
+            target.addNeighborhoodReactionsOf(sourceNode);
+            target.addNeighborhoodReactionsOf(targetNode);
+            for (final Node<T> neighbor : environment.getNeighborhood(sourceNode).getNeighbors()) {
+                target.addNeighborhoodReactionsOf(neighbor);
+            }
+            for (final Node<T> neighbor : environment.getNeighborhood(targetNode).getNeighbors()) {
+                target.addNeighborhoodReactionsOf(neighbor);
+            }
+            // Global reactions
+            target.addGlobalReactions();
         }
     }
 
@@ -693,6 +1199,169 @@ public final class Engine<T, P extends Position<? extends P>> implements Simulat
         }
     }
 
+    /**
+     * An {@link OutputMonitor} notified only when due, as per its {@link Sampling}.
+     */
+    private final class SampledOutputMonitor {
+
+        /*
+         * Time thresholds are anticipated by this relative amount,
+         * so that floating point errors can never make a sample get skipped.
+         */
+        private static final double TOLERANCE = 1e-9;
+        private final OutputMonitor<T, P> monitor;
+        private final Sampling sampling;
+        private long lastSample = -1;
+        private double nextTime;
+        private long nextStep;
+
+        private SampledOutputMonitor(final OutputMonitor<T, P> monitor, final Sampling sampling) {
+            this.monitor = monitor;
+            this.sampling = sampling;
+            nextTime = sampling.isTimeBased() ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            nextStep = sampling.isTimeBased() ? Long.MAX_VALUE : 0;
+        }
+
+        private void stepDone(final Actionable<T> processed) {
+            if (sampling.isTimeBased()) {
+                final double time = currentTime.toDouble();
+                if (time >= nextTime) {
+                    final long sample = (long) (time / sampling.getTimeInterval());
+                    if (sample > lastSample) {
+                        lastSample = sample;
+                        monitor.stepDone(environment, processed, currentTime, currentStep);
+                    }
+                    nextTime = (lastSample + 1) * sampling.getTimeInterval() * (1 - TOLERANCE);
+                }
+            } else if (currentStep >= nextStep) {
+                monitor.stepDone(environment, processed, currentTime, currentStep);
+                nextStep = (currentStep / sampling.getStepInterval() + 1) * sampling.getStepInterval();
+            }
+        }
+    }
+
+    /**
+     * Collects the reactions affected by a batch of {@link Update}s, each one exactly once,
+     * in the order in which they are first found.
+     * Every node gets scanned at most once per kind of scan (tracked by node id with {@link EpochMarker}s),
+     * no matter how many updates involve it.
+     */
+    private final class AffectedReactions {
+
+        private final Set<Actionable<T>> reactions = new LinkedHashSet<>();
+        private final EpochMarker movedNodes = new EpochMarker();
+        private final EpochMarker movedNeighbors = new EpochMarker();
+        private final EpochMarker changedNeighborhoods = new EpochMarker();
+        private boolean globalReactionsAdded;
+        private boolean movementDependentGlobalReactionsAdded;
+
+        private void addMovementDependentReactionsOf(final Node<T> node) {
+            if (movedNodes.mark(node.getId())) {
+                for (final Reaction<T> reaction : node.getReactions()) {
+                    addIfDependsOnMovement(reaction);
+                }
+            }
+        }
+
+        private void addMovementDependentNeighborhoodReactionsOf(final Node<T> node) {
+            if (movedNeighbors.mark(node.getId())) {
+                for (final Reaction<T> reaction : node.getReactions()) {
+                    if (reaction.getInputContext() == Context.NEIGHBORHOOD) {
+                        addIfDependsOnMovement(reaction);
+                    }
+                }
+            }
+        }
+
+        private void addMovementDependentGlobalReactions() {
+            if (!movementDependentGlobalReactionsAdded) {
+                movementDependentGlobalReactionsAdded = true;
+                for (final Actionable<T> reaction : dependencyGraph.globalInputContextReactions()) {
+                    addIfDependsOnMovement(reaction);
+                }
+            }
+        }
+
+        private void addNeighborhoodReactionsOf(final Node<T> node) {
+            if (changedNeighborhoods.mark(node.getId())) {
+                for (final Reaction<T> reaction : node.getReactions()) {
+                    if (reaction.getInputContext() == Context.NEIGHBORHOOD) {
+                        reactions.add(reaction);
+                    }
+                }
+            }
+        }
+
+        private void addGlobalReactions() {
+            if (!globalReactionsAdded) {
+                globalReactionsAdded = true;
+                reactions.addAll(dependencyGraph.globalInputContextReactions());
+            }
+        }
+
+        private void addIfDependsOnMovement(final Actionable<T> reaction) {
+            final List<? extends Dependency> inbound = reaction.getInboundDependencies();
+            for (int i = 0; i < inbound.size(); i++) {
+                if (inbound.get(i).dependsOn(Dependency.MOVEMENT)) {
+                    reactions.add(reaction);
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Forgets the nodes and global reactions already scanned, but keeps the reactions collected so far.
+         */
+        private void rescan() {
+            movedNodes.clear();
+            movedNeighbors.clear();
+            changedNeighborhoods.clear();
+            globalReactionsAdded = false;
+            movementDependentGlobalReactionsAdded = false;
+        }
+
+        private void clear() {
+            reactions.clear();
+            rescan();
+        }
+    }
+
+    /**
+     * A set of non-negative integer ids which can be cleared in constant time:
+     * an id belongs to the set if its mark equals the current epoch, and clearing moves to the next epoch.
+     */
+    private static final class EpochMarker {
+
+        private int[] marks = new int[0];
+        private int epoch = 1;
+
+        /**
+         * @param id the id to mark
+         * @return true if the id was not marked yet (negative ids are never considered marked)
+         */
+        private boolean mark(final int id) {
+            if (id < 0) {
+                return true;
+            }
+            if (id >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(id + 1, marks.length * 2));
+            }
+            if (marks[id] == epoch) {
+                return false;
+            }
+            marks[id] = epoch;
+            return true;
+        }
+
+        private void clear() {
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+    }
+
     private final class SynchBox {
 
         private final AtomicInteger queueLength = new AtomicInteger();
@@ -0,0 +1,444 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations;
+
+import it.unibo.alchemist.core.interfaces.DependencyGraph;
+import it.unibo.alchemist.core.interfaces.Scheduler;
+import it.unibo.alchemist.core.interfaces.Status;
+import it.unibo.alchemist.model.interfaces.Actionable;
+import it.unibo.alchemist.model.interfaces.Condition;
+import it.unibo.alchemist.model.interfaces.Context;
+import it.unibo.alchemist.model.interfaces.Dependency;
+import it.unibo.alchemist.model.interfaces.Environment;
+import it.unibo.alchemist.model.interfaces.Node;
+import it.unibo.alchemist.model.interfaces.Position;
+import it.unibo.alchemist.model.interfaces.Reaction;
+import it.unibo.alchemist.model.interfaces.Time;
+import org.danilopianini.util.ListSet;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A conservative parallel discrete-event engine.
+ * Whenever multiple events are scheduled at the very same time,
+ * those that are provably independent are executed concurrently, and then committed sequentially,
+ * in the same order {@link Engine} would process them.
+ * As a consequence, for any given seed, this engine produces the same results of {@link Engine}.
+ * Events are considered independent (and thus eligible for concurrent execution) when they are {@link Reaction}s
+ * with {@link Context#LOCAL} input and output contexts, they do not move or remove nodes,
+ * they do not draw from shared random generators (see {@link Actionable#usesSharedRandomGenerator()}),
+ * they reside on different nodes, they share no dependency with the other simultaneous events,
+ * and no other simultaneous event influences any of the reactions they influence: otherwise, the shared dependent
+ * would get updated after the other event has already been executed, while {@link Engine} updates it in between.
+ * Models whose local actions share other mutable state not declared through {@link Dependency}s
+ * are not guaranteed to be reproducible under this engine.
+ * {@link it.unibo.alchemist.boundary.interfaces.OutputMonitor}s are notified once per event, as in {@link Engine},
+ * but only after the whole group of simultaneous events has been executed.
+ * Pause and termination requests (including those of the {@link Environment} terminators) are honored after the
+ * very same event {@link Engine} would stop at: if the simulation gets paused, the events executed concurrently
+ * but not committed yet get committed once it resumes; if it terminates, their effects on the environment remain,
+ * but they are neither counted as steps nor notified to the monitors.
+ *
+ * @param <T>
+ *            concentration type
+ * @param <P>
+ *            {@link Position} type
+ */
+public final class ParallelEngine<T, P extends Position<? extends P>> extends Engine<T, P> {
+
+    private final int parallelism;
+    /*
+     * Concurrently executed events not committed yet, and the other simultaneous events, to be processed
+     * sequentially in between.
+     */
+    private final Map<Actionable<T>, Boolean> uncommitted = new IdentityHashMap<>();
+    private final Set<Actionable<T>> others = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ForkJoinPool workers;
+
+    /**
+     * Builds a parallel simulation for a given environment, using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     */
+    public ParallelEngine(final Environment<T, P> e) {
+        this(e, Long.MAX_VALUE, Time.INFINITY);
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     */
+    public ParallelEngine(final Environment<T, P> e, final long maxSteps) {
+        this(e, maxSteps, Time.INFINITY);
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param t
+     *            the maximum time to reach
+     */
+    public ParallelEngine(final Environment<T, P> e, final Time t) {
+        this(e, Long.MAX_VALUE, t);
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     */
+    public ParallelEngine(final Environment<T, P> e, final long maxSteps, final Time t) {
+        this(e, maxSteps, t, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param parallelism
+     *            the number of threads used to execute independent events
+     */
+    public ParallelEngine(final Environment<T, P> e, final long maxSteps, final Time t, final int parallelism) {
+        this(e, maxSteps, t, new ArrayIndexedPriorityQueue<>(), parallelism);
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using the provided {@link Scheduler}.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param parallelism
+     *            the number of threads used to execute independent events
+     */
+    public ParallelEngine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final int parallelism
+    ) {
+        this(e, maxSteps, t, scheduler, new JGraphTDependencyGraph<>(e), parallelism);
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using the provided {@link Scheduler} and
+     * {@link DependencyGraph}, and as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param dependencyGraph
+     *            the {@link DependencyGraph} to use. It must be empty, it must be built on the same environment,
+     *            and it must not be shared with other simulations
+     */
+    public ParallelEngine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final DependencyGraph<T> dependencyGraph
+    ) {
+        this(e, maxSteps, t, scheduler, dependencyGraph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds a parallel simulation for a given environment, using the provided {@link Scheduler} and
+     * {@link DependencyGraph}.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param dependencyGraph
+     *            the {@link DependencyGraph} to use. It must be empty, it must be built on the same environment,
+     *            and it must not be shared with other simulations
+     * @param parallelism
+     *            the number of threads used to execute independent events
+     */
+    public ParallelEngine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final DependencyGraph<T> dependencyGraph,
+        final int parallelism
+    ) {
+        super(e, maxSteps, t, scheduler, dependencyGraph);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                "The parallelism level must be positive (provided: " + parallelism + ")"
+            );
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected void doStep() {
+        if (uncommitted.isEmpty()) {
+            final List<Actionable<T>> simultaneous = getScheduler().getNextSimultaneous();
+            final List<Actionable<T>> batch = parallelizableSubset(simultaneous);
+            if (batch.size() < 2) {
+                super.doStep();
+                return;
+            }
+            uncommitted.putAll(executeConcurrently(batch));
+            others.addAll(simultaneous);
+            others.removeAll(batch);
+        }
+        commit(true);
+    }
+
+    /*
+     * Commit phase: the scheduler returns the simultaneous events in the same order the sequential engine would use,
+     * as no dependency of an independent event can get rescheduled at the current time.
+     * If interruptible, it stops as soon as a pause or termination gets requested, as the sequential engine would.
+     */
+    private void commit(final boolean interruptible) {
+        while (!uncommitted.isEmpty() && !(interruptible && isStopRequested())) {
+            final Actionable<T> next = getScheduler().getNext();
+            final Boolean hasBeenExecuted = uncommitted.remove(next);
+            if (hasBeenExecuted == null) {
+                if (!others.remove(next)) {
+                    throw new IllegalStateException(
+                        next + " got scheduled at " + next.getTau() + " in between concurrently executed events "
+                            + uncommitted.keySet() + ". Problem occurred at step " + getStep()
+                    );
+                }
+                processEvent(next);
+            } else {
+                advanceTimeTo(next);
+                if (hasBeenExecuted) {
+                    updateDependenciesOf(next);
+                }
+                completeStep(next);
+            }
+        }
+        if (uncommitted.isEmpty()) {
+            others.clear();
+        }
+    }
+
+    /**
+     * Events executed concurrently but not committed yet (because of a pause) get committed before saving,
+     * as they would otherwise get executed again once restored.
+     *
+     * @param destination the file to write
+     */
+    @Override
+    public void checkpoint(final Path destination) {
+        Objects.requireNonNull(destination);
+        schedule(() -> commit(false));
+        super.checkpoint(destination);
+    }
+
+    /**
+     * Events executed concurrently but not committed yet (because of a pause) get committed before forking,
+     * as they would otherwise get executed again by the copies.
+     *
+     * @throws IllegalStateException
+     *            if this simulation terminated before committing some events executed concurrently,
+     *            as the copies would execute them again
+     */
+    @Override
+    public List<Engine<T, P>> fork(final int copies, final long maxSteps, final Time t) {
+        if (!uncommitted.isEmpty()) {
+            if (getStatus() == Status.TERMINATED) {
+                throw new IllegalStateException(
+                    "Events " + uncommitted.keySet() + " were executed concurrently, but " + this
+                        + " terminated before committing them: it can not be forked"
+                );
+            }
+            if (isSimulationThread()) {
+                commit(false);
+            }
+        }
+        return super.fork(copies, maxSteps, t);
+    }
+
+    private Map<Actionable<T>, Boolean> executeConcurrently(final List<Actionable<T>> batch) {
+        final int chunkSize = (batch.size() + parallelism - 1) / parallelism;
+        final List<Callable<boolean[]>> tasks = new ArrayList<>(parallelism);
+        for (int from = 0; from < batch.size(); from += chunkSize) {
+            final List<Actionable<T>> chunk = batch.subList(from, Math.min(from + chunkSize, batch.size()));
+            tasks.add(() -> {
+                final boolean[] result = new boolean[chunk.size()];
+                for (int i = 0; i < result.length; i++) {
+                    final Actionable<T> event = chunk.get(i);
+                    result[i] = event.canExecute();
+                    if (result[i]) {
+                        event.getConditions().forEach(Condition::reactionReady);
+                        event.execute();
+                    }
+                }
+                return result;
+            });
+        }
+        final Map<Actionable<T>, Boolean> executed = new IdentityHashMap<>(batch.size());
+        int index = 0;
+        for (final Future<boolean[]> outcome: Objects.requireNonNull(workers).invokeAll(tasks)) {
+            try {
+                for (final boolean hasBeenExecuted: outcome.get()) {
+                    executed.put(batch.get(index++), hasBeenExecuted);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while executing events concurrently", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A concurrently executed event failed", e.getCause());
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Selects, among the events scheduled at the next time, those that can be safely executed concurrently.
+     * If committing all of them would exceed the final step or time, nothing is selected.
+     * Each dependency gets inspected once: the cost is linear in the number of candidates and of their dependencies.
+     */
+    private List<Actionable<T>> parallelizableSubset(final List<Actionable<T>> simultaneous) {
+        if (simultaneous.size() < 2
+            || getFinalStep() - getStep() < simultaneous.size()
+            || simultaneous.get(0).getTau().compareTo(getFinalTime()) >= 0
+        ) {
+            return Collections.emptyList();
+        }
+        final List<Actionable<T>> candidates = new ArrayList<>(simultaneous.size());
+        final Set<Actionable<T>> excluded = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<Node<T>> claimed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Actionable<T> candidate: simultaneous) {
+            if (candidate instanceof Reaction && isParallelizable((Reaction<T>) candidate)
+                && claimed.add(((Reaction<T>) candidate).getNode())
+            ) {
+                candidates.add(candidate);
+            } else {
+                excluded.add(candidate);
+            }
+        }
+        if (candidates.size() < 2) {
+            return Collections.emptyList();
+        }
+        final Set<Actionable<T>> influenced = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Actionable<T> other: excluded) {
+            if (changesTopology(other)) {
+                return Collections.emptyList();
+            }
+            influenced.addAll(getDependencyGraph().outboundDependencies(other));
+        }
+        /*
+         * Dependents reached by more than one simultaneous event (either candidate or excluded):
+         * the events influencing them must be processed sequentially.
+         */
+        final Map<Actionable<T>, Actionable<T>> influencer = new IdentityHashMap<>();
+        final Set<Actionable<T>> shared = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final Actionable<T> event: simultaneous) {
+            final ListSet<Actionable<T>> dependents = getDependencyGraph().outboundDependencies(event);
+            for (int i = 0; i < dependents.size(); i++) {
+                final Actionable<T> previous = influencer.putIfAbsent(dependents.get(i), event);
+                if (previous != null && previous != event) {
+                    shared.add(dependents.get(i));
+                }
+            }
+        }
+        final List<Actionable<T>> batch = new ArrayList<>(candidates.size());
+        for (final Actionable<T> candidate: candidates) {
+            if (!influenced.contains(candidate)
+                && !influencesAny(candidate, excluded)
+                && !influencesAny(candidate, shared)
+            ) {
+                batch.add(candidate);
+            }
+        }
+        return batch.size() < 2 ? Collections.emptyList() : batch;
+    }
+
+    private boolean influencesAny(final Actionable<T> event, final Set<Actionable<T>> targets) {
+        if (!targets.isEmpty()) {
+            final ListSet<Actionable<T>> influenced = getDependencyGraph().outboundDependencies(event);
+            for (int i = 0; i < influenced.size(); i++) {
+                if (targets.contains(influenced.get(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The worker threads live as long as the simulation runs.
+     */
+    @Override
+    public void run() {
+        workers = new ForkJoinPool(parallelism);
+        try {
+            super.run();
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private static boolean changesTopology(final Actionable<?> event) {
+        return event.getOutboundDependencies().stream().anyMatch(it -> it.dependsOn(Dependency.MOVEMENT));
+    }
+
+    /**
+     * @param reaction the reaction to check
+     * @return true if the reaction only reads and writes the state of its own node, does not move nodes,
+     *         and does not draw from random generators shared with other nodes
+     */
+    static boolean isParallelizable(final Reaction<?> reaction) {
+        return reaction.getInputContext() == Context.LOCAL
+            && reaction.getOutputContext() == Context.LOCAL
+            && !reaction.usesSharedRandomGenerator()
+            && !changesTopology(reaction);
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.implementations;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import it.unibo.alchemist.core.interfaces.Scheduler;
+import it.unibo.alchemist.model.interfaces.Actionable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An indexed priority queue with the same semantics (and the same tie-breaking behavior) of
+ * {@link ArrayIndexedPriorityQueue}, specialized on primitive types.
+ * Every reaction is assigned a dense integer handle when added, which gets stored on the reaction itself
+ * (see {@link Actionable#getSchedulerHandle()}).
+ * The heap stores handles in an int array and the scheduled times in a double array,
+ * and a further int array maps each handle to its heap slot.
+ * As a consequence, neither sifting the heap nor adding, updating, or removing reactions allocate, box,
+ * or access any map. Handles get looked up in a map only for the reactions unable to store them,
+ * and for those whose handle is already taken by another scheduler.
+ *
+ * @param <T> concentration type
+ */
+public final class PrimitiveIndexedPriorityQueue<T> implements Scheduler<T> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_HANDLE = -1;
+
+    private final TObjectIntMap<Actionable<T>> handles =
+            new TObjectIntHashMap<>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, NO_HANDLE);
+    private Actionable<T>[] reactions = newReactionArray(INITIAL_CAPACITY);
+    private int[] slotOf = new int[INITIAL_CAPACITY];
+    private int[] heap = new int[INITIAL_CAPACITY];
+    private double[] times = new double[INITIAL_CAPACITY];
+    private int[] freeHandles = new int[INITIAL_CAPACITY];
+    private int freeHandlesCount;
+    private int handlesCount;
+    private int size;
+
+    @Override
+    public void addReaction(final Actionable<T> reaction) {
+        if (handleOf(reaction) != NO_HANDLE) {
+            throw new IllegalArgumentException(reaction + " is already scheduled");
+        }
+        final int handle = allocateHandle();
+        boolean stored = false;
+        if (reaction.getSchedulerHandle() < 0) {
+            reaction.setSchedulerHandle(handle);
+            stored = reaction.getSchedulerHandle() == handle;
+        }
+        if (!stored) {
+            handles.put(reaction, handle);
+        }
+        reactions[handle] = reaction;
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        final int slot = size++;
+        heap[slot] = handle;
+        times[slot] = reaction.getTauAsDouble();
+        slotOf[handle] = slot;
+        updateEffectively(slot);
+    }
+
+    @Override
+    public Actionable<T> getNext() {
+        return size == 0 ? null : reactions[heap[0]];
+    }
+
+    @Override
+    public List<Actionable<T>> getNextSimultaneous() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        /*
+         * By the heap property, all the reactions scheduled at the same time of the root
+         * form a connected sub-tree including the root.
+         */
+        final double first = times[0];
+        final List<Actionable<T>> result = new ArrayList<>();
+        final int[] toVisit = new int[size];
+        int pending = 0;
+        toVisit[pending++] = 0;
+        while (pending > 0) {
+            final int slot = toVisit[--pending];
+            result.add(reactions[heap[slot]]);
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                if (times[child] == first) {
+                    toVisit[pending++] = child;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void removeReaction(final Actionable<T> reaction) {
+        final int handle = handleOf(reaction);
+        if (handle == NO_HANDLE) {
+            throw new IllegalArgumentException(reaction + " is not scheduled");
+        }
+        if (handles.isEmpty() || handles.remove(reaction) == NO_HANDLE) {
+            reaction.setSchedulerHandle(NO_HANDLE);
+        }
+        final int slot = slotOf[handle];
+        final int last = --size;
+        if (slot != last) {
+            heap[slot] = heap[last];
+            times[slot] = times[last];
+            slotOf[heap[slot]] = slot;
+            updateEffectively(slot);
+        }
+        releaseHandle(handle);
+    }
+
+    @Override
+    public void updateReaction(final Actionable<T> reaction) {
+        final int handle = handleOf(reaction);
+        if (handle != NO_HANDLE) {
+            final int slot = slotOf[handle];
+            times[slot] = reaction.getTauAsDouble();
+            updateEffectively(slot);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        int pow = 0;
+        int exp = 0;
+        for (int i = 0; i < size; i++) {
+            final int tabulars = (int) (
+                Math.floor(Math.log(size) / Math.log(2)) - Math.floor(Math.log(i + 1) / Math.log(2))
+            ) + 1;
+            sb.append("\t".repeat(Math.max(0, tabulars)));
+            sb.append(times[i]);
+            if (i == pow) {
+                exp++;
+                pow = pow + (int) Math.pow(2, exp);
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * The handle stored on the reaction is trusted only if it refers to the very same reaction in this scheduler.
+     */
+    private int handleOf(final Actionable<T> reaction) {
+        final int handle = reaction.getSchedulerHandle();
+        if (handle >= 0 && handle < handlesCount && reactions[handle] == reaction) {
+            return handle;
+        }
+        return handles.isEmpty() ? NO_HANDLE : handles.get(reaction);
+    }
+
+    private int allocateHandle() {
+        if (freeHandlesCount > 0) {
+            return freeHandles[--freeHandlesCount];
+        }
+        if (handlesCount == reactions.length) {
+            final int capacity = handlesCount * 2;
+            reactions = Arrays.copyOf(reactions, capacity);
+            slotOf = Arrays.copyOf(slotOf, capacity);
+            freeHandles = Arrays.copyOf(freeHandles, capacity);
+        }
+        return handlesCount++;
+    }
+
+    private void releaseHandle(final int handle) {
+        reactions[handle] = null;
+        freeHandles[freeHandlesCount++] = handle;
+    }
+
+    private void down(final int startSlot) {
+        int slot = startSlot;
+        final int handle = heap[slot];
+        final double time = times[slot];
+        while (true) {
+            int minSlot = 2 * slot + 1;
+            if (minSlot >= size) {
+                break;
+            }
+            final int right = minSlot + 1;
+            if (right < size && times[right] < times[minSlot]) {
+                minSlot = right;
+            }
+            if (time > times[minSlot]) {
+                moveTo(minSlot, slot);
+                slot = minSlot;
+            } else {
+                break;
+            }
+        }
+        place(handle, time, slot);
+    }
+
+    private boolean up(final int startSlot) {
+        int slot = startSlot;
+        final int handle = heap[slot];
+        final double time = times[slot];
+        while (slot > 0) {
+            final int parent = (slot - 1) / 2;
+            if (time < times[parent]) {
+                moveTo(parent, slot);
+                slot = parent;
+            } else {
+                break;
+            }
+        }
+        if (slot == startSlot) {
+            return false;
+        }
+        place(handle, time, slot);
+        return true;
+    }
+
+    private void moveTo(final int from, final int to) {
+        heap[to] = heap[from];
+        times[to] = times[from];
+        slotOf[heap[to]] = to;
+    }
+
+    private void place(final int handle, final double time, final int slot) {
+        heap[slot] = handle;
+        times[slot] = time;
+        slotOf[handle] = slot;
+    }
+
+    private void updateEffectively(final int slot) {
+        if (!up(slot)) {
+            down(slot);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Actionable<T>[] newReactionArray(final int capacity) {
+        return (Actionable<T>[]) new Actionable<?>[capacity];
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations;
+
+import it.unibo.alchemist.core.interfaces.DependencyGraph;
+import it.unibo.alchemist.core.interfaces.Scheduler;
+import it.unibo.alchemist.core.interfaces.Status;
+import it.unibo.alchemist.model.interfaces.Actionable;
+import it.unibo.alchemist.model.interfaces.Condition;
+import it.unibo.alchemist.model.interfaces.Context;
+import it.unibo.alchemist.model.interfaces.Environment;
+import it.unibo.alchemist.model.interfaces.Node;
+import it.unibo.alchemist.model.interfaces.Position;
+import it.unibo.alchemist.model.interfaces.Reaction;
+import it.unibo.alchemist.model.interfaces.Time;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A round-synchronous parallel engine, meant for aggregate programs whose devices compute in rounds
+ * scheduled at the very same times (e.g., through a {@link
+ * it.unibo.alchemist.model.implementations.timedistributions.DiracComb} with no random phase).
+ * Whenever multiple events are scheduled at the same time, they are split in two phases:
+ * <ol>
+ *     <li>the computations, namely the {@link Reaction}s with {@link Context#LOCAL} input and output contexts
+ *     that do not move nodes and do not draw from shared random generators
+ *     (see {@link Actionable#usesSharedRandomGenerator()}), get executed concurrently,
+ *     sequentially within each node;</li>
+ *     <li>all the other events (e.g., those delivering the messages to the neighbors) get processed afterwards,
+ *     one at a time, as {@link Engine} would do.</li>
+ * </ol>
+ * As computations cannot read the state of other nodes, they learn about their neighbors only through the
+ * messages delivered by the second phase: every computation of a round thus observes the same, consistent snapshot
+ * of the neighbors' state, namely the messages delivered before the round started.
+ * <br>
+ * This execution model differs from the one of {@link Engine}, which processes simultaneous events one at a time,
+ * in the order chosen by the {@link Scheduler}, and may thus deliver messages in the middle of a round.
+ * Results are reproducible for any given seed and degree of parallelism, provided that computations do not
+ * share mutable state not declared through dependencies or through {@link Actionable#usesSharedRandomGenerator()}.
+ * Computations drawing from the random generator of the simulation are thus executed one at a time,
+ * as any other event; Protelis and ScaFi programs draw from generators of their own, and run concurrently.
+ * {@link it.unibo.alchemist.boundary.interfaces.OutputMonitor}s are notified once per event, as in {@link Engine},
+ * but only after the whole round has been executed.
+ * Pause and termination requests (including those of the {@link Environment} terminators) are honored after each
+ * committed event: if the simulation gets paused, the rest of the round gets committed once it resumes;
+ * if it terminates, the effects of the computations executed but not committed remain in the environment,
+ * but they are neither counted as steps nor notified to the monitors.
+ *
+ * @param <T>
+ *            concentration type
+ * @param <P>
+ *            {@link Position} type
+ */
+public final class RoundSynchronousEngine<T, P extends Position<? extends P>> extends Engine<T, P> {
+
+    private final int parallelism;
+    /*
+     * The computations of the current round, whether each one of them has been executed, and the next to commit.
+     */
+    private List<Actionable<T>> round = Collections.emptyList();
+    private boolean[] executed = new boolean[0];
+    private int committed;
+    private ForkJoinPool workers;
+
+    /**
+     * Builds a round-synchronous simulation for a given environment,
+     * using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     */
+    public RoundSynchronousEngine(final Environment<T, P> e) {
+        this(e, Long.MAX_VALUE, Time.INFINITY);
+    }
+
+    /**
+     * Builds a round-synchronous simulation for a given environment,
+     * using as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     */
+    public RoundSynchronousEngine(final Environment<T, P> e, final long maxSteps, final Time t) {
+        this(e, maxSteps, t, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds a round-synchronous simulation for a given environment.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param parallelism
+     *            the number of threads used to execute the computations of a round
+     */
+    public RoundSynchronousEngine(final Environment<T, P> e, final long maxSteps, final Time t, final int parallelism) {
+        this(e, maxSteps, t, new ArrayIndexedPriorityQueue<>(), new JGraphTDependencyGraph<>(e), parallelism);
+    }
+
+    /**
+     * Builds a round-synchronous simulation for a given environment, using the provided {@link Scheduler} and
+     * {@link DependencyGraph}, and as many threads as the available processors.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param dependencyGraph
+     *            the {@link DependencyGraph} to use. It must be empty, it must be built on the same environment,
+     *            and it must not be shared with other simulations
+     */
+    public RoundSynchronousEngine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final DependencyGraph<T> dependencyGraph
+    ) {
+        this(e, maxSteps, t, scheduler, dependencyGraph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Builds a round-synchronous simulation for a given environment, using the provided {@link Scheduler} and
+     * {@link DependencyGraph}.
+     *
+     * @param e
+     *            the environment at the initial time
+     * @param maxSteps
+     *            the maximum number of steps to do
+     * @param t
+     *            the maximum time to reach
+     * @param scheduler
+     *            the {@link Scheduler} to use. It must be empty, and it must not be shared with other simulations
+     * @param dependencyGraph
+     *            the {@link DependencyGraph} to use. It must be empty, it must be built on the same environment,
+     *            and it must not be shared with other simulations
+     * @param parallelism
+     *            the number of threads used to execute the computations of a round
+     */
+    public RoundSynchronousEngine(
+        final Environment<T, P> e,
+        final long maxSteps,
+        final Time t,
+        final Scheduler<T> scheduler,
+        final DependencyGraph<T> dependencyGraph,
+        final int parallelism
+    ) {
+        super(e, maxSteps, t, scheduler, dependencyGraph);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                "The parallelism level must be positive (provided: " + parallelism + ")"
+            );
+        }
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected void doStep() {
+        if (committed == round.size()) {
+            final List<Actionable<T>> computations = computationsOf(getScheduler().getNextSimultaneous());
+            if (computations.isEmpty()) {
+                super.doStep();
+                return;
+            }
+            if (computations.size() == 1) {
+                processEvent(computations.get(0));
+                return;
+            }
+            advanceTimeTo(computations.get(0));
+            round = computations;
+            executed = executeConcurrently(computations);
+            committed = 0;
+        }
+        commit(true);
+    }
+
+    /*
+     * Commit phase: dependencies get updated and events rescheduled in a deterministic order.
+     * Delivery events enabled by the computations get scheduled at the current time,
+     * and will thus be processed by the next steps, after the whole round.
+     * If interruptible, it stops as soon as a pause or termination gets requested, as the sequential engine would.
+     */
+    private void commit(final boolean interruptible) {
+        while (committed < round.size() && !(interruptible && isStopRequested())) {
+            final Actionable<T> event = round.get(committed);
+            if (executed[committed]) {
+                updateDependenciesOf(event);
+            }
+            committed++;
+            completeStep(event);
+        }
+    }
+
+    /**
+     * Computations executed but not committed yet (because of a pause) get committed before saving,
+     * as they would otherwise get executed again once restored.
+     *
+     * @param destination the file to write
+     */
+    @Override
+    public void checkpoint(final Path destination) {
+        Objects.requireNonNull(destination);
+        schedule(() -> commit(false));
+        super.checkpoint(destination);
+    }
+
+    /**
+     * Computations executed but not committed yet (because of a pause) get committed before forking,
+     * as they would otherwise get executed again by the copies.
+     *
+     * @throws IllegalStateException
+     *            if this simulation terminated before committing some computations,
+     *            as the copies would execute them again
+     */
+    @Override
+    public List<Engine<T, P>> fork(final int copies, final long maxSteps, final Time t) {
+        if (committed < round.size()) {
+            if (getStatus() == Status.TERMINATED) {
+                throw new IllegalStateException(
+                    "Computations " + round.subList(committed, round.size()) + " were executed, but " + this
+                        + " terminated before committing them: it can not be forked"
+                );
+            }
+            if (isSimulationThread()) {
+                commit(false);
+            }
+        }
+        return super.fork(copies, maxSteps, t);
+    }
+
+    private boolean[] executeConcurrently(final List<Actionable<T>> round) {
+        final Map<Node<T>, List<Integer>> byNode = new LinkedHashMap<>();
+        for (int i = 0; i < round.size(); i++) {
+            byNode.computeIfAbsent(((Reaction<T>) round.get(i)).getNode(), node -> new ArrayList<>()).add(i);
+        }
+        final List<List<Integer>> groups = new ArrayList<>(byNode.values());
+        final boolean[] executed = new boolean[round.size()];
+        final int chunkSize = (groups.size() + parallelism - 1) / parallelism;
+        final List<Callable<Void>> tasks = new ArrayList<>(parallelism);
+        for (int from = 0; from < groups.size(); from += chunkSize) {
+            final List<List<Integer>> chunk = groups.subList(from, Math.min(from + chunkSize, groups.size()));
+            tasks.add(() -> {
+                for (final List<Integer> group: chunk) {
+                    for (final int index: group) {
+                        final Actionable<T> event = round.get(index);
+                        if (event.canExecute()) {
+                            executed[index] = true;
+                            event.getConditions().forEach(Condition::reactionReady);
+                            event.execute();
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+        for (final Future<Void> outcome: Objects.requireNonNull(workers).invokeAll(tasks)) {
+            try {
+                outcome.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while executing a round", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A computation of the round failed", e.getCause());
+            }
+        }
+        return executed;
+    }
+
+    /**
+     * Selects, among the events scheduled at the next time, the computations of the round.
+     * If committing all of them would exceed the final step or time, nothing is selected.
+     */
+    private List<Actionable<T>> computationsOf(final List<Actionable<T>> simultaneous) {
+        final List<Actionable<T>> round = new ArrayList<>(simultaneous.size());
+        if (!simultaneous.isEmpty() && simultaneous.get(0).getTau().compareTo(getFinalTime()) < 0) {
+            for (final Actionable<T> candidate: simultaneous) {
+                if (candidate instanceof Reaction && ParallelEngine.isParallelizable((Reaction<T>) candidate)) {
+                    round.add(candidate);
+                }
+            }
+            if (getFinalStep() - getStep() < round.size()) {
+                round.clear();
+            }
+        }
+        return round;
+    }
+
+    /**
+     * The worker threads live as long as the simulation runs.
+     */
+    @Override
+    public void run() {
+        workers = new ForkJoinPool(parallelism);
+        try {
+            super.run();
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations
+
+import it.unibo.alchemist.core.interfaces.DependencyGraph
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Context
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Reaction
+import it.unibo.alchemist.util.BugReporting
+import org.danilopianini.util.ArrayListSet
+import org.danilopianini.util.ListSet
+import org.danilopianini.util.ListSets
+import java.util.stream.Collectors
+import java.util.stream.IntStream
+
+/**
+ * Base class for dependency graphs, namely data structures which can address in an efficient way the problem of
+ * finding those reactions affected by the execution of another reaction.
+ * This class computes which dependencies exist among reactions,
+ * subclasses decide how the resulting graph gets stored.
+ *
+ * @param <T> concentration type
+ */
+abstract class AbstractDependencyGraph<T>(protected val environment: Environment<T, *>) : DependencyGraph<T> {
+    private val inGlobals = ArrayListSet<Actionable<T>>()
+    private val outGlobals = ArrayListSet<Actionable<T>>()
+    private val runtimeRemovalCache = mutableSetOf<Actionable<T>>()
+
+    /**
+     * A live view of all the reactions in the graph.
+     */
+    protected abstract val reactions: Collection<Actionable<T>>
+
+    /**
+     * Adds [reaction] to the graph, returning false if it was already present.
+     */
+    protected abstract fun addVertex(reaction: Actionable<T>): Boolean
+
+    /**
+     * Removes [reaction] and all its edges from the graph, returning false if it was not present.
+     */
+    protected abstract fun removeVertex(reaction: Actionable<T>): Boolean
+
+    /**
+     * Adds an edge from [source] to [target], if not already present.
+     */
+    protected abstract fun addEdge(source: Actionable<T>, target: Actionable<T>)
+
+    /**
+     * Removes the edge from [source] to [target], if present.
+     */
+    protected abstract fun removeEdge(source: Actionable<T>, target: Actionable<T>)
+
+    /**
+     * The reactions influenced by [reaction], which is guaranteed to be in the graph.
+     */
+    protected abstract fun outboundOf(reaction: Actionable<T>): ListSet<Actionable<T>>
+
+    override fun createDependencies(newReaction: Actionable<T>) {
+        check(addVertex(newReaction)) {
+            "$newReaction was already in the dependency graph"
+        }
+        val dependencies = newReaction.computeDependencies(
+            isInGraph = { it in reactions },
+            allReactions = reactions.asSequence(),
+            inGlobals = inGlobals.asSequence(),
+            outGlobals = outGlobals.asSequence(),
+        )
+        connect(newReaction, dependencies)
+    }
+
+    /**
+     * Computes the dependencies of the new reactions in parallel, assuming that the graph and the environment
+     * do not change in the meanwhile, then adds them sequentially, in iteration order.
+     * The result is the same as calling [createDependencies] on every reaction.
+     */
+    override fun createDependencies(newReactions: Collection<Actionable<T>>) {
+        val batch = newReactions.toList()
+        val positions = HashMap<Actionable<T>, Int>(batch.size * 2)
+        batch.forEachIndexed { index, reaction ->
+            check(positions.put(reaction, index) == null && reaction !in reactions) {
+                "$reaction was already in the dependency graph"
+            }
+        }
+        val batchInGlobals = batch.filter { it.inputContext == Context.GLOBAL }
+        val batchOutGlobals = batch.filter { it.outputContext == Context.GLOBAL }
+        fun List<Actionable<T>>.before(index: Int) = asSequence().takeWhile { positions.getValue(it) < index }
+        val indexes = IntStream.range(0, batch.size)
+        val dependencies = (if (batch.size < PARALLEL_THRESHOLD) indexes else indexes.parallel())
+            .mapToObj { index ->
+                batch[index].computeDependencies(
+                    isInGraph = { it in reactions || (positions[it] ?: Int.MAX_VALUE) <= index },
+                    allReactions = reactions.asSequence() + batch.asSequence().take(index + 1),
+                    inGlobals = inGlobals.asSequence() + batchInGlobals.before(index),
+                    outGlobals = outGlobals.asSequence() + batchOutGlobals.before(index),
+                )
+            }
+            .collect(Collectors.toList())
+        batch.forEachIndexed { index, reaction ->
+            check(addVertex(reaction)) {
+                "$reaction was already in the dependency graph"
+            }
+            connect(reaction, dependencies[index])
+        }
+    }
+
+    /*
+     * Computes the reactions influencing (first) and influenced by (second) a new reaction,
+     * in the order in which the edges must be added. The graph is not modified.
+     */
+    private fun Actionable<T>.computeDependencies(
+        isInGraph: (Actionable<T>) -> Boolean,
+        allReactions: Sequence<Actionable<T>>,
+        inGlobals: Sequence<Actionable<T>>,
+        outGlobals: Sequence<Actionable<T>>,
+    ): Pair<List<Actionable<T>>, List<Actionable<T>>> {
+        val newReaction = this
+        val neighborhood by lazy {
+            if (newReaction is Reaction) {
+                newReaction.node.neighborhood
+            } else {
+                ListSets.emptyListSet()
+            }
+        }
+        val localReactions by lazy {
+            if (newReaction is Reaction) {
+                newReaction.node.reactions.filter(isInGraph).asSequence()
+            } else {
+                emptySequence()
+            }
+        }
+        val neighborhoodReactions by lazy {
+            neighborhood.asSequence()
+                .flatMap { it.reactions.asSequence() }
+                .filter(isInGraph)
+                .toList()
+                .asSequence()
+        }
+        val extendedNeighborhoodReactions by lazy {
+            neighborhood.asSequence()
+                // Neighbors of neighbors
+                .flatMap { it.neighborhood.asSequence() }
+                // No duplicates
+                .distinct()
+                // Exclude self and direct neighbors
+                .filterNot { it == newReaction.node || it in neighborhood }
+                .flatMap { it.reactions.asSequence() }
+                .filter(isInGraph)
+                .toList()
+                .asSequence()
+        }
+        fun Context.candidates(
+            oppositeGlobal: Sequence<Actionable<T>>,
+            oppositeContext: Actionable<T>.() -> Context,
+        ): Sequence<Actionable<T>> = when (this) {
+            Context.LOCAL ->
+                oppositeGlobal +
+                    localReactions +
+                    neighborhoodReactions.filter { it.oppositeContext() == Context.NEIGHBORHOOD }
+            Context.NEIGHBORHOOD ->
+                oppositeGlobal +
+                    localReactions +
+                    neighborhoodReactions +
+                    extendedNeighborhoodReactions.filter { it.oppositeContext() == Context.NEIGHBORHOOD }
+            Context.GLOBAL ->
+                allReactions
+        }
+        val influencers = inputContext.candidates(outGlobals) { outputContext }
+            .filter { newReaction.dependsOn(it) }
+            .toList()
+        val influenced = outputContext.candidates(inGlobals) { inputContext }
+            .filter { it.dependsOn(newReaction) }
+            .toList()
+        return influencers to influenced
+    }
+
+    private fun connect(newReaction: Actionable<T>, dependencies: Pair<List<Actionable<T>>, List<Actionable<T>>>) {
+        val (influencers, influenced) = dependencies
+        influencers.forEach { addEdge(it, newReaction) }
+        influenced.forEach { addEdge(newReaction, it) }
+        if (newReaction.inputContext == Context.GLOBAL) {
+            inGlobals.add(newReaction)
+        }
+        if (newReaction.outputContext == Context.GLOBAL) {
+            outGlobals.add(newReaction)
+        }
+    }
+
+    override fun removeDependencies(reaction: Actionable<T>) {
+        check(removeVertex(reaction)) {
+            BugReporting.reportBug(
+                "Reaction does not exists in the dependency graph.",
+                mapOf(
+                    "reaction" to reaction,
+                    "graph" to this,
+                    "incarnation" to environment.incarnation,
+                    "environment" to environment,
+                )
+            )
+        }
+        check(reaction.inputContext != Context.GLOBAL || inGlobals.remove(reaction)) {
+            "Inconsistent state: $reaction, with global input context, was not in the appropriate pool."
+        }
+        check(reaction.outputContext != Context.GLOBAL || !outGlobals.remove(reaction)) {
+            "Inconsistent state: $reaction, with global output context, was not in the appropriate pool."
+        }
+        runtimeRemovalCache += reaction
+    }
+
+    private fun addNeighborDirected(n1: Node<T>, n2: Node<T>) {
+        val n2NonGlobalReactions: Iterable<Reaction<T>> by lazy {
+            n2.reactions.filterNot { it.outputContext == Context.GLOBAL }
+        }
+        val n2NeighborhoodReactions: Iterable<Reaction<T>> by lazy {
+            n2NonGlobalReactions.filter { it.outputContext == Context.NEIGHBORHOOD }
+        }
+        val neighborInputInfluencers: Iterable<Reaction<T>> by lazy {
+            // All the non-global reactions of the new neighbor
+            n2NonGlobalReactions +
+                // Plus all the reactions of the new neighbor's neighbors with neighborhood output
+                (n2.neighborhood - setOf(n1) - n1.neighborhood).asSequence()
+                    .flatMap { it.reactions.asSequence() }
+                    .filter { it.outputContext == Context.NEIGHBORHOOD }
+        }
+        n1.reactions.forEach { reaction ->
+            when (reaction.inputContext) {
+                // Local-reading reactions can be only influenced by the new neighbor's neighborhood reactions
+                Context.LOCAL -> n2NeighborhoodReactions
+                Context.NEIGHBORHOOD -> neighborInputInfluencers
+                else -> emptyList()
+            }.asSequence()
+                .filter { reaction.dependsOn(it) }
+                .forEach { addEdge(it, reaction) }
+        }
+    }
+
+    /** @see [DependencyGraph.addNeighbor] */
+    override fun addNeighbor(n1: Node<T>, n2: Node<T>) {
+        addNeighborDirected(n1, n2)
+        addNeighborDirected(n2, n1)
+    }
+
+    /**
+     * Remove edges linking reactions in [n1] that could have influenced reactions in [n2].
+     * - reactions of n1 with output local may have influenced those with input neighborhood in [n2]
+     * - reactions of n1 with output neighborhood may have influenced those with input local or neighborhood in [n2]
+     *   plus those with input neighborhood in the n2's neighborhood that is no longer part of [n1] neighborhood
+     * - reactions with global output are unmodified
+     */
+    private fun removeNeighborDirected(n1: Node<T>, n2: Node<T>) {
+        val n2NonGlobalReactions by lazy { n2.reactions.filterNot { it.inputContext == Context.GLOBAL } }
+        val n2NeighborhoodReactions by lazy { n2NonGlobalReactions.filter { it.inputContext == Context.NEIGHBORHOOD } }
+        val neighborOutputInfluencers by lazy {
+            // All the non-global reactions of the old neighbor
+            n2NonGlobalReactions +
+                // Plus all the reactions of the new neighbor's neighbors with neighborhood output
+                (n2.neighborhood - setOf(n1) - n1.neighborhood - n1.neighborhood.flatMap { it.neighborhood }.toSet())
+                    .asSequence()
+                    .flatMap { it.reactions.asSequence() }
+                    .filter { it.inputContext == Context.NEIGHBORHOOD }
+                    .toList()
+        }
+        n1.reactions.forEach { reaction ->
+            when (reaction.outputContext) {
+                // Local-reading reactions may have been influenced only by the ex neighbor neigh-writing reactions
+                Context.LOCAL -> n2NeighborhoodReactions
+                Context.NEIGHBORHOOD -> neighborOutputInfluencers
+                else -> emptyList()
+            }.asSequence()
+                .filter { reaction.dependsOn(it) }
+                .forEach { removeEdge(it, reaction) }
+        }
+    }
+
+    override fun removeNeighbor(n1: Node<T>, n2: Node<T>) {
+        removeNeighborDirected(n1, n2)
+        removeNeighborDirected(n2, n1)
+    }
+
+    override fun outboundDependencies(reaction: Actionable<T>?): ListSet<Actionable<T>> {
+        if (reaction != null && reaction in reactions) {
+            return outboundOf(reaction)
+        }
+        require(runtimeRemovalCache.remove(reaction)) {
+            BugReporting.reportBug(
+                "A reaction that is being updated does not exists in the dependency graph, " +
+                    "nor has been scheduled for removal.",
+                mapOf(
+                    "graph" to this,
+                    "incarnation" to environment.incarnation,
+                    "environment" to environment,
+                    "reaction" to reaction,
+                )
+            )
+        }
+        return ListSets.emptyListSet()
+    }
+
+    override fun globalInputContextReactions(): ListSet<Actionable<T>> = ListSets.unmodifiableListSet(inGlobals)
+
+    private val Actionable<T>.node: Node<T> get() = checkNotNull(this as? Reaction).node
+
+    private fun Actionable<T>.dependsOn(other: Actionable<T>) =
+        inboundDependencies.any { inbound ->
+            other.outboundDependencies.any { outbound ->
+                inbound.dependsOn(outbound) || outbound.makesDependent(inbound)
+            }
+        }
+
+    private val Node<T>.neighborhood get() = environment.getNeighborhood(this).neighbors
+
+    companion object {
+        private const val serialVersionUID = 1L
+
+        /*
+         * Below this number of reactions, dependencies are computed sequentially.
+         */
+        private const val PARALLEL_THRESHOLD = 1024
+
+        private val Actionable<*>.inputContext get() = when (this) {
+            is Reaction -> inputContext
+            else -> Context.GLOBAL
+        }
+
+        private val Actionable<*>.outputContext get() = when (this) {
+            is Reaction -> outputContext
+            else -> Context.GLOBAL
+        }
+    }
+}
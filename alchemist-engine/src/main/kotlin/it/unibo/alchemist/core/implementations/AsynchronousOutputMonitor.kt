@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations
+
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.boundary.interfaces.SnapshotOutputMonitor
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Position
+import it.unibo.alchemist.model.interfaces.Time
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * An [OutputMonitor] running the [delegate] on a dedicated thread, so that slow monitors
+ * (e.g., exporters writing on files or databases) do not throttle the simulation.
+ *
+ * At every step, the simulation thread takes a [SnapshotOutputMonitor.snapshot] of the data the [delegate] needs,
+ * and publishes it into a bounded single-producer single-consumer ring buffer of size [capacity],
+ * which gets drained by the monitor thread through [SnapshotOutputMonitor.stepDone].
+ * Only snapshots reach the monitor thread, which never accesses the [Environment]:
+ * [SnapshotOutputMonitor.initialized] and [SnapshotOutputMonitor.finished] run on the simulation thread,
+ * the latter once all the snapshots have been consumed.
+ * When the buffer is full, the [backPressure] policy decides whether the simulation waits
+ * ([BackPressure.BLOCK]) or the step gets discarded without taking any snapshot ([BackPressure.DROP]).
+ * Errors raised by the [delegate] are rethrown on the simulation thread.
+ * Once a simulation is [finished], the monitor can observe another one (e.g., a restored or forked simulation):
+ * a new monitor thread gets started.
+ *
+ * @param <T> concentration type
+ * @param <P> position type
+ * @param <S> snapshot type
+ */
+class AsynchronousOutputMonitor<T, P : Position<out P>, S : Any> @JvmOverloads constructor(
+    val delegate: SnapshotOutputMonitor<T, P, S>,
+    val capacity: Int = DEFAULT_CAPACITY,
+    val backPressure: BackPressure = BackPressure.BLOCK,
+) : OutputMonitor<T, P> {
+
+    /**
+     * What to do when a step gets completed while the ring buffer is full.
+     */
+    enum class BackPressure {
+        /**
+         * The simulation waits for the monitor to catch up: all the steps are observed.
+         */
+        BLOCK,
+
+        /**
+         * The step is not observed by the monitor, the simulation proceeds.
+         */
+        DROP,
+    }
+
+    init {
+        require(capacity > 0) { "The capacity must be positive, but it is $capacity" }
+    }
+
+    private val snapshots = arrayOfNulls<Any>(capacity)
+
+    @Volatile private var published = 0L
+    @Volatile private var consumed = 0L
+    @Volatile private var closing = false
+    @Volatile private var failure: Throwable? = null
+
+    @Transient private var consumer: Thread? = null
+
+    /**
+     * The number of steps that have not been observed by the [delegate], due to [BackPressure.DROP].
+     */
+    @Volatile var droppedSteps = 0L
+        private set
+
+    override fun initialized(environment: Environment<T, P>) {
+        delegate.initialized(environment)
+        start()
+    }
+
+    override fun stepDone(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) {
+        rethrowFailure()
+        start()
+        val sequence = published
+        while (sequence - consumed >= capacity) {
+            when (backPressure) {
+                BackPressure.DROP -> {
+                    droppedSteps++
+                    return
+                }
+                BackPressure.BLOCK -> {
+                    LockSupport.parkNanos(WAIT_NANOS)
+                    rethrowFailure()
+                }
+            }
+        }
+        val snapshot = delegate.snapshot(environment, reaction, time, step) ?: return
+        snapshots[(sequence % capacity).toInt()] = snapshot
+        published = sequence + 1
+        if (sequence == consumed) {
+            // The consumer may be waiting for events
+            LockSupport.unpark(consumer)
+        }
+    }
+
+    override fun finished(environment: Environment<T, P>, time: Time, step: Long) {
+        start()
+        closing = true
+        val thread = checkNotNull(consumer)
+        try {
+            LockSupport.unpark(thread)
+            thread.join()
+        } finally {
+            consumer = null
+        }
+        rethrowFailure()
+        // The simulation is over: the environment can be accessed by this thread
+        delegate.finished(environment, time, step)
+    }
+
+    /*
+     * Starts the monitor thread, unless already running. The state left by a previous run gets reset first:
+     * the monitor thread of a new simulation must not find it closing, nor inherit its failures.
+     */
+    private fun start() {
+        if (consumer == null) {
+            closing = false
+            failure = null
+            consumed = published
+            snapshots.fill(null)
+            consumer = Thread(::drain, "${javaClass.simpleName}-${delegate.javaClass.simpleName}").apply {
+                isDaemon = true
+                start()
+            }
+        }
+    }
+
+    private fun drain() {
+        runCatching {
+            while (true) {
+                val sequence = consumed
+                if (sequence < published) {
+                    val slot = (sequence % capacity).toInt()
+                    @Suppress("UNCHECKED_CAST")
+                    val snapshot = checkNotNull(snapshots[slot]) as S
+                    snapshots[slot] = null
+                    consumed = sequence + 1
+                    delegate.stepDone(snapshot)
+                } else if (closing) {
+                    // published gets written before closing: no event can be missing
+                    if (consumed == published) {
+                        break
+                    }
+                } else {
+                    LockSupport.parkNanos(WAIT_NANOS)
+                }
+            }
+        }.onFailure { failure = it }
+    }
+
+    private fun rethrowFailure() {
+        failure?.let { throw IllegalStateException("Monitor $delegate failed", it) }
+    }
+
+    private companion object {
+        private const val serialVersionUID = 2L
+        private const val DEFAULT_CAPACITY = 1024
+        private const val WAIT_NANOS = 100_000L
+    }
+}
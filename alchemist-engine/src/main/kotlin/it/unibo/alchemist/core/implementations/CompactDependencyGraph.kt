@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations
+
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import org.danilopianini.util.ListSet
+import java.io.Serializable
+import java.util.Objects
+import java.util.function.Consumer
+
+/**
+ * A memory-efficient dependency graph, computing the same dependencies of [JGraphTDependencyGraph]
+ * (and returning them in the same order).
+ * Every reaction gets a dense integer id, and the graph is stored as adjacency lists of ids
+ * in growable int arrays: no object gets allocated per edge.
+ * [outboundDependencies] does not allocate either: it returns a read-only, live view of the adjacency list,
+ * created once per reaction, which reflects the subsequent changes to the graph.
+ *
+ * @param <T> concentration type
+ */
+class CompactDependencyGraph<T>(environment: Environment<T, *>) : AbstractDependencyGraph<T>(environment) {
+
+    /*
+     * Insertion-ordered, as the vertex set of JGraphT.
+     */
+    private val views = LinkedHashMap<Actionable<T>, OutboundView>()
+    private var vertices = arrayOfNulls<Actionable<*>>(INITIAL_CAPACITY)
+    private var outbound = Array(INITIAL_CAPACITY) { EMPTY }
+    private var outDegree = IntArray(INITIAL_CAPACITY)
+    private var inbound = Array(INITIAL_CAPACITY) { EMPTY }
+    private var inDegree = IntArray(INITIAL_CAPACITY)
+    private var freeIds = IntArray(INITIAL_CAPACITY)
+    private var freeIdsCount = 0
+    private var idsCount = 0
+
+    override val reactions: Collection<Actionable<T>> get() = views.keys
+
+    override fun addVertex(reaction: Actionable<T>): Boolean {
+        if (views.containsKey(reaction)) {
+            return false
+        }
+        val id = allocateId()
+        vertices[id] = reaction
+        views[reaction] = OutboundView(id)
+        return true
+    }
+
+    override fun removeVertex(reaction: Actionable<T>): Boolean {
+        val id = views.remove(reaction)?.id ?: return false
+        for (index in 0 until outDegree[id]) {
+            val target = outbound[id][index]
+            if (target != id) {
+                inDegree[target] = inbound[target].removeValue(inDegree[target], id, keepOrder = false)
+            }
+        }
+        for (index in 0 until inDegree[id]) {
+            val source = inbound[id][index]
+            if (source != id) {
+                outDegree[source] = outbound[source].removeValue(outDegree[source], id, keepOrder = true)
+            }
+        }
+        vertices[id] = null
+        outbound[id] = EMPTY
+        outDegree[id] = 0
+        inbound[id] = EMPTY
+        inDegree[id] = 0
+        freeIds[freeIdsCount++] = id
+        return true
+    }
+
+    override fun addEdge(source: Actionable<T>, target: Actionable<T>) {
+        val sourceId = idOf(source)
+        val targetId = idOf(target)
+        if (outbound[sourceId].indexOf(outDegree[sourceId], targetId) < 0) {
+            outbound[sourceId] = outbound[sourceId].append(outDegree[sourceId]++, targetId)
+            inbound[targetId] = inbound[targetId].append(inDegree[targetId]++, sourceId)
+        }
+    }
+
+    override fun removeEdge(source: Actionable<T>, target: Actionable<T>) {
+        val sourceId = idOf(source)
+        val targetId = idOf(target)
+        val degree = outDegree[sourceId]
+        outDegree[sourceId] = outbound[sourceId].removeValue(degree, targetId, keepOrder = true)
+        if (outDegree[sourceId] != degree) {
+            inDegree[targetId] = inbound[targetId].removeValue(inDegree[targetId], sourceId, keepOrder = false)
+        }
+    }
+
+    override fun outboundOf(reaction: Actionable<T>): ListSet<Actionable<T>> = checkNotNull(views[reaction])
+
+    override fun toString() = views.entries.joinToString(prefix = "{", postfix = "}") { (reaction, dependencies) ->
+        "$reaction=${dependencies.toList()}"
+    }
+
+    private fun idOf(reaction: Actionable<T>): Int =
+        checkNotNull(views[reaction]) { "$reaction is not in the dependency graph" }.id
+
+    private fun allocateId(): Int {
+        if (freeIdsCount > 0) {
+            return freeIds[--freeIdsCount]
+        }
+        if (idsCount == vertices.size) {
+            val capacity = idsCount * 2
+            vertices = vertices.copyOf(capacity)
+            outbound = Array(capacity) { if (it < idsCount) outbound[it] else EMPTY }
+            outDegree = outDegree.copyOf(capacity)
+            inbound = Array(capacity) { if (it < idsCount) inbound[it] else EMPTY }
+            inDegree = inDegree.copyOf(capacity)
+            freeIds = freeIds.copyOf(capacity)
+        }
+        return idsCount++
+    }
+
+    /**
+     * The outbound dependencies of the reaction with the provided [id], read directly from the adjacency arrays.
+     */
+    private inner class OutboundView(
+        val id: Int,
+    ) : java.util.AbstractList<Actionable<T>>(), ListSet<Actionable<T>>, Serializable {
+
+        override val size: Int get() = outDegree[id]
+
+        @Suppress("UNCHECKED_CAST")
+        override fun get(index: Int): Actionable<T> {
+            Objects.checkIndex(index, outDegree[id])
+            return vertices[outbound[id][index]] as Actionable<T>
+        }
+
+        override fun contains(element: Actionable<T>): Boolean =
+            views[element]?.let { outbound[id].indexOf(outDegree[id], it.id) >= 0 } ?: false
+
+        override fun indexOf(element: Actionable<T>): Int =
+            views[element]?.let { outbound[id].indexOf(outDegree[id], it.id) } ?: -1
+
+        override fun lastIndexOf(element: Actionable<T>): Int = indexOf(element)
+
+        override fun forEach(action: Consumer<in Actionable<T>>) {
+            for (index in 0 until outDegree[id]) {
+                action.accept(get(index))
+            }
+        }
+    }
+
+    private companion object {
+        private const val serialVersionUID = 1L
+        private const val INITIAL_CAPACITY = 16
+        private val EMPTY = IntArray(0)
+
+        private fun IntArray.indexOf(size: Int, value: Int): Int {
+            for (index in 0 until size) {
+                if (this[index] == value) {
+                    return index
+                }
+            }
+            return -1
+        }
+
+        /*
+         * Returns either this array or a larger copy, with value stored at the provided position.
+         */
+        private fun IntArray.append(position: Int, value: Int): IntArray {
+            val target = if (position < size) this else copyOf(maxOf(INITIAL_CAPACITY / 4, size * 2))
+            target[position] = value
+            return target
+        }
+
+        /*
+         * Removes the first occurrence of value, returning the new size.
+         */
+        private fun IntArray.removeValue(size: Int, value: Int, keepOrder: Boolean): Int {
+            val index = indexOf(size, value)
+            if (index < 0) {
+                return size
+            }
+            val last = size - 1
+            if (keepOrder) {
+                System.arraycopy(this, index + 1, this, index, last - index)
+            } else {
+                this[index] = this[last]
+            }
+            return last
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.core.implementations
+
+import it.unibo.alchemist.core.interfaces.DependencyGraph
+import it.unibo.alchemist.core.interfaces.Scheduler
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Position
+import it.unibo.alchemist.model.interfaces.Time
+import java.lang.reflect.InvocationTargetException
+
+/**
+ * Builds [Engine]s, [Scheduler]s, and [DependencyGraph]s given the name of their implementation,
+ * allowing to switch among implementations without changing the code of the launcher.
+ * Names can be either fully qualified, or simple names of the classes in this package
+ * (e.g., `ParallelEngine`, `CalendarQueue`, or `JGraphTDependencyGraph`).
+ *
+ * [Scheduler] implementations must provide a public zero-arguments constructor,
+ * [DependencyGraph] implementations a public constructor accepting the [Environment],
+ * and [Engine] variants a public constructor with the same signature of
+ * `Engine(Environment, long, Time, Scheduler, DependencyGraph)`.
+ */
+object EngineFactory {
+
+    private val defaultPackage = EngineFactory::class.java.packageName
+
+    /**
+     * Creates a new, empty [Scheduler] whose implementation is named [name].
+     */
+    @JvmStatic
+    fun <T> scheduler(name: String): Scheduler<T> =
+        instance(implementationOf<Scheduler<*>>(name))
+
+    /**
+     * Creates a new, empty [DependencyGraph] for [environment], whose implementation is named [name].
+     */
+    @JvmStatic
+    fun <T> dependencyGraph(name: String, environment: Environment<T, *>): DependencyGraph<T> =
+        instance(implementationOf<DependencyGraph<*>>(name), Environment::class.java to environment)
+
+    /**
+     * Creates a new simulation of [environment], running until [finalStep] or [finalTime] get reached.
+     * The engine implementation is named [name] (defaults to [Engine] if null),
+     * and it relies on the provided [scheduler] (a new [ArrayIndexedPriorityQueue] if null)
+     * and [dependencyGraph] (a new [JGraphTDependencyGraph] if null).
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <T, P : Position<out P>> engine(
+        name: String?,
+        environment: Environment<T, P>,
+        finalStep: Long = Long.MAX_VALUE,
+        finalTime: Time = Time.INFINITY,
+        scheduler: Scheduler<T>? = null,
+        dependencyGraph: DependencyGraph<T>? = null,
+    ): Engine<T, P> {
+        val actualScheduler = scheduler ?: ArrayIndexedPriorityQueue()
+        val actualDependencyGraph = dependencyGraph ?: JGraphTDependencyGraph(environment)
+        return when (name) {
+            null -> Engine(environment, finalStep, finalTime, actualScheduler, actualDependencyGraph)
+            else -> instance(
+                implementationOf<Engine<*, *>>(name),
+                Environment::class.java to environment,
+                Long::class.javaPrimitiveType to finalStep,
+                Time::class.java to finalTime,
+                Scheduler::class.java to actualScheduler,
+                DependencyGraph::class.java to actualDependencyGraph,
+            )
+        }
+    }
+
+    private inline fun <reified S> implementationOf(name: String): Class<out S> {
+        val qualifiedName = if (name.contains('.')) name else "$defaultPackage.$name"
+        val implementation = runCatching { Class.forName(qualifiedName) }.getOrElse {
+            throw IllegalArgumentException("No ${S::class.simpleName} implementation named $name was found", it)
+        }
+        require(S::class.java.isAssignableFrom(implementation)) {
+            "$qualifiedName is not a valid ${S::class.simpleName} implementation"
+        }
+        @Suppress("UNCHECKED_CAST")
+        return implementation as Class<out S>
+    }
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <R> instance(type: Class<*>, vararg parameters: Pair<Class<*>?, Any>): R {
+        val constructor = runCatching { type.getConstructor(*parameters.map { it.first }.toTypedArray()) }.getOrElse {
+            throw IllegalArgumentException(
+                "${type.name} has no public constructor accepting ${parameters.map { it.first?.simpleName }}",
+                it,
+            )
+        }
+        return try {
+            constructor.newInstance(*parameters.map { it.second }.toTypedArray()) as R
+        } catch (e: InvocationTargetException) {
+            throw IllegalStateException("Unable to build a ${type.simpleName}", e.targetException)
+        }
+    }
+}
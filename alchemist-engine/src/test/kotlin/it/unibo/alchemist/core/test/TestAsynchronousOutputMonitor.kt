@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldBeStrictlyIncreasing
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.optional.shouldBePresent
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.boundary.interfaces.SnapshotOutputMonitor
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor.BackPressure
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestAsynchronousOutputMonitor : StringSpec(
+    {
+        "a blocking asynchronous monitor should observe all the steps, in order" {
+            val recorder = StepRecorder(delayNanos = 0)
+            val asynchronous = AsynchronousOutputMonitor(recorder, capacity = 16, backPressure = BackPressure.BLOCK)
+            runSimulation(asynchronous).error.shouldBeEmpty()
+            recorder.events shouldContainExactly listOf("initialized") + (0 until STEPS).map { "$it" } + "finished"
+            recorder.snapshotThreads shouldContainExactly recorder.simulationThreads
+            recorder.monitorThreads.single() shouldNotBe recorder.simulationThreads.single()
+            asynchronous.droppedSteps shouldBe 0L
+        }
+        "a dropping asynchronous monitor should observe a subset of the steps, in order" {
+            val recorder = StepRecorder(delayNanos = SLOW_MONITOR_NANOS)
+            val asynchronous = AsynchronousOutputMonitor(recorder, capacity = 4, backPressure = BackPressure.DROP)
+            runSimulation(asynchronous).error.shouldBeEmpty()
+            recorder.events.first() shouldBe "initialized"
+            recorder.events.last() shouldBe "finished"
+            val steps = recorder.events.drop(1).dropLast(1).map { it.toLong() }
+            steps.shouldBeStrictlyIncreasing()
+            asynchronous.droppedSteps shouldBeGreaterThan 0L
+            steps.size + asynchronous.droppedSteps shouldBe STEPS
+        }
+        "failures of the asynchronous monitor should make the simulation fail" {
+            val failing = object : SnapshotOutputMonitor<Double, Euclidean2DPosition, Long> {
+                override fun snapshot(
+                    environment: Environment<Double, Euclidean2DPosition>,
+                    reaction: Actionable<Double>?,
+                    time: Time,
+                    step: Long,
+                ) = step
+
+                override fun stepDone(snapshot: Long) = error("stepDone failure")
+            }
+            runSimulation(AsynchronousOutputMonitor(failing)).error.shouldBePresent()
+        }
+        "an asynchronous monitor should observe all the steps of a further simulation" {
+            val recorder = StepRecorder(delayNanos = 0)
+            val asynchronous = AsynchronousOutputMonitor(recorder, capacity = 4, backPressure = BackPressure.BLOCK)
+            val run = listOf("initialized") + (0 until STEPS).map { "$it" } + "finished"
+            runSimulation(asynchronous).error.shouldBeEmpty()
+            runSimulation(asynchronous).error.shouldBeEmpty()
+            recorder.events shouldContainExactly run + run
+            asynchronous.droppedSteps shouldBe 0L
+        }
+    }
+) {
+    /**
+     * Records the events it observes, optionally slowing down at every step.
+     * Snapshots only contain the step number: the environment is never accessed by the monitor thread.
+     */
+    private class StepRecorder(
+        private val delayNanos: Long,
+    ) : SnapshotOutputMonitor<Double, Euclidean2DPosition, Long> {
+
+        val events = mutableListOf<String>()
+        val simulationThreads = mutableSetOf<Thread>()
+        val snapshotThreads = mutableSetOf<Thread>()
+        val monitorThreads = mutableSetOf<Thread>()
+
+        override fun initialized(environment: Environment<Double, Euclidean2DPosition>) {
+            simulationThreads += Thread.currentThread()
+            events += "initialized"
+        }
+
+        override fun snapshot(
+            environment: Environment<Double, Euclidean2DPosition>,
+            reaction: Actionable<Double>?,
+            time: Time,
+            step: Long,
+        ): Long {
+            snapshotThreads += Thread.currentThread()
+            return step
+        }
+
+        override fun stepDone(snapshot: Long) {
+            monitorThreads += Thread.currentThread()
+            events += "$snapshot"
+            if (delayNanos > 0) {
+                Thread.sleep(delayNanos / NANOS_PER_MILLI, (delayNanos % NANOS_PER_MILLI).toInt())
+            }
+        }
+
+        override fun finished(environment: Environment<Double, Euclidean2DPosition>, time: Time, step: Long) {
+            simulationThreads += Thread.currentThread()
+            events += "finished"
+        }
+    }
+
+    companion object {
+        private const val STEPS = 1_000L
+        private const val SLOW_MONITOR_NANOS = 1_000_000L
+        private const val NANOS_PER_MILLI = 1_000_000L
+
+        private fun runSimulation(monitor: OutputMonitor<Double, Euclidean2DPosition>): Engine<*, *> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(10) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                node.addReaction(
+                    incarnation.createReaction(
+                        randomGenerator,
+                        environment,
+                        node,
+                        ExponentialTime(1.0, randomGenerator),
+                        "[] --> [a]",
+                    )
+                )
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            val simulation = Engine(environment, STEPS, Time.INFINITY)
+            simulation.addOutputMonitor(monitor)
+            simulation.play()
+            simulation.run()
+            return simulation
+        }
+    }
+}
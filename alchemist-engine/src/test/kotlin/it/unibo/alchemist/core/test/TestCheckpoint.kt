@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.boundary.interfaces.Sampling
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import java.nio.file.Files
+import java.nio.file.Path
+
+class TestCheckpoint : StringSpec(
+    {
+        "a restored simulation should continue exactly as the original one" {
+            val checkpoint = checkpointFile()
+            val original = scenario()
+            original.addOutputMonitor(
+                object : OutputMonitor<Double, Euclidean2DPosition> {
+                    override fun stepDone(
+                        environment: Environment<Double, Euclidean2DPosition>,
+                        reaction: Actionable<Double>?,
+                        time: Time,
+                        step: Long,
+                    ) {
+                        if (step == CHECKPOINT_STEP) {
+                            original.checkpoint(checkpoint)
+                        }
+                    }
+                }
+            )
+            original.runToCompletion()
+            val restored = Engine.restore<Double, Euclidean2DPosition>(checkpoint)
+            // The checkpoint is taken once the step completes
+            restored.step shouldBe CHECKPOINT_STEP + 1
+            restored.runToCompletion()
+            restored.time shouldBe original.time
+            restored.step shouldBe original.step
+            restored.environment.snapshot() shouldBe original.environment.snapshot()
+        }
+        "periodic checkpoints should be taken as frequently as requested" {
+            val checkpoint = checkpointFile()
+            val original = scenario()
+            original.checkpoint(checkpoint, Sampling.everySteps(CHECKPOINT_STEP))
+            original.runToCompletion()
+            val restored = Engine.restore<Double, Euclidean2DPosition>(checkpoint)
+            restored.step % CHECKPOINT_STEP shouldBe 1
+            restored.step shouldBeGreaterThan CHECKPOINT_STEP
+            restored.step shouldBeLessThan original.step
+            restored.runToCompletion()
+            restored.environment.snapshot() shouldBe original.environment.snapshot()
+        }
+        "forks should continue independently from the state of the original simulation" {
+            val uninterrupted = scenario(DoubleTime(SIMULATED_TIME))
+            uninterrupted.runToCompletion()
+            val warmUp = scenario(DoubleTime(SIMULATED_TIME / 2))
+            warmUp.runToCompletion()
+            val (unchanged, changed) = warmUp.fork(2, Long.MAX_VALUE, DoubleTime(SIMULATED_TIME))
+            unchanged.step shouldBe warmUp.step
+            // Parameters may change after the fork: the state is not shared
+            changed.environment.nodes.first().setConcentration(BiochemistryIncarnation().createMolecule("a"), 1000.0)
+            changed.runToCompletion()
+            unchanged.runToCompletion()
+            // The unchanged fork behaves as if the warm-up never stopped, unaffected by the other fork
+            unchanged.step shouldBe uninterrupted.step
+            unchanged.environment.snapshot() shouldBe uninterrupted.environment.snapshot()
+            changed.environment.snapshot() shouldNotBe uninterrupted.environment.snapshot()
+        }
+    }
+) {
+    companion object {
+        private const val NODES = 10
+        private const val CHECKPOINT_STEP = 500L
+        private const val SIMULATED_TIME = 100.0
+
+        private fun checkpointFile(): Path = Files.createTempFile("alchemist", ".checkpoint").also {
+            it.toFile().deleteOnExit()
+        }
+
+        private fun scenario(finalTime: Time = DoubleTime(SIMULATED_TIME)): Engine<Double, Euclidean2DPosition> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = ConnectWithinDistance(1.5)
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                mapOf(
+                    "[] --> [a]" to 1.0,
+                    "[a] --> [a in neighbor]" to 2.0,
+                    "[a] --> []" to 0.5,
+                ).forEach { (program, rate) ->
+                    node.addReaction(
+                        incarnation.createReaction(
+                            randomGenerator,
+                            environment,
+                            node,
+                            ExponentialTime(rate, randomGenerator),
+                            program,
+                        )
+                    )
+                }
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            return Engine(environment, finalTime)
+        }
+
+        private fun Engine<Double, Euclidean2DPosition>.runToCompletion() {
+            play()
+            run()
+            error.shouldBeEmpty()
+        }
+
+        private fun Environment<Double, Euclidean2DPosition>.snapshot() = nodes.associate { node ->
+            node.id to (getPosition(node) to node.contents.mapKeys { it.key.name })
+        }
+    }
+}
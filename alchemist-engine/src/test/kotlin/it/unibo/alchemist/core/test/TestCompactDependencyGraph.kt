@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.core.implementations.ArrayIndexedPriorityQueue
+import it.unibo.alchemist.core.implementations.CompactDependencyGraph
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.JGraphTDependencyGraph
+import it.unibo.alchemist.core.interfaces.DependencyGraph
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestCompactDependencyGraph : StringSpec(
+    {
+        "the compact graph should compute the same dependencies of the JGraphT graph, in the same order" {
+            val environment = createEnvironment()
+            val reactions: List<Actionable<Double>> = environment.nodes.flatMap { it.reactions }
+            val reference = JGraphTDependencyGraph(environment)
+            val compact = CompactDependencyGraph(environment)
+            reactions.forEach {
+                reference.createDependencies(it)
+                compact.createDependencies(it)
+            }
+            compact.shouldHaveTheSameDependenciesOf(reference, reactions)
+            val removed = reactions.filterIndexed { index, _ -> index % 3 == 0 }
+            removed.forEach {
+                reference.removeDependencies(it)
+                compact.removeDependencies(it)
+            }
+            compact.shouldHaveTheSameDependenciesOf(reference, reactions - removed.toSet())
+            val (restored, stillRemoved) = removed.chunked(removed.size / 2 + 1).let { it.first() to it.last() }
+            restored.forEach {
+                reference.createDependencies(it)
+                compact.createDependencies(it)
+            }
+            compact.shouldHaveTheSameDependenciesOf(reference, reactions - stillRemoved.toSet())
+        }
+        "bulk creation should build the same graph of sequential creation" {
+            val environment = createEnvironment(nodes = 1_000, side = 15.0)
+            val reactions: List<Actionable<Double>> = environment.nodes.flatMap { it.reactions }
+            listOf<(Environment<Double, Euclidean2DPosition>) -> DependencyGraph<Double>>(
+                { JGraphTDependencyGraph(it) },
+                { CompactDependencyGraph(it) },
+            ).forEach { graphFactory ->
+                val sequential = graphFactory(environment)
+                reactions.forEach { sequential.createDependencies(it) }
+                val bulk = graphFactory(environment)
+                val (first, second) = reactions.chunked(reactions.size / 2 + 1).let { it.first() to it.last() }
+                bulk.createDependencies(first)
+                bulk.createDependencies(second)
+                bulk.shouldHaveTheSameDependenciesOf(sequential, reactions)
+            }
+        }
+        "simulations should not change when using the compact graph" {
+            fun runWith(graph: (Environment<Double, Euclidean2DPosition>) -> DependencyGraph<Double>): List<Any> {
+                val environment = createEnvironment()
+                val simulation =
+                    Engine(environment, STEPS, Time.INFINITY, ArrayIndexedPriorityQueue(), graph(environment))
+                simulation.play()
+                simulation.run()
+                simulation.error.shouldBeEmpty()
+                return listOf(simulation.time) + environment.nodes.map { it.contents.toString() }
+            }
+            runWith { CompactDependencyGraph(it) } shouldBe runWith { JGraphTDependencyGraph(it) }
+        }
+    }
+) {
+    companion object {
+        private const val NODES = 100
+        private const val SIDE = 5.0
+        private const val STEPS = 10_000L
+
+        private fun createEnvironment(
+            nodes: Int = NODES,
+            side: Double = SIDE,
+        ): Environment<Double, Euclidean2DPosition> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = ConnectWithinDistance(1.0)
+            repeat(nodes) {
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                listOf(
+                    "[] --> [a]",
+                    "[a] --> [b]",
+                    "[b] --> [a in neighbor]",
+                    "[a] + [b in neighbor] --> [c]",
+                ).forEach { program ->
+                    node.addReaction(
+                        incarnation.createReaction(
+                            randomGenerator,
+                            environment,
+                            node,
+                            ExponentialTime(1.0, randomGenerator),
+                            program,
+                        )
+                    )
+                }
+                environment.addNode(
+                    node,
+                    environment.makePosition(randomGenerator.nextDouble() * side, randomGenerator.nextDouble() * side),
+                )
+            }
+            return environment
+        }
+
+        private fun DependencyGraph<Double>.shouldHaveTheSameDependenciesOf(
+            reference: DependencyGraph<Double>,
+            reactions: List<Actionable<Double>>,
+        ) = reactions.forEach { reaction ->
+            outboundDependencies(reaction).toList() shouldBe reference.outboundDependencies(reaction).toList()
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.CompactDependencyGraph
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.PrimitiveIndexedPriorityQueue
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.reactions.AbstractReaction
+import it.unibo.alchemist.model.implementations.timedistributions.AbstractDistribution
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Dependency
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Reaction
+import it.unibo.alchemist.model.interfaces.Time
+import it.unibo.alchemist.model.interfaces.TimeDistribution
+import org.apache.commons.math3.random.MersenneTwister
+import org.apache.commons.math3.random.RandomGenerator
+import java.lang.management.ManagementFactory
+import com.sun.management.ThreadMXBean as AllocationAwareThreadMXBean
+
+/**
+ * Verifies that, once warmed up, the step loop of the [Engine] does not allocate when no topology change occurs.
+ * Reactions do nothing, and depend on each other within the same node: any allocation measured on the simulation
+ * thread is caused by the engine, its scheduler, its dependency graph, or the time distributions.
+ * The stock time distributions create a [Time] only when the simulation clock advances to one of their
+ * occurrences (simultaneous events share the current time): that is the only allocation allowed in the
+ * default configuration.
+ */
+class TestEngineAllocations : StringSpec(
+    {
+        "with a primitive queue, a compact graph, and non-allocating reactions, steps should not allocate" {
+            val threads = ManagementFactory.getThreadMXBean() as AllocationAwareThreadMXBean
+            threads.isThreadAllocatedMemorySupported.shouldBeTrue()
+            threads.isThreadAllocatedMemoryEnabled = true
+            val environment = createEnvironment()
+            val recorder = AllocationRecorder(threads)
+            val simulation = Engine(
+                environment,
+                WARMUP_STEPS + MEASURED_STEPS + 1,
+                Time.INFINITY,
+                PrimitiveIndexedPriorityQueue(),
+                CompactDependencyGraph(environment),
+            )
+            simulation.addOutputMonitor(recorder)
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            recorder.allocatedBytes shouldBe 0L
+        }
+        "with the default scheduler, graph, and time distributions, steps should only allocate the clock" {
+            val threads = ManagementFactory.getThreadMXBean() as AllocationAwareThreadMXBean
+            threads.isThreadAllocatedMemorySupported.shouldBeTrue()
+            threads.isThreadAllocatedMemoryEnabled = true
+            val environment = createEnvironment { randomGenerator, index ->
+                when (index) {
+                    0 -> DiracComb(DoubleTime(), 1 / PERIOD)
+                    else -> ExponentialTime(1 / PERIOD, randomGenerator)
+                }
+            }
+            val recorder = AllocationRecorder(threads)
+            val simulation = Engine(environment, WARMUP_STEPS + MEASURED_STEPS + 1)
+            simulation.addOutputMonitor(recorder)
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            recorder.clockAdvances shouldBeGreaterThan 0L
+            recorder.allocatedBytes shouldBe recorder.clockAdvances * recorder.timeSize
+        }
+    }
+) {
+    /**
+     * Records the bytes allocated by the simulation thread between [WARMUP_STEPS] and the last measured step,
+     * and how many times the simulation clock moved to a new [Time] in the meantime.
+     */
+    private class AllocationRecorder(
+        private val threads: AllocationAwareThreadMXBean,
+    ) : OutputMonitor<Double, Euclidean2DPosition> {
+
+        private var start = 0L
+        private var clock: Time? = null
+        var allocatedBytes = -1L
+            private set
+        var clockAdvances = 0L
+            private set
+
+        /*
+         * Reading the counter may allocate on its own: its cost gets measured and discounted.
+         */
+        private val measurementCost: Long = run {
+            repeat(CALIBRATION_ROUNDS) { currentThreadAllocatedBytes() }
+            val first = currentThreadAllocatedBytes()
+            currentThreadAllocatedBytes() - first
+        }
+
+        /*
+         * The bytes taken by a single DoubleTime.
+         */
+        val timeSize: Long = run {
+            val times = arrayOfNulls<Time>(CALIBRATION_TIMES)
+            val first = currentThreadAllocatedBytes()
+            for (index in times.indices) {
+                times[index] = DoubleTime(index.toDouble())
+            }
+            (currentThreadAllocatedBytes() - first - measurementCost) / times.size
+        }
+
+        private fun currentThreadAllocatedBytes(): Long = threads.getThreadAllocatedBytes(Thread.currentThread().id)
+
+        override fun stepDone(
+            environment: Environment<Double, Euclidean2DPosition>,
+            reaction: Actionable<Double>?,
+            time: Time,
+            step: Long,
+        ) {
+            when (step) {
+                WARMUP_STEPS -> start = currentThreadAllocatedBytes()
+                WARMUP_STEPS + MEASURED_STEPS ->
+                    allocatedBytes = currentThreadAllocatedBytes() - start - measurementCost
+            }
+            if (step > WARMUP_STEPS && step <= WARMUP_STEPS + MEASURED_STEPS && time !== clock) {
+                clockAdvances++
+            }
+            clock = time
+        }
+    }
+
+    /**
+     * A time distribution whose occurrences are all computed in advance,
+     * one every [PERIOD] starting from [start].
+     */
+    private class PrecomputedOccurrences(start: Double) : AbstractDistribution<Double>(DoubleTime(start)) {
+
+        private val occurrences = Array<Time>(OCCURRENCES) { DoubleTime(start + (it + 1) * PERIOD) }
+        private var next = 0
+
+        override fun updateStatus(
+            currentTime: Time,
+            executed: Boolean,
+            param: Double,
+            environment: Environment<Double, *>,
+        ) {
+            if (executed) {
+                setNextOccurrence(occurrences[next++])
+            }
+        }
+
+        override fun getRate() = 1 / PERIOD
+
+        override fun cloneOnNewNode(destination: Node<Double>, currentTime: Time) =
+            throw UnsupportedOperationException()
+    }
+
+    /**
+     * A reaction doing nothing, yet depending on all the other reactions of its node.
+     */
+    private class Tick(
+        node: Node<Double>,
+        timeDistribution: TimeDistribution<Double>,
+    ) : AbstractReaction<Double>(node, timeDistribution) {
+
+        init {
+            addInboundDependency(Dependency.EVERYTHING)
+            addOutboundDependency(Dependency.EVERYTHING)
+        }
+
+        override fun updateInternalStatus(
+            currentTime: Time,
+            hasBeenExecuted: Boolean,
+            environment: Environment<Double, *>,
+        ) = Unit
+
+        override fun cloneOnNewNode(node: Node<Double>, currentTime: Time): Reaction<Double> =
+            throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private const val NODES = 50
+        private const val REACTIONS_PER_NODE = 3
+        private const val WARMUP_STEPS = 50_000L
+        private const val MEASURED_STEPS = 100_000L
+        private const val CALIBRATION_ROUNDS = 10
+        private const val CALIBRATION_TIMES = 1_000
+        private const val PERIOD = 1.0
+        private const val OCCURRENCES = ((WARMUP_STEPS + MEASURED_STEPS) / (NODES * REACTIONS_PER_NODE) + 10).toInt()
+
+        /*
+         * Every node gets REACTIONS_PER_NODE reactions, whose time distributions are built from their index.
+         */
+        private fun createEnvironment(
+            timeDistribution: (RandomGenerator, Int) -> TimeDistribution<Double> = { randomGenerator, _ ->
+                PrecomputedOccurrences(randomGenerator.nextDouble() * PERIOD)
+            },
+        ): Environment<Double, Euclidean2DPosition> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                repeat(REACTIONS_PER_NODE) {
+                    node.addReaction(Tick(node, timeDistribution(randomGenerator, it)))
+                }
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            return environment
+        }
+    }
+}
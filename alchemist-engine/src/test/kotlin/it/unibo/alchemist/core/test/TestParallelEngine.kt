@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.ParallelEngine
+import it.unibo.alchemist.core.interfaces.Simulation
+import it.unibo.alchemist.core.interfaces.Status
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.reactions.AbstractReaction
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Context
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Molecule
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Reaction
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import java.util.concurrent.TimeUnit
+
+class TestParallelEngine : StringSpec(
+    {
+        "the parallel engine should produce the same results of the sequential engine" {
+            val sequential = runScenario { Engine(it, STEPS) }
+            val parallel = runScenario { ParallelEngine(it, STEPS, Time.INFINITY, 4) }
+            parallel shouldBe sequential
+        }
+        "the parallel engine should match the sequential engine when simultaneous events share dependents" {
+            val sequential = traceLinkedScenario { Engine(it, STEPS) }
+            val parallel = traceLinkedScenario { ParallelEngine(it, STEPS, Time.INFINITY, 4) }
+            parallel shouldBe sequential
+        }
+        "the parallel engine should pause at the same step of the sequential engine" {
+            // Not a multiple of the nodes, so that the pause falls in the middle of a group of simultaneous events
+            val pauseStep = STEPS / 2 + NODES / 3
+            fun pausedAt(simulation: Simulation<Double, Euclidean2DPosition>): List<Any> {
+                simulation.goToStep(pauseStep)
+                val runner = Thread(simulation)
+                runner.start()
+                simulation.play()
+                simulation.waitFor(Status.PAUSED, 1, TimeUnit.MINUTES) shouldBe Status.PAUSED
+                val result = listOf(simulation.time, simulation.step)
+                simulation.terminate()
+                runner.join()
+                return result
+            }
+            val sequential = pausedAt(scenario { Engine(it, STEPS) })
+            val parallel = pausedAt(scenario { ParallelEngine(it, STEPS, Time.INFINITY, 4) })
+            parallel shouldBe sequential
+        }
+        "the parallel engine should terminate at the same step of the sequential engine" {
+            fun terminated(simulation: Simulation<Double, Euclidean2DPosition>): List<Any> {
+                simulation.environment.addTerminator { it.simulation.step >= STEPS / 2 + NODES / 3 }
+                simulation.play()
+                simulation.run()
+                simulation.error.shouldBeEmpty()
+                return listOf(simulation.time, simulation.step)
+            }
+            val sequential = terminated(scenario { Engine(it, STEPS) })
+            val parallel = terminated(scenario { ParallelEngine(it, STEPS, Time.INFINITY, 4) })
+            parallel shouldBe sequential
+        }
+    }
+) {
+    /**
+     * A reaction reading the [molecule] on all nodes, executed with a propensity equal to its total amount.
+     */
+    private class GlobalCount(
+        node: Node<Double>,
+        private val molecule: Molecule,
+        timeDistribution: ExponentialTime<Double>,
+    ) : AbstractReaction<Double>(node, timeDistribution) {
+
+        init {
+            addInboundDependency(molecule)
+            setInputContext(Context.GLOBAL)
+        }
+
+        private var total = 0.0
+
+        override val rate: Double get() = total
+
+        override fun updateInternalStatus(
+            currentTime: Time,
+            hasBeenExecuted: Boolean,
+            environment: Environment<Double, *>,
+        ) {
+            total = environment.nodes.sumOf { it.getConcentration(molecule) }
+        }
+
+        override fun cloneOnNewNode(node: Node<Double>, currentTime: Time): Reaction<Double> =
+            throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private const val NODES = 50
+        private const val STEPS = 20_000L
+        private const val CHAIN = 20
+        private const val LINKING_RANGE = 1.5
+        private const val ISOLATION = 10.0
+        private val GLOBAL_SOURCES = listOf(CHAIN, CHAIN + 1)
+
+        private fun scenario(
+            engineFactory: (Environment<Double, Euclidean2DPosition>) -> Simulation<Double, Euclidean2DPosition>,
+        ): Simulation<Double, Euclidean2DPosition> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                listOf(
+                    DiracComb<Double>(1.0) to "[] --> [a]",
+                    ExponentialTime<Double>(1.0, randomGenerator) to "[a] --> [b]",
+                ).forEach { (timeDistribution, program) ->
+                    node.addReaction(
+                        incarnation.createReaction(randomGenerator, environment, node, timeDistribution, program)
+                    )
+                }
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            return engineFactory(environment)
+        }
+
+        /*
+         * A chain of linked nodes, whose simultaneous productions are all read by the neighborhood reactions of the
+         * adjacent nodes, and isolated nodes, whose simultaneous productions can be executed concurrently.
+         * Two isolated nodes produce a molecule read by a global reaction.
+         * Neighborhood reactions start with zero propensity, so that the order of the updates changes the draws.
+         * Returns the time and the executed reaction of every step, along with the final concentrations.
+         */
+        private fun traceLinkedScenario(
+            engineFactory: (Environment<Double, Euclidean2DPosition>) -> Simulation<Double, Euclidean2DPosition>,
+        ): List<Any> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = ConnectWithinDistance(LINKING_RANGE)
+            val a = incarnation.createMolecule("a")
+            val b = incarnation.createMolecule("b")
+            val c = incarnation.createMolecule("c")
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                val programs = listOf(
+                    DiracComb<Double>(1.0) to "[] --> [a]",
+                    ExponentialTime<Double>(1.0, randomGenerator) to "[a in neighbor] --> [b]",
+                ) + if (index in GLOBAL_SOURCES) listOf(DiracComb<Double>(1.0) to "[] --> [c]") else emptyList()
+                programs.forEach { (timeDistribution, program) ->
+                    node.addReaction(
+                        incarnation.createReaction(randomGenerator, environment, node, timeDistribution, program)
+                    )
+                }
+                if (index == 0) {
+                    node.addReaction(GlobalCount(node, c, ExponentialTime(1.0, randomGenerator)))
+                }
+                val x = if (index < CHAIN) index.toDouble() else CHAIN + index * ISOLATION
+                environment.addNode(node, environment.makePosition(x, 0.0))
+            }
+            val simulation = engineFactory(environment)
+            val trace = mutableListOf<Any>()
+            simulation.addOutputMonitor(
+                object : OutputMonitor<Double, Euclidean2DPosition> {
+                    override fun stepDone(
+                        environment: Environment<Double, Euclidean2DPosition>,
+                        reaction: Actionable<Double>?,
+                        time: Time,
+                        step: Long,
+                    ) {
+                        val node = (reaction as Reaction<Double>).node
+                        trace += listOf(time.toDouble(), node.id, node.reactions.indexOf(reaction))
+                    }
+                }
+            )
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            return trace + environment.nodes.map {
+                listOf(it.getConcentration(a), it.getConcentration(b), it.getConcentration(c))
+            }
+        }
+
+        private fun runScenario(
+            engineFactory: (Environment<Double, Euclidean2DPosition>) -> Simulation<Double, Euclidean2DPosition>,
+        ): List<Any> {
+            val simulation = scenario(engineFactory)
+            val environment = simulation.environment
+            val incarnation = environment.incarnation
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            val a = incarnation.createMolecule("a")
+            val b = incarnation.createMolecule("b")
+            return listOf(simulation.time, simulation.step) +
+                environment.nodes.map { it.getConcentration(a) to it.getConcentration(b) }
+        }
+    }
+}
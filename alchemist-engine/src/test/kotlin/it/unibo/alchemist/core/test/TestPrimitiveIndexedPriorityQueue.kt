@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldBeEmpty
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.unibo.alchemist.core.implementations.ArrayIndexedPriorityQueue
+import it.unibo.alchemist.core.implementations.PrimitiveIndexedPriorityQueue
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestPrimitiveIndexedPriorityQueue : StringSpec(
+    {
+        "the queue should behave as the array-based heap, ties included" {
+            val random = MersenneTwister(1)
+            val environment = environment()
+            val pool = reactions(environment, POOL)
+            val reference = ArrayIndexedPriorityQueue<Double>()
+            val queue = PrimitiveIndexedPriorityQueue<Double>()
+            // Holding the same reactions, whose handles are taken by the first queue: it must look them up
+            val second = PrimitiveIndexedPriorityQueue<Double>()
+            val scheduled = mutableListOf<Actionable<Double>>()
+            val unscheduled = pool.toMutableList()
+            repeat(OPERATIONS) {
+                when (random.nextInt(4)) {
+                    0 -> if (unscheduled.isNotEmpty()) {
+                        val reaction = unscheduled.removeAt(random.nextInt(unscheduled.size))
+                        reference.addReaction(reaction)
+                        queue.addReaction(reaction)
+                        second.addReaction(reaction)
+                        scheduled += reaction
+                    }
+                    1 -> if (scheduled.isNotEmpty()) {
+                        val reaction = scheduled.removeAt(random.nextInt(scheduled.size))
+                        reference.removeReaction(reaction)
+                        queue.removeReaction(reaction)
+                        second.removeReaction(reaction)
+                        unscheduled += reaction
+                    }
+                    // Either the next reaction, as the engine does after executing it, or any other one
+                    else -> if (scheduled.isNotEmpty()) {
+                        val reaction = if (random.nextBoolean()) {
+                            checkNotNull(queue.next)
+                        } else {
+                            scheduled[random.nextInt(scheduled.size)]
+                        }
+                        // Integer times in a small range, so that many reactions are simultaneous
+                        reaction.update(DoubleTime(random.nextInt(TIMES).toDouble()), true, environment)
+                        reference.updateReaction(reaction)
+                        queue.updateReaction(reaction)
+                        second.updateReaction(reaction)
+                    }
+                }
+                queue.next shouldBeSameInstanceAs reference.next
+                second.next shouldBeSameInstanceAs reference.next
+                queue.nextSimultaneous shouldContainExactlyInAnyOrder reference.nextSimultaneous
+                second.nextSimultaneous shouldContainExactlyInAnyOrder reference.nextSimultaneous
+            }
+        }
+        "the next reactions should be the simultaneous ones with the lowest time" {
+            val environment = environment()
+            val queue = PrimitiveIndexedPriorityQueue<Double>()
+            val pool = reactions(environment, POOL)
+            pool.forEachIndexed { index, reaction ->
+                reaction.update(DoubleTime((index % TIMES).toDouble()), true, environment)
+                queue.addReaction(reaction)
+            }
+            val expected = pool.filter { it.tauAsDouble == pool.minOf(Actionable<Double>::tauAsDouble) }
+            queue.nextSimultaneous shouldContainExactlyInAnyOrder expected
+            pool.forEach(queue::removeReaction)
+            queue.next.shouldBeNull()
+            queue.nextSimultaneous.shouldBeEmpty()
+        }
+        "handles should be reused once reactions get removed" {
+            val environment = environment()
+            val queue = PrimitiveIndexedPriorityQueue<Double>()
+            val pool = reactions(environment, POOL)
+            repeat(ROUNDS) { round ->
+                pool.forEach(queue::addReaction)
+                pool.forEach { reaction ->
+                    reaction.update(DoubleTime(round.toDouble() + reaction.tauAsDouble), true, environment)
+                    queue.updateReaction(reaction)
+                }
+                queue.next?.tauAsDouble shouldBe pool.minOf(Actionable<Double>::tauAsDouble)
+                pool.forEach(queue::removeReaction)
+                queue.next.shouldBeNull()
+            }
+        }
+        "adding twice or removing reactions not scheduled should fail, updating them should not" {
+            val environment = environment()
+            val (scheduled, other) = reactions(environment, 2)
+            val queue = PrimitiveIndexedPriorityQueue<Double>()
+            queue.addReaction(scheduled)
+            shouldThrow<IllegalArgumentException> { queue.addReaction(scheduled) }
+            shouldThrow<IllegalArgumentException> { queue.removeReaction(other) }
+            queue.updateReaction(other)
+            queue.nextSimultaneous shouldBe listOf(scheduled)
+        }
+        "handles should be stored on the reactions while they are scheduled" {
+            val environment = environment()
+            val queue = PrimitiveIndexedPriorityQueue<Double>()
+            val pool = reactions(environment, POOL)
+            pool.forEach { it.schedulerHandle shouldBe -1 }
+            pool.forEach(queue::addReaction)
+            pool.map { it.schedulerHandle }.toSet() shouldBe pool.indices.toSet()
+            pool.forEach(queue::removeReaction)
+            pool.forEach { it.schedulerHandle shouldBe -1 }
+        }
+    }
+) {
+    companion object {
+        private const val POOL = 100
+        private const val OPERATIONS = 20_000
+        private const val TIMES = 10
+        private const val ROUNDS = 5
+
+        private fun environment() = Continuous2DEnvironment(BiochemistryIncarnation()).apply {
+            linkingRule = NoLinks()
+        }
+
+        /*
+         * Reactions scheduled at time zero, and then one time unit after the time they get updated at.
+         */
+        private fun reactions(
+            environment: Environment<Double, Euclidean2DPosition>,
+            count: Int,
+        ): List<Actionable<Double>> {
+            val random = MersenneTwister(1)
+            val incarnation = environment.incarnation
+            return List(count) { index ->
+                val node = incarnation.createNode(random, environment, null)
+                environment.addNode(node, environment.makePosition(index, 0))
+                incarnation.createReaction(random, environment, node, DiracComb(DoubleTime(), 1.0), "[] --> [a]")
+            }
+        }
+    }
+}
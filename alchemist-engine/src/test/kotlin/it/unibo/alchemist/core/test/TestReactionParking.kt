@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.ints.shouldBeLessThan
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.ArrayIndexedPriorityQueue
+import it.unibo.alchemist.core.implementations.CalendarQueue
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.JGraphTDependencyGraph
+import it.unibo.alchemist.core.implementations.PrimitiveIndexedPriorityQueue
+import it.unibo.alchemist.core.interfaces.Scheduler
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.actions.AbstractAction
+import it.unibo.alchemist.model.implementations.actions.RemoveNode
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.reactions.Event
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Context
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Molecule
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Reaction
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import java.util.Collections
+import java.util.IdentityHashMap
+
+class TestReactionParking : StringSpec(
+    {
+        "reactions that can not fire should be kept out of the scheduler, and get back when enabled" {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            val sources: MutableSet<Actionable<Double>> = Collections.newSetFromMap(IdentityHashMap())
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                // One source every ten time units, many consumers that are dormant most of the time
+                val phase = DoubleTime(randomGenerator.nextDouble() * PERIOD)
+                val source = incarnation.createReaction(
+                    randomGenerator,
+                    environment,
+                    node,
+                    DiracComb(phase, 1 / PERIOD),
+                    "[] --> [a]",
+                )
+                sources += source
+                node.addReaction(source)
+                repeat(CONSUMERS) {
+                    node.addReaction(
+                        incarnation.createReaction(
+                            randomGenerator,
+                            environment,
+                            node,
+                            ExponentialTime(1.0, randomGenerator),
+                            "[a] --> [b$it]",
+                        )
+                    )
+                }
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            val scheduler = TrackingScheduler<Double>()
+            val simulation = Engine(
+                environment,
+                Long.MAX_VALUE,
+                DoubleTime(SIMULATED_TIME),
+                scheduler,
+                JGraphTDependencyGraph(environment),
+            )
+            var maxScheduled = 0
+            var sourceFirings = 0
+            simulation.addOutputMonitor(
+                object : OutputMonitor<Double, Euclidean2DPosition> {
+                    override fun stepDone(
+                        environment: Environment<Double, Euclidean2DPosition>,
+                        reaction: Actionable<Double>?,
+                        time: Time,
+                        step: Long,
+                    ) {
+                        scheduler.tracked.count { it.tauAsDouble.isInfinite() } shouldBe 0
+                        maxScheduled = maxOf(maxScheduled, scheduler.tracked.size)
+                        if (reaction != null && reaction in sources) {
+                            sourceFirings++
+                        }
+                    }
+                }
+            )
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            // Only the sources and the consumers of the molecules just produced are ever scheduled
+            maxScheduled shouldBeLessThan NODES * (CONSUMERS + 1) / 2
+            val a = incarnation.createMolecule("a")
+            val produced = environment.nodes.sumOf { node ->
+                node.getConcentration(a) + (0 until CONSUMERS).sumOf {
+                    node.getConcentration(incarnation.createMolecule("b$it"))
+                }
+            }
+            // Every molecule produced is either still there or consumed
+            produced shouldBe sourceFirings.toDouble()
+        }
+        "reactions removed while executing should not be rescheduled" {
+            listOf<() -> Scheduler<Double>>(
+                { ArrayIndexedPriorityQueue() },
+                { PrimitiveIndexedPriorityQueue() },
+                { CalendarQueue() },
+            ).forEach { schedulerFactory ->
+                val randomGenerator = MersenneTwister(1)
+                val incarnation = BiochemistryIncarnation()
+                val environment = Continuous2DEnvironment(incarnation)
+                environment.linkingRule = NoLinks()
+                val a = incarnation.createMolecule("a")
+                repeat(NODES) { index ->
+                    val node = incarnation.createNode(randomGenerator, environment, null)
+                    val source = incarnation.createReaction(
+                        randomGenerator,
+                        environment,
+                        node,
+                        DiracComb(1.0),
+                        "[] --> [a]",
+                    )
+                    val consumer = incarnation.createReaction(
+                        randomGenerator,
+                        environment,
+                        node,
+                        ExponentialTime(1.0, randomGenerator),
+                        "[a] --> [b]",
+                    )
+                    // Removes the consumer while changing its input: the consumer is among the dependencies to update
+                    val removeConsumer = Event(node, DiracComb(DoubleTime(index.toDouble()), 1.0))
+                    removeConsumer.actions = listOf(RemoveReaction(environment, node, consumer, a))
+                    // Removes its own node: the reaction being processed is no longer scheduled
+                    val removeNode = Event(node, DiracComb(DoubleTime(NODES + index.toDouble()), 1.0))
+                    removeNode.actions = listOf(RemoveNode(environment, node))
+                    listOf(source, consumer, removeConsumer, removeNode).forEach(node::addReaction)
+                    environment.addNode(node, environment.makePosition(index, 0))
+                }
+                val scheduler = TrackingScheduler(schedulerFactory())
+                val simulation = Engine(
+                    environment,
+                    Long.MAX_VALUE,
+                    DoubleTime(SIMULATED_TIME),
+                    scheduler,
+                    JGraphTDependencyGraph(environment),
+                )
+                simulation.addOutputMonitor(
+                    object : OutputMonitor<Double, Euclidean2DPosition> {
+                        override fun stepDone(
+                            environment: Environment<Double, Euclidean2DPosition>,
+                            reaction: Actionable<Double>?,
+                            time: Time,
+                            step: Long,
+                        ) {
+                            // Only the reactions of the nodes still in the environment can be scheduled
+                            scheduler.tracked.all { it is Reaction<*> && it.node in environment.nodes } shouldBe true
+                        }
+                    }
+                )
+                simulation.play()
+                simulation.run()
+                simulation.error.shouldBeEmpty()
+                environment.nodeCount shouldBe 0
+                scheduler.tracked.isEmpty() shouldBe true
+            }
+        }
+    }
+) {
+    /**
+     * Tracks the reactions it holds.
+     */
+    private class TrackingScheduler<T>(
+        private val delegate: Scheduler<T> = ArrayIndexedPriorityQueue(),
+    ) : Scheduler<T> by delegate {
+
+        val tracked: MutableSet<Actionable<T>> = Collections.newSetFromMap(IdentityHashMap())
+
+        override fun addReaction(reaction: Actionable<T>) {
+            tracked += reaction
+            delegate.addReaction(reaction)
+        }
+
+        override fun removeReaction(reaction: Actionable<T>) {
+            tracked -= reaction
+            delegate.removeReaction(reaction)
+        }
+
+        override fun getNextSimultaneous(): List<Actionable<T>> = delegate.nextSimultaneous
+    }
+
+    /**
+     * Sets a molecule concentration, and removes a reaction from its node.
+     */
+    private class RemoveReaction(
+        private val environment: Environment<Double, *>,
+        node: Node<Double>,
+        private val target: Reaction<Double>,
+        private val molecule: Molecule,
+    ) : AbstractAction<Double>(node) {
+
+        init {
+            declareDependencyTo(molecule)
+        }
+
+        override fun execute() {
+            setConcentration(molecule, 1.0)
+            if (target in node.reactions) {
+                node.removeReaction(target)
+                environment.simulation.reactionRemoved(target)
+            }
+        }
+
+        override fun getContext(): Context = Context.LOCAL
+
+        override fun cloneAction(node: Node<Double>, reaction: Reaction<Double>): Nothing =
+            throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private const val NODES = 20
+        private const val CONSUMERS = 10
+        private const val PERIOD = 10.0
+        private const val SIMULATED_TIME = 1000.0
+    }
+}
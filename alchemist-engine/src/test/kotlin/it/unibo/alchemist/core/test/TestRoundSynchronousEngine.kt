@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.doubles.plusOrMinus
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.RoundSynchronousEngine
+import it.unibo.alchemist.core.interfaces.Simulation
+import it.unibo.alchemist.core.interfaces.Status
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.actions.AbstractAction
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.reactions.Event
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Context
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Reaction
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import java.util.Collections
+import java.util.concurrent.TimeUnit
+
+class TestRoundSynchronousEngine : StringSpec(
+    {
+        "the round-synchronous engine should produce the same results regardless of the parallelism" {
+            val sequential = runScenario(parallelism = 1)
+            val parallel = runScenario(parallelism = 4)
+            parallel shouldBe sequential
+        }
+        "all the computations of a round should be executed" {
+            val results = runScenario(parallelism = 4)
+            // [] --> [a] fires once per round on every node, [a] --> [b] can only consume what has been produced
+            val produced = results.drop(2).sumOf { pair -> (pair as Pair<*, *>).toList().sumOf { it as Double } }
+            // The last step may go past the final time by one event
+            produced shouldBe (NODES * ROUNDS + 0.5 plusOrMinus 0.5)
+        }
+        "the round-synchronous engine should pause in the middle of a round, and complete it once resumed" {
+            fun pausedAt(simulation: Simulation<Double, Euclidean2DPosition>, resume: Boolean): Long {
+                // Pauses once, unlike goToStep
+                simulation.addOutputMonitor(
+                    object : OutputMonitor<Double, Euclidean2DPosition> {
+                        override fun stepDone(
+                            environment: Environment<Double, Euclidean2DPosition>,
+                            reaction: Actionable<Double>?,
+                            time: Time,
+                            step: Long,
+                        ) {
+                            if (step == STOP_STEP) {
+                                simulation.pause()
+                            }
+                        }
+                    }
+                )
+                val runner = Thread(simulation)
+                runner.start()
+                simulation.play()
+                simulation.waitFor(Status.PAUSED, 1, TimeUnit.MINUTES) shouldBe Status.PAUSED
+                val step = simulation.step
+                if (resume) simulation.play() else simulation.terminate()
+                runner.join()
+                simulation.error.shouldBeEmpty()
+                return step
+            }
+            val sequential = pausedAt(scenario { Engine(it, Long.MAX_VALUE, FINAL_TIME) }, resume = false)
+            val roundSynchronous = scenario { RoundSynchronousEngine(it, Long.MAX_VALUE, FINAL_TIME, 4) }
+            pausedAt(roundSynchronous, resume = true) shouldBe sequential
+            resultsOf(roundSynchronous) shouldBe runScenario(parallelism = 4)
+        }
+        "the round-synchronous engine should terminate at the same step of the sequential engine" {
+            fun terminatedAt(simulation: Simulation<Double, Euclidean2DPosition>): Long {
+                simulation.environment.addTerminator { it.simulation.step >= STOP_STEP }
+                simulation.play()
+                simulation.run()
+                simulation.error.shouldBeEmpty()
+                return simulation.step
+            }
+            val sequential = terminatedAt(scenario { Engine(it, Long.MAX_VALUE, FINAL_TIME) })
+            val roundSynchronous = terminatedAt(scenario { RoundSynchronousEngine(it, Long.MAX_VALUE, FINAL_TIME, 4) })
+            roundSynchronous shouldBe sequential
+        }
+        "computations drawing from a shared random generator should run on the simulation thread" {
+            val threads = Collections.synchronizedSet(mutableSetOf<Thread>())
+            val simulation = scenario { environment ->
+                environment.nodes.forEach { node ->
+                    val event = Event(node, DiracComb(1.0))
+                    event.actions = listOf(RecordThread(node, threads))
+                    node.addReaction(event)
+                }
+                RoundSynchronousEngine(environment, Long.MAX_VALUE, FINAL_TIME, 4)
+            }
+            val runner = Thread(simulation)
+            runner.start()
+            simulation.play()
+            runner.join()
+            simulation.error.shouldBeEmpty()
+            threads shouldBe setOf(runner)
+        }
+    }
+) {
+    /**
+     * Records the thread executing it, declaring to draw from a shared random generator.
+     */
+    private class RecordThread(
+        node: Node<Double>,
+        private val threads: MutableSet<Thread>,
+    ) : AbstractAction<Double>(node) {
+
+        override fun execute() {
+            threads += Thread.currentThread()
+        }
+
+        override fun getContext(): Context = Context.LOCAL
+
+        override fun usesSharedRandomGenerator() = true
+
+        override fun cloneAction(node: Node<Double>, reaction: Reaction<Double>): Nothing =
+            throw UnsupportedOperationException()
+    }
+
+    companion object {
+        private const val NODES = 50
+        private const val ROUNDS = 100
+        // Not a multiple of the nodes, so that the simulation stops in the middle of a round
+        private const val STOP_STEP = NODES * 20L + NODES / 3
+
+        // The rounds at times 1, 2, ..., ROUNDS get executed
+        private val FINAL_TIME = DoubleTime(ROUNDS + 0.5)
+
+        private fun scenario(
+            engineFactory: (Environment<Double, Euclidean2DPosition>) -> Simulation<Double, Euclidean2DPosition>,
+        ): Simulation<Double, Euclidean2DPosition> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(NODES) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                listOf(
+                    DiracComb<Double>(1.0) to "[] --> [a]",
+                    ExponentialTime<Double>(1.0, randomGenerator) to "[a] --> [b]",
+                ).forEach { (timeDistribution, program) ->
+                    node.addReaction(
+                        incarnation.createReaction(randomGenerator, environment, node, timeDistribution, program)
+                    )
+                }
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            return engineFactory(environment)
+        }
+
+        private fun resultsOf(simulation: Simulation<Double, Euclidean2DPosition>): List<Any> {
+            val incarnation = simulation.environment.incarnation
+            val a = incarnation.createMolecule("a")
+            val b = incarnation.createMolecule("b")
+            return listOf(simulation.time, simulation.step) +
+                simulation.environment.nodes.map { it.getConcentration(a) to it.getConcentration(b) }
+        }
+
+        private fun runScenario(parallelism: Int): List<Any> {
+            val simulation = scenario { RoundSynchronousEngine(it, Long.MAX_VALUE, FINAL_TIME, parallelism) }
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            return resultsOf(simulation)
+        }
+    }
+}
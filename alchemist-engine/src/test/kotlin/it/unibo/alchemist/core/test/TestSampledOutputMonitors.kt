@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactly
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.boundary.interfaces.Sampling
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestSampledOutputMonitors : StringSpec(
+    {
+        "time-sampled monitors should observe the first step of every time interval" {
+            val everyStep = StepRecorder()
+            val sampled = StepRecorder()
+            runSimulation(everyStep to Sampling.everyStep(), sampled to Sampling.everyTime(TIME_INTERVAL))
+            var lastSample = -1L
+            val expected = everyStep.steps.filter { (_, time) ->
+                val sample = (time / TIME_INTERVAL).toLong()
+                (sample > lastSample).also { if (it) lastSample = sample }
+            }
+            sampled.steps shouldContainExactly expected
+            sampled.lifecycle shouldBe listOf("initialized", "finished")
+        }
+        "step-sampled monitors should observe the steps multiple of the interval" {
+            val sampled = StepRecorder()
+            runSimulation(sampled to Sampling.everySteps(STEP_INTERVAL))
+            sampled.steps.map { it.first } shouldContainExactly (0 until STEPS step STEP_INTERVAL).toList()
+            sampled.lifecycle shouldBe listOf("initialized", "finished")
+        }
+    }
+) {
+    private class StepRecorder : OutputMonitor<Double, Euclidean2DPosition> {
+
+        val steps = mutableListOf<Pair<Long, Double>>()
+        val lifecycle = mutableListOf<String>()
+
+        override fun initialized(environment: Environment<Double, Euclidean2DPosition>) {
+            lifecycle += "initialized"
+        }
+
+        override fun stepDone(
+            environment: Environment<Double, Euclidean2DPosition>,
+            reaction: Actionable<Double>?,
+            time: Time,
+            step: Long,
+        ) {
+            steps += step to time.toDouble()
+        }
+
+        override fun finished(environment: Environment<Double, Euclidean2DPosition>, time: Time, step: Long) {
+            lifecycle += "finished"
+        }
+    }
+
+    companion object {
+        private const val STEPS = 10_000L
+        private const val STEP_INTERVAL = 128L
+        private const val TIME_INTERVAL = 0.7
+
+        private fun runSimulation(vararg monitors: Pair<OutputMonitor<Double, Euclidean2DPosition>, Sampling>) {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(10) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                node.addReaction(
+                    incarnation.createReaction(
+                        randomGenerator,
+                        environment,
+                        node,
+                        ExponentialTime(1.0, randomGenerator),
+                        "[] --> [a]",
+                    )
+                )
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            val simulation = Engine(environment, STEPS, Time.INFINITY)
+            monitors.forEach { (monitor, sampling) -> simulation.addOutputMonitor(monitor, sampling) }
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+        }
+    }
+}
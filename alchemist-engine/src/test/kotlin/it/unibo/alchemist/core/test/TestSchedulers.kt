@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.core.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.ArrayIndexedPriorityQueue
+import it.unibo.alchemist.core.implementations.CalendarQueue
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.PrimitiveIndexedPriorityQueue
+import it.unibo.alchemist.core.interfaces.Scheduler
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.interfaces.Actionable
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+
+/**
+ * Checks that all the [Scheduler] implementations process the same events in the same order.
+ * Their throughput is measured by the `benchmark` task, outside the test suite.
+ */
+class TestSchedulers : StringSpec(
+    {
+        "all schedulers should process the same sequence of events" {
+            val expected = runScenario(ArrayIndexedPriorityQueue(), nodes = 200, steps = 20_000)
+            schedulers.forEach { scheduler ->
+                runScenario(scheduler(), nodes = 200, steps = 20_000) shouldBe expected
+            }
+        }
+    }
+) {
+    companion object {
+        private val schedulers: List<() -> Scheduler<Double>> = listOf(
+            { ArrayIndexedPriorityQueue() },
+            { PrimitiveIndexedPriorityQueue() },
+            { CalendarQueue() },
+        )
+
+        private fun runScenario(scheduler: Scheduler<Double>, nodes: Int, steps: Long): List<Double> {
+            val randomGenerator = MersenneTwister(1)
+            val incarnation = BiochemistryIncarnation()
+            val environment = Continuous2DEnvironment(incarnation)
+            environment.linkingRule = NoLinks()
+            repeat(nodes) { index ->
+                val node = incarnation.createNode(randomGenerator, environment, null)
+                node.addReaction(
+                    incarnation.createReaction(
+                        randomGenerator,
+                        environment,
+                        node,
+                        ExponentialTime(1.0, randomGenerator),
+                        "[] --> [a]",
+                    )
+                )
+                environment.addNode(node, environment.makePosition(index, 0))
+            }
+            val times = mutableListOf<Double>()
+            val simulation = Engine(environment, steps, Time.INFINITY, scheduler)
+            simulation.addOutputMonitor(
+                object : OutputMonitor<Double, Euclidean2DPosition> {
+                    override fun stepDone(
+                        environment: Environment<Double, Euclidean2DPosition>,
+                        reaction: Actionable<Double>?,
+                        time: Time,
+                        step: Long,
+                    ) {
+                        times += time.toDouble()
+                    }
+                }
+            )
+            simulation.play()
+            simulation.run()
+            simulation.error.shouldBeEmpty()
+            return times
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.positions
+
+import javax.annotation.Nonnull
+
+/**
+ * A position in a tridimensional Euclidean space.
+ */
+class Euclidean3DPosition : AbstractEuclideanPosition<Euclidean3DPosition> {
+    /**
+     * @param xp
+     * The X coordinate
+     * @param yp
+     * The Y coordinate
+     * @param zp
+     * The Z coordinate
+     */
+    constructor(xp: Double, yp: Double, zp: Double) : super(false, xp, yp, zp)
+
+    /**
+     * @param c an array of length 3 containing the coordinates
+     */
+    constructor(c: DoubleArray) : super(false, *c) {
+        require(c.size == 3) { "The array must have exactly three elements." }
+    }
+
+    /**
+     * The X coordinate.
+     */
+    val x: Double
+        get() = getCoordinate(0)
+
+    /**
+     * The Y coordinate.
+     */
+    val y: Double
+        get() = getCoordinate(1)
+
+    /**
+     * The Z coordinate.
+     */
+    val z: Double
+        get() = getCoordinate(2)
+
+    override fun div(other: Double) = Euclidean3DPosition(x / other, y / other, z / other)
+
+    override fun fromCoordinates(coordinates: DoubleArray): Euclidean3DPosition {
+        require(coordinates.size == 3) {
+            "Wrong number of coordinates for ${this::class.simpleName}: ${coordinates.toList()}"
+        }
+        return Euclidean3DPosition(coordinates[0], coordinates[1], coordinates[2])
+    }
+
+    /**
+     * In three dimensions infinitely many directions are normal to a vector:
+     * returns the one lying on the XY plane, or on the YZ plane if this vector is parallel to the Z axis.
+     */
+    @Nonnull
+    override fun normal(): Euclidean3DPosition = when {
+        x == 0.0 && y == 0.0 -> Euclidean3DPosition(0.0, -z, y)
+        else -> Euclidean3DPosition(-y, x, 0.0)
+    }
+
+    override fun normalized(): Euclidean3DPosition = this / magnitude
+
+    override fun times(other: Double) = Euclidean3DPosition(x * other, y * other, z * other)
+
+    override val zero: Euclidean3DPosition get() = Companion.zero
+
+    companion object {
+        private const val serialVersionUID = 1L
+
+        /**
+         * Origin.
+         */
+        val zero = Euclidean3DPosition(0.0, 0.0, 0.0)
+    }
+}
@@ -26,20 +26,72 @@ import it.unibo.alchemist.model.interfaces.geometry.euclidean2d.Euclidean2DTrans
 import it.unibo.alchemist.model.interfaces.geometry.euclidean2d.Segment2D
 import it.unibo.alchemist.model.interfaces.Node.Companion.asPropertyOrNull
 import it.unibo.alchemist.model.interfaces.properties.AreaProperty
+import org.danilopianini.util.FlexibleQuadTree
+import org.danilopianini.util.SpatialIndex
+import java.util.function.Consumer
+import java.util.function.Predicate
+import kotlin.math.sqrt
 
 /**
- * Implementation of [Physics2DEnvironment].
+ * Implementation of [Physics2DEnvironment], locating its nodes through the provided [spatialIndex].
+ * If [storeCoordinates] is true, the coordinates of the nodes are also kept in primitive arrays indexed by node id,
+ * so that [getX], [getY], [distanceSq] and the distance computations of the range queries
+ * do not dereference positions, at the cost of two doubles per node id.
  */
-open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPosition>) :
+open class Continuous2DEnvironment<T> @JvmOverloads constructor(
+    incarnation: Incarnation<T, Euclidean2DPosition>,
+    spatialIndex: SpatialIndex<Node<T>>,
+    storeCoordinates: Boolean = false,
+) :
     Euclidean2DEnvironment<T>,
-    Abstract2DEnvironment<T, Euclidean2DPosition>(incarnation),
+    Abstract2DEnvironment<T, Euclidean2DPosition>(incarnation, spatialIndex),
     Physics2DEnvironment<T> {
 
+    /**
+     * Builds an environment indexing its nodes in a [FlexibleQuadTree].
+     */
+    constructor(incarnation: Incarnation<T, Euclidean2DPosition>) : this(incarnation, FlexibleQuadTree())
+
+    /**
+     * Builds an environment indexing its nodes in the [spatialIndex] with the provided name:
+     * either [QUADTREE], a [FlexibleQuadTree], or [GRID], a [GridSpatialIndex].
+     * Grids use cells of side [cellSize] if provided, or as large as the range of the linking rule otherwise.
+     * Grids are faster for dense, roughly uniform deployments with a fixed communication range,
+     * quadtrees adapt better to irregular ones.
+     * See the primary constructor for [storeCoordinates].
+     */
+    @JvmOverloads
+    constructor(
+        incarnation: Incarnation<T, Euclidean2DPosition>,
+        spatialIndex: String,
+        cellSize: Double = Double.NaN,
+        storeCoordinates: Boolean = false,
+    ) : this(incarnation, spatialIndexNamed(spatialIndex, cellSize), storeCoordinates)
+
     companion object {
         @JvmStatic private val serialVersionUID: Long = 1L
 
+        /**
+         * Name selecting a [FlexibleQuadTree] as spatial index.
+         */
+        const val QUADTREE = "quadtree"
+
+        /**
+         * Name selecting a [GridSpatialIndex] as spatial index.
+         */
+        const val GRID = "grid"
+
         private val adimensional =
             AdimensionalShape<Euclidean2DPosition, Euclidean2DTransformation>(Euclidean2DEnvironment.origin)
+
+        private fun <T> spatialIndexNamed(name: String, cellSize: Double): SpatialIndex<Node<T>> =
+            when (name.lowercase()) {
+                QUADTREE -> FlexibleQuadTree()
+                GRID -> if (cellSize.isNaN()) GridSpatialIndex() else GridSpatialIndex(cellSize)
+                else -> throw IllegalArgumentException(
+                    "Unknown spatial index $name, available ones are: ${listOf(QUADTREE, GRID)}"
+                )
+            }
     }
 
     override val shapeFactory =
@@ -47,6 +99,8 @@ open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPos
     private val defaultHeading = Euclidean2DPosition(0.0, 0.0)
     private val nodeToHeading = mutableMapOf<Node<T>, Euclidean2DPosition>()
     private var largestShapeDiameter: Double = 0.0
+    private val positions = if (storeCoordinates) PositionStore2D() else null
+    private val grid = spatialIndex as? GridSpatialIndex<Node<T>>
 
     @Transient
     private val shapefulNodes: LoadingCache<Node<T>, Euclidean2DShape> =
@@ -56,9 +110,61 @@ open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPos
 
     override fun getNodesWithin(shape: Euclidean2DShape): List<Node<T>> = when {
         shape.diameter + largestShapeDiameter <= 0 -> emptyList()
-        else ->
-            getNodesWithinRange(shape.centroid, (shape.diameter + largestShapeDiameter) / 2)
-                .filter { shape.intersects(getShape(it)) }
+        else -> buildList {
+            val centroid = shape.centroid
+            forEachNodeWithinRange(centroid.x, centroid.y, (shape.diameter + largestShapeDiameter) / 2) {
+                if (shape.intersects(getShape(it))) {
+                    add(it)
+                }
+            }
+        }
+    }
+
+    /**
+     * When nodes are indexed in a [GridSpatialIndex], visits them straight from its cells,
+     * reading their coordinates without materializing positions or building collections.
+     */
+    override fun forEachNodeWithinRange(x: Double, y: Double, range: Double, action: Consumer<in Node<T>>) {
+        if (grid == null) {
+            super<Euclidean2DEnvironment>.forEachNodeWithinRange(x, y, range, action)
+        } else {
+            require(range > 0) { "Range query must be positive (provided: $range)" }
+            visitGrid(grid, x, y, range, action)
+        }
+    }
+
+    override fun visitNodesWithinRange(center: Euclidean2DPosition, range: Double, action: Consumer<in Node<T>>) =
+        if (grid == null) {
+            super.visitNodesWithinRange(center, range, action)
+        } else {
+            visitGrid(grid, center.x, center.y, range, action)
+        }
+
+    /**
+     * The x coordinate of [node], read without materializing its position if coordinates are stored.
+     */
+    fun getX(node: Node<T>): Double = positions?.x(node.id) ?: getPosition(node).x
+
+    /**
+     * The y coordinate of [node], read without materializing its position if coordinates are stored.
+     */
+    fun getY(node: Node<T>): Double = positions?.y(node.id) ?: getPosition(node).y
+
+    /**
+     * The squared distance between [node] and [other],
+     * computed without materializing their positions if coordinates are stored.
+     */
+    fun distanceSq(node: Node<T>, other: Node<T>): Double = positions?.distanceSq(node.id, other.id)
+        ?: (getPosition(node) - getPosition(other)).let { it.x * it.x + it.y * it.y }
+
+    override fun getDistanceBetweenNodes(n1: Node<T>, n2: Node<T>): Double =
+        if (positions == null) super.getDistanceBetweenNodes(n1, n2) else sqrt(distanceSq(n1, n2))
+
+    override fun getDistanceBetween(node: Node<T>, position: Euclidean2DPosition): Double =
+        positions?.distanceTo(node.id, position.x, position.y) ?: super.getDistanceBetween(node, position)
+
+    override fun nodePositionUpdated(node: Node<T>, position: Euclidean2DPosition) {
+        positions?.update(node.id, position.x, position.y)
     }
 
     override fun getHeading(node: Node<T>) = nodeToHeading.getOrPut(node) { defaultHeading }
@@ -89,6 +195,7 @@ open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPos
      */
     override fun nodeRemoved(node: Node<T>, neighborhood: Neighborhood<T>) {
         super.nodeRemoved(node, neighborhood)
+        positions?.remove(node.id)
         nodeToHeading.remove(node)
         val occupiesSpaceProperty = node.asPropertyOrNull<T, AreaProperty<T>>()
         if (occupiesSpaceProperty != null && largestShapeDiameter <= occupiesSpaceProperty.shape.diameter) {
@@ -111,6 +218,16 @@ open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPos
             super.moveNodeToPosition(node, newPosition)
         }
 
+    /**
+     * Nodes occupying an area are added one by one, as each of them may prevent the following ones from fitting.
+     */
+    override fun addNodes(nodesToAdd: Map<Node<T>, Euclidean2DPosition>): Int =
+        if (nodesToAdd.keys.any { it.asPropertyOrNull<T, AreaProperty<T>>() != null }) {
+            addNodesOneByOne(nodesToAdd)
+        } else {
+            super.addNodes(nodesToAdd)
+        }
+
     /**
      * A node should be added only if it doesn't collide with already existing nodes and fits in the environment's
      * limits.
@@ -157,6 +274,34 @@ open class Continuous2DEnvironment<T>(incarnation: Incarnation<T, Euclidean2DPos
             ?: desiredPosition
     }
 
+    /**
+     * When nodes are indexed in a [GridSpatialIndex], searches its cells in rings around the [center].
+     */
+    override fun getNearestNodes(center: Node<T>, k: Int, filter: Predicate<in Node<T>>): List<Node<T>> =
+        if (grid == null) {
+            super.getNearestNodes(center, k, filter)
+        } else {
+            val candidate = Predicate<Node<T>> { it != center && filter.test(it) }
+            grid.nearest(getX(center), getY(center), k, candidate, compareBy<Node<T>> { it.id })
+        }
+
+    /*
+     * Same bounding box and distance computation of the range queries on positions.
+     */
+    private fun visitGrid(
+        grid: GridSpatialIndex<Node<T>>,
+        x: Double,
+        y: Double,
+        range: Double,
+        action: Consumer<in Node<T>>,
+    ) = grid.forEachWithin(x - range, y - range, x + range, y + range) { node, nodeX, nodeY ->
+        val dx = nodeX - x
+        val dy = nodeY - y
+        if (sqrt(dx * dx + dy * dy) <= range) {
+            action.accept(node)
+        }
+    }
+
     /**
      * @returns all nodes that the given [node] would collide with while performing the [desiredMovement].
      * Such segment should connect the [node]'s current position and its desired position.
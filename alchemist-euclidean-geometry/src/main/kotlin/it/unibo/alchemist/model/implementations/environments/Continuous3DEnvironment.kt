@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.model.implementations.environments
+
+import it.unibo.alchemist.model.implementations.positions.Euclidean3DPosition
+import it.unibo.alchemist.model.interfaces.EuclideanEnvironment
+import it.unibo.alchemist.model.interfaces.Incarnation
+import it.unibo.alchemist.model.interfaces.Neighborhood
+import it.unibo.alchemist.model.interfaces.Node
+import org.danilopianini.util.SpatialIndex
+import java.util.function.Consumer
+import java.util.function.Predicate
+import kotlin.math.nextDown
+import kotlin.math.nextUp
+import kotlin.math.sqrt
+
+/**
+ * A tridimensional continuous Euclidean environment, locating its nodes through the provided [spatialIndex],
+ * by default a [Grid3DSpatialIndex] whose cells get sized after the range of the linking rule.
+ * Its bounds grow to include every position a node has been in.
+ */
+open class Continuous3DEnvironment<T> @JvmOverloads constructor(
+    incarnation: Incarnation<T, Euclidean3DPosition>,
+    spatialIndex: SpatialIndex<Node<T>> = Grid3DSpatialIndex(),
+) : AbstractEnvironment<T, Euclidean3DPosition>(incarnation, spatialIndex),
+    EuclideanEnvironment<T, Euclidean3DPosition> {
+
+    init {
+        require(spatialIndex.dimensions == DIMENSIONS) {
+            "A tridimensional environment requires a tridimensional index, got $spatialIndex"
+        }
+    }
+
+    private val grid = spatialIndex as? Grid3DSpatialIndex<Node<T>>
+    private val lowest = DoubleArray(DIMENSIONS) { Double.POSITIVE_INFINITY }
+    private val highest = DoubleArray(DIMENSIONS) { Double.NEGATIVE_INFINITY }
+
+    override val origin: Euclidean3DPosition get() = Euclidean3DPosition.zero
+
+    override fun getDimensions() = DIMENSIONS
+
+    override fun getOffset() = DoubleArray(DIMENSIONS) { if (lowest[it] <= highest[it]) lowest[it] else Double.NaN }
+
+    override fun getSize() = DoubleArray(DIMENSIONS) { (highest[it] - lowest[it]).coerceAtLeast(0.0) }
+
+    /**
+     * Creates a new [Euclidean3DPosition].
+     */
+    fun makePosition(x: Double, y: Double, z: Double) = Euclidean3DPosition(x, y, z)
+
+    override fun makePosition(vararg coordinates: Number): Euclidean3DPosition {
+        require(coordinates.size == DIMENSIONS) {
+            "Illegal coordinates (required $DIMENSIONS): ${coordinates.contentToString()}"
+        }
+        return makePosition(coordinates[0].toDouble(), coordinates[1].toDouble(), coordinates[2].toDouble())
+    }
+
+    override fun makePosition(vararg coordinates: Double): Euclidean3DPosition {
+        require(coordinates.size == DIMENSIONS) {
+            "Illegal coordinates (required $DIMENSIONS): ${coordinates.contentToString()}"
+        }
+        return makePosition(coordinates[0], coordinates[1], coordinates[2])
+    }
+
+    override fun computeActualInsertionPosition(node: Node<T>, position: Euclidean3DPosition) = position
+
+    override fun nodeAdded(node: Node<T>, position: Euclidean3DPosition, neighborhood: Neighborhood<T>) =
+        include(position)
+
+    override fun moveNodeToPosition(node: Node<T>, newPosition: Euclidean3DPosition) {
+        include(newPosition)
+        setPosition(node, newPosition)
+        updateNeighborhood(node, false)
+        ifEngineAvailable { it.nodeMoved(node) }
+    }
+
+    /**
+     * When nodes are indexed in a [Grid3DSpatialIndex], visits them straight from its cells,
+     * reading their coordinates without materializing positions or building collections.
+     */
+    override fun visitNodesWithinRange(center: Euclidean3DPosition, range: Double, action: Consumer<in Node<T>>) {
+        if (grid == null) {
+            super.visitNodesWithinRange(center, range, action)
+        } else {
+            val x = center.x
+            val y = center.y
+            val z = center.z
+            val min = doubleArrayOf(x - range, y - range, z - range)
+            val max = doubleArrayOf(x + range, y + range, z + range)
+            grid.forEachWithin(min, max) { node, nodeX, nodeY, nodeZ ->
+                val dx = nodeX - x
+                val dy = nodeY - y
+                val dz = nodeZ - z
+                if (sqrt(dx * dx + dy * dy + dz * dz) <= range) {
+                    action.accept(node)
+                }
+            }
+        }
+    }
+
+    /**
+     * When nodes are indexed in a [Grid3DSpatialIndex], searches its cells in shells around the [center].
+     */
+    override fun getNearestNodes(center: Node<T>, k: Int, filter: Predicate<in Node<T>>): List<Node<T>> =
+        if (grid == null) {
+            super.getNearestNodes(center, k, filter)
+        } else {
+            val position = getPosition(center)
+            val candidate = Predicate<Node<T>> { it != center && filter.test(it) }
+            grid.nearest(position.x, position.y, position.z, k, candidate, compareBy<Node<T>> { it.id })
+        }
+
+    private fun include(position: Euclidean3DPosition) {
+        for (dimension in 0 until DIMENSIONS) {
+            val coordinate = position[dimension]
+            if (coordinate < lowest[dimension]) {
+                lowest[dimension] = coordinate.nextDown()
+            }
+            if (coordinate > highest[dimension]) {
+                highest[dimension] = coordinate.nextUp()
+            }
+        }
+    }
+
+    private companion object {
+        private const val serialVersionUID = 1L
+        private const val DIMENSIONS = 3
+    }
+}
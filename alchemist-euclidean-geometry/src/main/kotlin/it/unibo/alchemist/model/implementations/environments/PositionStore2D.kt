@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.model.implementations.environments
+
+import java.io.Serializable
+import kotlin.math.max
+import kotlin.math.sqrt
+
+/**
+ * Stores the coordinates of the nodes of a bidimensional Euclidean environment in parallel arrays,
+ * indexed directly by node id, so that they can be read with no lookup and without dereferencing positions.
+ * Environments assign ids sequentially, so the arrays are dense; their length is bound to the largest id seen.
+ * Slots of nodes without a position hold NaN.
+ */
+internal class PositionStore2D : Serializable {
+
+    private var xs = DoubleArray(INITIAL_CAPACITY) { Double.NaN }
+    private var ys = DoubleArray(INITIAL_CAPACITY) { Double.NaN }
+
+    /**
+     * Sets the coordinates of the node with the provided [id].
+     */
+    fun update(id: Int, x: Double, y: Double) {
+        require(id >= 0) { "Coordinates can only be stored for non-negative ids, but $id was provided" }
+        if (id >= xs.size) {
+            val capacity = max(id + 1, xs.size * 2)
+            xs = xs.copyOf(capacity).also { it.fill(Double.NaN, xs.size, capacity) }
+            ys = ys.copyOf(capacity).also { it.fill(Double.NaN, ys.size, capacity) }
+        }
+        xs[id] = x
+        ys[id] = y
+    }
+
+    /**
+     * Forgets the coordinates of the node with the provided [id], if any.
+     */
+    fun remove(id: Int) {
+        if (id in xs.indices) {
+            xs[id] = Double.NaN
+            ys[id] = Double.NaN
+        }
+    }
+
+    /**
+     * The x coordinate of the node with the provided [id].
+     */
+    fun x(id: Int): Double = checkPresent(id, xs.getOrElse(id) { Double.NaN })
+
+    /**
+     * The y coordinate of the node with the provided [id].
+     */
+    fun y(id: Int): Double = checkPresent(id, ys.getOrElse(id) { Double.NaN })
+
+    /**
+     * The squared distance between the nodes with the provided ids.
+     */
+    fun distanceSq(id: Int, other: Int): Double = squared(x(id) - x(other), y(id) - y(other))
+
+    /**
+     * The distance between the node with the provided [id] and the point ([x], [y]), computed exactly as
+     * [it.unibo.alchemist.model.interfaces.Position.distanceTo] would, so that range queries are not affected.
+     */
+    fun distanceTo(id: Int, x: Double, y: Double): Double = sqrt(squared(x(id) - x, y(id) - y))
+
+    private fun checkPresent(id: Int, coordinate: Double): Double = coordinate.also {
+        require(!it.isNaN()) { "No node with id $id has a position in this environment" }
+    }
+
+    private companion object {
+        private const val serialVersionUID = 2L
+        private const val INITIAL_CAPACITY = 16
+
+        private fun squared(dx: Double, dy: Double) = dx * dx + dy * dy
+    }
+}
@@ -11,6 +11,8 @@ package it.unibo.alchemist.model.interfaces.environments
 
 import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
 import it.unibo.alchemist.model.interfaces.EuclideanEnvironment
+import it.unibo.alchemist.model.interfaces.Node
+import java.util.function.Consumer
 
 /**
  * A bidimensional euclidean space with any concentration type [T].
@@ -32,6 +34,13 @@ interface Euclidean2DEnvironment<T> : EuclideanEnvironment<T, Euclidean2DPositio
             "Illegal coordinates (required 2): ${coordinates.contentToString()}"
         }.let { makePosition(coordinates[0], coordinates[1]) }
 
+    /**
+     * Executes the [action] on every node within [range] from the point ([x], [y]),
+     * see [forEachNodeWithinRange].
+     */
+    fun forEachNodeWithinRange(x: Double, y: Double, range: Double, action: Consumer<in Node<T>>) =
+        forEachNodeWithinRange(makePosition(x, y), range, action)
+
     companion object {
         /**
          * The origin of this Euclidean environment: vector [0, 0].
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestBulkInsertion : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    /*
+     * Builds two environments with the same nodes, the former loaded one by one, the latter in two batches.
+     */
+    fun environments(spatialIndex: String): Pair<Continuous2DEnvironment<Any>, Continuous2DEnvironment<Any>> {
+        val random = MersenneTwister(1)
+        val positions = List(NODES) { Euclidean2DPosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE) }
+        fun environment() = Continuous2DEnvironment(incarnation, spatialIndex).apply {
+            linkingRule = ConnectWithinDistance(RANGE)
+        }
+        val oneByOne = environment()
+        positions.forEach { oneByOne.addNode(GenericNode(incarnation, oneByOne), it) }
+        val bulk = environment()
+        positions.chunked(NODES / 2).forEach { batch ->
+            bulk.addNodes(batch.associateBy<Euclidean2DPosition, Node<Any>> { GenericNode(incarnation, bulk) }) shouldBe
+                batch.size
+        }
+        return oneByOne to bulk
+    }
+
+    fun Continuous2DEnvironment<Any>.neighbors() = nodes.associate { node ->
+        node.id to getNeighborhood(node).map(Node<Any>::getId)
+    }
+
+    listOf(Continuous2DEnvironment.QUADTREE, Continuous2DEnvironment.GRID).forEach { spatialIndex ->
+        "bulk insertion in a $spatialIndex should produce the same neighborhoods of adding nodes one by one, in order" {
+            val (oneByOne, bulk) = environments(spatialIndex)
+            bulk.nodeCount shouldBe NODES
+            bulk.neighbors() shouldBe oneByOne.neighbors()
+            bulk.nodes.forEach { bulk.getPosition(it) shouldBe oneByOne.getPosition(oneByOne.getNodeByID(it.id)) }
+        }
+    }
+}) {
+    private companion object {
+        private const val NODES = 1000
+        private const val SIDE = 30
+        private const val RANGE = 1.5
+    }
+}
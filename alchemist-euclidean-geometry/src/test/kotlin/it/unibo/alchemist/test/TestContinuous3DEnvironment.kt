@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.doubles.plusOrMinus
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.actions.BrownianMove
+import it.unibo.alchemist.model.implementations.environments.Continuous3DEnvironment
+import it.unibo.alchemist.model.implementations.environments.Grid3DSpatialIndex
+import it.unibo.alchemist.model.implementations.environments.GridSpatialIndex
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean3DPosition
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+import org.danilopianini.util.FlexibleQuadTree
+
+class TestContinuous3DEnvironment : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean3DPosition>("protelis").orElseThrow()
+
+    "the grid should find the same elements of a linear scan" {
+        val random = MersenneTwister(1)
+        val grid = Grid3DSpatialIndex<Int>(1.0)
+        val positions = MutableList(ELEMENTS) { DoubleArray(3) { random.nextDouble() * SIDE } }
+        positions.forEachIndexed { element, position -> grid.insert(element, *position) }
+        repeat(ELEMENTS / 2) { element ->
+            val destination = DoubleArray(3) { random.nextDouble() * SIDE }
+            grid.move(element, positions[element], destination) shouldBe true
+            positions[element] = destination
+        }
+        grid.remove(0, *positions[0]) shouldBe true
+        grid.remove(0, *positions[0]) shouldBe false
+        repeat(QUERIES) {
+            val low = DoubleArray(3) { random.nextDouble() * SIDE }
+            val high = DoubleArray(3) { low[it] + random.nextDouble() * SIDE / 4 }
+            val expected = positions.indices.filter { element ->
+                element != 0 && (0 until 3).all { positions[element][it] in low[it]..high[it] }
+            }
+            grid.query(low, high) shouldContainExactlyInAnyOrder expected
+        }
+    }
+    "neighborhoods should include the nodes within range while nodes move in three dimensions" {
+        val random = MersenneTwister(1)
+        val environment = Continuous3DEnvironment(incarnation).apply {
+            linkingRule = ConnectWithinDistance(RANGE)
+        }
+        fun randomPosition() = environment.makePosition(
+            random.nextDouble() * SIDE,
+            random.nextDouble() * SIDE,
+            random.nextDouble() * SIDE,
+        )
+        repeat(NODES) { environment.addNode(GenericNode(incarnation, environment), randomPosition()) }
+        val moves = environment.nodes.map { BrownianMove(environment, it, random, RANGE) }
+        val heights = environment.nodes.map { environment.getPosition(it).z }
+        repeat(STEPS) { moves[random.nextInt(moves.size)].execute() }
+        environment.nodes.map { environment.getPosition(it).z } shouldNotBe heights
+        environment.nodes.forEach { node: Node<Any> ->
+            val expected = environment.nodes.filter {
+                it != node && environment.getDistanceBetweenNodes(it, node) <= RANGE
+            }
+            environment.getNeighborhood(node).neighbors.toList() shouldContainExactlyInAnyOrder expected
+        }
+    }
+    "the nearest nodes should match a linear scan, ties broken by id" {
+        val random = MersenneTwister(1)
+        val environment = Continuous3DEnvironment(incarnation).apply {
+            linkingRule = ConnectWithinDistance(RANGE)
+        }
+        repeat(NODES) {
+            // Integer coordinates, so that many nodes share their distance from the center
+            val coordinates = DoubleArray(3) { random.nextInt(SIDE.toInt()).toDouble() }
+            environment.addNode(GenericNode(incarnation, environment), environment.makePosition(*coordinates))
+        }
+        environment.nodes.take(QUERIES).forEach { center ->
+            val expected = environment.nodes
+                .filter { it != center && it.id % 2 == 0 }
+                .sortedWith(
+                    compareBy<Node<Any>> { environment.getDistanceBetweenNodes(center, it) }.thenBy { it.id },
+                )
+                .take(NEAREST)
+            environment.getNearestNodes(center, NEAREST) { it.id % 2 == 0 } shouldBe expected
+        }
+    }
+    "tridimensional positions should behave as vectors" {
+        val position = Euclidean3DPosition(1.0, 2.0, 2.0)
+        position.magnitude shouldBe 3.0
+        position.normalized().magnitude shouldBe (1.0 plusOrMinus TOLERANCE)
+        position.dot(position.normal()) shouldBe 0.0
+        Euclidean3DPosition(0.0, 0.0, 1.0).normal().dot(Euclidean3DPosition(0.0, 0.0, 1.0)) shouldBe 0.0
+        position.distanceTo(Euclidean3DPosition.zero) shouldBe 3.0
+        (position + position) shouldBe position * 2.0
+    }
+    "environments should reject indexes with a different number of dimensions" {
+        shouldThrow<IllegalArgumentException> { Continuous3DEnvironment(incarnation, FlexibleQuadTree()) }
+        shouldThrow<IllegalArgumentException> { Continuous3DEnvironment(incarnation, GridSpatialIndex()) }
+    }
+}) {
+    private companion object {
+        private const val ELEMENTS = 2000
+        private const val NODES = 500
+        private const val SIDE = 20.0
+        private const val RANGE = 2.0
+        private const val QUERIES = 200
+        private const val STEPS = 5000
+        private const val NEAREST = 10
+        private const val TOLERANCE = 1e-12
+    }
+}
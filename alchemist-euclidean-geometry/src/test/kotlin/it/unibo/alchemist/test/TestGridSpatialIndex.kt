@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.environments.GridSpatialIndex
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestGridSpatialIndex : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    fun crowd(spatialIndex: String) = Continuous2DEnvironment(incarnation, spatialIndex).apply {
+        linkingRule = ConnectWithinDistance(RANGE)
+        val random = MersenneTwister(1)
+        repeat(NODES) {
+            val position = makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+            addNode(GenericNode(incarnation, this), position)
+        }
+    }
+
+    fun Continuous2DEnvironment<Any>.neighbors() = nodes.associate { node ->
+        node.id to getNeighborhood(node).neighbors.map(Node<Any>::getId).toSet()
+    }
+
+    "the cells should be sized after the range of the linking rule" {
+        val index = GridSpatialIndex<Int>()
+        index.insert(0, 0.0, 0.0)
+        index.cellSize.isNaN() shouldBe true
+        index.query(doubleArrayOf(-RANGE, RANGE), doubleArrayOf(RANGE, -RANGE)) shouldBe listOf(0)
+        index.cellSize shouldBe RANGE
+    }
+    "elements should be found only within the queried area, wherever they move" {
+        val index = GridSpatialIndex<Int>(1.0)
+        val random = MersenneTwister(1)
+        val positions = Array(NODES) { doubleArrayOf(random.nextDouble() * SIDE, random.nextDouble() * SIDE) }
+        positions.forEachIndexed { element, position -> index.insert(element, *position) }
+        repeat(MOVEMENTS) {
+            val element = random.nextInt(NODES)
+            // Both short moves, likely within the same cell, and long jumps
+            val step = if (random.nextBoolean()) 0.1 else SIDE.toDouble()
+            val destination = doubleArrayOf(
+                positions[element][0] + (random.nextDouble() - 0.5) * step,
+                positions[element][1] + (random.nextDouble() - 0.5) * step,
+            )
+            index.move(element, positions[element], destination) shouldBe true
+            positions[element] = destination
+            val x = random.nextDouble() * SIDE
+            val y = random.nextDouble() * SIDE
+            val range = random.nextDouble() * RANGE * 2
+            val expected = positions.indices.filter { candidate ->
+                positions[candidate][0] in x - range..x + range && positions[candidate][1] in y - range..y + range
+            }
+            val box = arrayOf(doubleArrayOf(x - range, y + range), doubleArrayOf(x + range, y - range))
+            index.query(*box) shouldContainExactlyInAnyOrder expected
+        }
+        index.query(
+            doubleArrayOf(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY),
+            doubleArrayOf(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY),
+        ) shouldContainExactlyInAnyOrder positions.indices.toList()
+        index.remove(0, *positions[0]) shouldBe true
+        index.remove(0, *positions[0]) shouldBe false
+        index.move(0, positions[0], positions[1]) shouldBe false
+    }
+    "a moving crowd should get the same neighborhoods with grids and quadtrees" {
+        val grid = crowd(Continuous2DEnvironment.GRID)
+        val quadtree = crowd(Continuous2DEnvironment.QUADTREE)
+        grid.neighbors() shouldBe quadtree.neighbors()
+        val random = MersenneTwister(2)
+        repeat(MOVEMENTS) {
+            val id = random.nextInt(NODES)
+            val destination = grid.getPosition(grid.getNodeByID(id)) +
+                Euclidean2DPosition(random.nextDouble() - 0.5, random.nextDouble() - 0.5)
+            grid.moveNodeToPosition(grid.getNodeByID(id), destination)
+            quadtree.moveNodeToPosition(quadtree.getNodeByID(id), destination)
+        }
+        grid.neighbors() shouldBe quadtree.neighbors()
+    }
+    "unknown spatial indexes should be refused" {
+        shouldThrow<IllegalArgumentException> { Continuous2DEnvironment(incarnation, "octree") }
+    }
+}) {
+    private companion object {
+        private const val NODES = 500
+        private const val SIDE = 20
+        private const val RANGE = 1.5
+        private const val MOVEMENTS = 1000
+    }
+}
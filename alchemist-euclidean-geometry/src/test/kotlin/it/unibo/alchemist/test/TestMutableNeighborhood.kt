@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.neighborhoods.Neighborhoods
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestMutableNeighborhood : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    fun environment() = Continuous2DEnvironment(incarnation).apply {
+        linkingRule = ConnectWithinDistance(RANGE)
+    }
+
+    "environments should hand out snapshots, rebuilt only once neighborhoods change" {
+        val environment = environment()
+        val nodes = List(3) { GenericNode(incarnation, environment) }
+        nodes.forEachIndexed { index, node -> environment.addNode(node, environment.makePosition(index, 0)) }
+        val (left, middle, right) = nodes
+        val snapshot = environment.getNeighborhood(middle)
+        snapshot.neighbors.toList() shouldContainExactlyInAnyOrder listOf(left, right)
+        environment.getNeighborhood(middle) shouldBeSameInstanceAs snapshot
+        environment.moveNodeToPosition(right, environment.makePosition(SIDE, SIDE))
+        val neighborhood = environment.getNeighborhood(middle)
+        neighborhood shouldNotBeSameInstanceAs snapshot
+        neighborhood.contains(right) shouldBe false
+        neighborhood.size() shouldBe 1
+        snapshot.toList() shouldContainExactlyInAnyOrder listOf(left, right)
+        // Neighborhood.add and remove still produce new neighborhoods
+        neighborhood.add(right).neighbors.toList() shouldContainExactlyInAnyOrder listOf(left, right)
+        neighborhood.remove(left).isEmpty() shouldBe true
+        neighborhood.neighbors.toList() shouldBe listOf(left)
+    }
+    "mutable neighborhoods should keep the insertion order, and equal their snapshots" {
+        val environment = environment()
+        val nodes = List(NODES) { GenericNode(incarnation, environment) }
+        val (center, neighbors) = nodes.first() to nodes.drop(1)
+        val neighborhood = Neighborhoods.make(environment, center, neighbors)
+        val expected = neighbors.toMutableList()
+        val random = MersenneTwister(1)
+        repeat(NODES / 2) {
+            val removed = expected.removeAt(random.nextInt(expected.size))
+            neighborhood.removeNeighbor(removed) shouldBe true
+            neighborhood.toList() shouldBe expected
+        }
+        neighborhood.addNeighbor(neighbors.first()) shouldBe (neighbors.first() !in expected)
+        val snapshot = neighborhood.snapshot()
+        neighborhood.neighbors.toList() shouldBe snapshot.toList()
+        (neighborhood == snapshot) shouldBe true
+        (snapshot == neighborhood) shouldBe true
+        neighborhood.hashCode() shouldBe snapshot.hashCode()
+    }
+    "iterating a mutable neighborhood while it changes should fail" {
+        val environment = environment()
+        val nodes = List(3) { GenericNode(incarnation, environment) }
+        val neighborhood = Neighborhoods.make(environment, nodes.first(), nodes.drop(1))
+        shouldThrow<ConcurrentModificationException> {
+            neighborhood.forEach { neighborhood.removeNeighbor(it) }
+        }
+    }
+    "neighborhoods should always reflect the positions of moving nodes" {
+        val random = MersenneTwister(1)
+        val environment = environment()
+        fun randomPosition() = environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+        repeat(NODES) { environment.addNode(GenericNode(incarnation, environment), randomPosition()) }
+        repeat(MOVEMENTS) {
+            val node = environment.nodes[random.nextInt(environment.nodeCount)]
+            if (random.nextInt(10) == 0) {
+                environment.removeNode(node)
+                environment.addNode(GenericNode(incarnation, environment), randomPosition())
+            } else {
+                environment.moveNodeToPosition(node, randomPosition())
+            }
+        }
+        environment.nodes.forEach { node ->
+            val expected = environment.nodes.filter {
+                it != node && environment.getDistanceBetweenNodes(it, node) <= RANGE
+            }
+            val neighborhood = environment.getNeighborhood(node)
+            neighborhood.neighbors.toList() shouldContainExactlyInAnyOrder expected
+            neighborhood.size() shouldBe expected.size
+            expected.forEach { neighborhood.contains(it) shouldBe true }
+        }
+    }
+}) {
+    private companion object {
+        private const val NODES = 200
+        private const val SIDE = 10.0
+        private const val RANGE = 1.5
+        private const val MOVEMENTS = 2000
+    }
+}
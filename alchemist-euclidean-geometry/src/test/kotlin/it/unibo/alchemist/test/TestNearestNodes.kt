@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainAll
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ClosestN
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.interfaces.LinkingRule
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+import java.util.function.Predicate
+import kotlin.random.Random
+
+class TestNearestNodes : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    fun environment(spatialIndex: String, rule: LinkingRule<Any, Euclidean2DPosition>, nodes: Int) =
+        Continuous2DEnvironment(incarnation, spatialIndex).apply {
+            linkingRule = rule
+            val random = MersenneTwister(1)
+            repeat(nodes) {
+                val position = makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+                addNode(GenericNode(incarnation, this), position)
+            }
+        }
+
+    fun Continuous2DEnvironment<Any>.bruteForce(center: Node<Any>, k: Int, filter: Predicate<Node<Any>>) =
+        nodes.filter { it != center && filter.test(it) }
+            .sortedWith(compareBy({ getDistanceBetweenNodes(center, it) }, { it.id }))
+            .take(k)
+
+    listOf(Continuous2DEnvironment.QUADTREE, Continuous2DEnvironment.GRID).forEach { spatialIndex ->
+        "the nearest nodes in a $spatialIndex should be the same found by sorting all nodes" {
+            val environment = environment(spatialIndex, ConnectWithinDistance(RANGE), NODES)
+            val even = Predicate<Node<Any>> { it.id % 2 == 0 }
+            environment.nodes.forEach { center ->
+                listOf(1, K, NODES).forEach { k ->
+                    environment.getNearestNodes(center, k) { true } shouldBe environment.bruteForce(center, k) { true }
+                    environment.getNearestNodes(center, k, even) shouldBe environment.bruteForce(center, k, even)
+                }
+            }
+        }
+        "ties among the nearest nodes in a $spatialIndex should be broken by id" {
+            val environment = Continuous2DEnvironment(incarnation, spatialIndex).apply {
+                linkingRule = ConnectWithinDistance(RANGE)
+                // Lattice points get shuffled, so that the ids do not follow the positions
+                (0 until LATTICE_SIDE * LATTICE_SIDE).shuffled(Random(1)).forEach {
+                    addNode(GenericNode(incarnation, this), makePosition(it % LATTICE_SIDE, it / LATTICE_SIDE))
+                }
+            }
+            environment.nodes.forEach { center ->
+                listOf(1, K, 2 * K).forEach { k ->
+                    environment.getNearestNodes(center, k) { true } shouldBe environment.bruteForce(center, k) { true }
+                }
+            }
+        }
+        "ClosestN in a $spatialIndex should connect each node to its closest ones" {
+            val environment = environment(spatialIndex, ClosestN(K), NODES / 2)
+            environment.nodes.forEach { node ->
+                environment.getNeighborhood(node).neighbors.toList() shouldContainAll
+                    environment.bruteForce(node, K) { true }
+            }
+        }
+    }
+}) {
+    private companion object {
+        private const val NODES = 400
+        private const val SIDE = 20.0
+        private const val RANGE = 1.5
+        private const val K = 5
+        private const val LATTICE_SIDE = 12
+    }
+}
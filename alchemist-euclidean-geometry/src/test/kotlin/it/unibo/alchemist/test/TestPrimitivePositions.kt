@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import org.apache.commons.math3.random.MersenneTwister
+import org.danilopianini.util.FlexibleQuadTree
+
+class TestPrimitivePositions : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    fun checkAccessorsMatchPositions(storeCoordinates: Boolean) {
+        val random = MersenneTwister(1)
+        val environment = Continuous2DEnvironment(incarnation, FlexibleQuadTree(), storeCoordinates)
+        environment.linkingRule = ConnectWithinDistance(RANGE)
+        fun randomPosition() = environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+        repeat(NODES) { environment.addNode(GenericNode(incarnation, environment), randomPosition()) }
+        repeat(OPERATIONS) {
+            val target = environment.nodes[random.nextInt(environment.nodeCount)]
+            when (random.nextInt(3)) {
+                0 -> environment.moveNodeToPosition(target, randomPosition())
+                1 -> environment.removeNode(target)
+                else -> environment.addNode(GenericNode(incarnation, environment), randomPosition())
+            }
+            environment.nodes.forEach { node ->
+                val position = environment.getPosition(node)
+                environment.getX(node) shouldBe position.x
+                environment.getY(node) shouldBe position.y
+                environment.getNeighborhood(node).forEach { neighbor ->
+                    val difference = position - environment.getPosition(neighbor)
+                    environment.getDistanceBetweenNodes(node, neighbor) shouldBe
+                        position.distanceTo(environment.getPosition(neighbor))
+                    environment.distanceSq(node, neighbor) shouldBe
+                        difference.x * difference.x + difference.y * difference.y
+                }
+            }
+        }
+    }
+
+    "primitive accessors should always match the positions of the nodes" {
+        checkAccessorsMatchPositions(storeCoordinates = true)
+    }
+    "primitive accessors should fall back to the positions if coordinates are not stored" {
+        checkAccessorsMatchPositions(storeCoordinates = false)
+    }
+    "nodes no longer in the environment should have no coordinates" {
+        listOf(true, false).forEach { storeCoordinates ->
+            val environment = Continuous2DEnvironment(incarnation, FlexibleQuadTree(), storeCoordinates)
+            val node = GenericNode(incarnation, environment)
+            environment.addNode(node, environment.makePosition(0, 0))
+            environment.removeNode(node)
+            shouldThrow<IllegalArgumentException> { environment.getX(node) }
+        }
+    }
+}) {
+    private companion object {
+        private const val NODES = 100
+        private const val SIDE = 10
+        private const val RANGE = 1.5
+        private const val OPERATIONS = 200
+    }
+}
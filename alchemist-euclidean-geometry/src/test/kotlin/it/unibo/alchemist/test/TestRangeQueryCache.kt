@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.NoLinks
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestRangeQueryCache : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    fun environmentWithNodes(count: Int) = Continuous2DEnvironment(incarnation).apply {
+        linkingRule = NoLinks()
+        repeat(count) { index ->
+            addNode(GenericNode(incarnation, this), makePosition(index % SIDE, index / SIDE))
+        }
+    }
+
+    "queries far from the moving nodes should stay cached" {
+        val environment = environmentWithNodes(SIDE * SIDE)
+        val center = environment.makePosition(0, 0)
+        val cached = environment.getNodesWithinRange(center, 1.5)
+        cached.size shouldBe 4
+        val farAway = environment.nodes.last()
+        environment.moveNodeToPosition(farAway, environment.makePosition(SIDE - 2.5, SIDE - 2.5))
+        environment.getNodesWithinRange(center, 1.5) shouldBeSameInstanceAs cached
+        environment.moveNodeToPosition(farAway, environment.makePosition(0.5, 0.5))
+        val updated = environment.getNodesWithinRange(center, 1.5)
+        updated shouldNotBeSameInstanceAs cached
+        updated shouldContainExactlyInAnyOrder cached + farAway
+        environment.moveNodeToPosition(farAway, environment.makePosition(SIDE, SIDE))
+        environment.getNodesWithinRange(center, 1.5) shouldContainExactlyInAnyOrder cached
+        environment.removeNode(environment.nodes.first())
+        environment.getNodesWithinRange(center, 1.5) shouldNotContain cached.first { it.id == 0 }
+    }
+    "queries covering many cells should be refreshed upon any change" {
+        val environment = environmentWithNodes(SIDE * SIDE)
+        val center = environment.makePosition(0, 0)
+        environment.getNodesWithinRange(center, 0.5)
+        val wide = environment.getNodesWithinRange(center, SIDE * 2.0)
+        wide.size shouldBe SIDE * SIDE
+        environment.getNodesWithinRange(center, SIDE * 2.0) shouldBeSameInstanceAs wide
+        val moving = environment.nodes.last()
+        environment.moveNodeToPosition(moving, environment.makePosition(SIDE * 3, SIDE * 3))
+        environment.getNodesWithinRange(center, SIDE * 2.0) shouldNotContain moving
+    }
+    "cached queries should always match the actual positions of moving nodes" {
+        val random = MersenneTwister(1)
+        val environment = environmentWithNodes(SIDE * SIDE)
+        val centers = List(QUERIES) { environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE) }
+        repeat(MOVEMENTS) {
+            val node = environment.nodes[random.nextInt(environment.nodeCount)]
+            environment.moveNodeToPosition(
+                node,
+                environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE),
+            )
+            centers.forEach { center ->
+                val range = 1.0 + random.nextInt(3)
+                environment.getNodesWithinRange(center, range) shouldContainExactlyInAnyOrder
+                    environment.nodes.filter { environment.getPosition(it).distanceTo(center) <= range }
+            }
+        }
+    }
+}) {
+    private companion object {
+        private const val SIDE = 10
+        private const val QUERIES = 20
+        private const val MOVEMENTS = 200
+    }
+}
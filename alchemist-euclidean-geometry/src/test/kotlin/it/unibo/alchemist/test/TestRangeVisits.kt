@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import io.kotest.matchers.collections.shouldNotContain
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestRangeVisits : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    listOf(Continuous2DEnvironment.QUADTREE, Continuous2DEnvironment.GRID).forEach { spatialIndex ->
+        "visits in a $spatialIndex should find the same nodes of range queries" {
+            val random = MersenneTwister(1)
+            val environment = Continuous2DEnvironment(incarnation, spatialIndex).apply {
+                linkingRule = ConnectWithinDistance(RANGE)
+            }
+            fun randomPosition() = environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+            repeat(NODES) { environment.addNode(GenericNode(incarnation, environment), randomPosition()) }
+            repeat(QUERIES) {
+                val range = random.nextDouble() * SIDE / 2 + Double.MIN_VALUE
+                val center = randomPosition()
+                val expected = environment.getNodesWithinRange(center, range).toList()
+                val visited = buildList<Node<Any>> { environment.forEachNodeWithinRange(center, range) { add(it) } }
+                visited shouldContainExactlyInAnyOrder expected
+                val visitedByCoordinates = buildList<Node<Any>> {
+                    environment.forEachNodeWithinRange(center.x, center.y, range) { add(it) }
+                }
+                visitedByCoordinates shouldContainExactlyInAnyOrder expected
+                val node = environment.nodes[random.nextInt(environment.nodeCount)]
+                val neighbors = buildList<Node<Any>> { environment.forEachNodeWithinRange(node, range) { add(it) } }
+                neighbors shouldContainExactlyInAnyOrder environment.getNodesWithinRange(node, range).toList()
+                neighbors shouldNotContain node
+                environment.moveNodeToPosition(node, randomPosition())
+            }
+        }
+    }
+    "visits should reject non-positive ranges" {
+        val environment = Continuous2DEnvironment(incarnation, Continuous2DEnvironment.GRID)
+        shouldThrow<IllegalArgumentException> { environment.forEachNodeWithinRange(0.0, 0.0, 0.0) { } }
+        shouldThrow<IllegalArgumentException> { environment.forEachNodeWithinRange(environment.origin, -1.0) { } }
+    }
+}) {
+    private companion object {
+        private const val NODES = 500
+        private const val SIDE = 20.0
+        private const val RANGE = 1.5
+        private const val QUERIES = 500
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.assertions.throwables.shouldThrow
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldContainExactlyInAnyOrder
+import it.unibo.alchemist.model.api.SupportedIncarnations
+import it.unibo.alchemist.model.implementations.environments.Continuous2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.nodes.GenericNode
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.interfaces.Node
+import org.apache.commons.math3.random.MersenneTwister
+
+class TestVerletLists : StringSpec({
+    val incarnation = SupportedIncarnations.get<Any, Euclidean2DPosition>("protelis").orElseThrow()
+
+    "neighborhoods computed through Verlet lists should match the nodes within range" {
+        val random = MersenneTwister(1)
+        val environment = Continuous2DEnvironment(incarnation).apply {
+            linkingRule = ConnectWithinDistance(RANGE, SKIN)
+        }
+        fun randomPosition() = environment.makePosition(random.nextDouble() * SIDE, random.nextDouble() * SIDE)
+        val batch = List<Node<Any>>(NODES / 2) { GenericNode(incarnation, environment) }
+        environment.addNodes(batch.associateWith { randomPosition() })
+        repeat(NODES / 2) { environment.addNode(GenericNode(incarnation, environment), randomPosition()) }
+        repeat(OPERATIONS) {
+            val node: Node<Any> = environment.nodes[random.nextInt(environment.nodeCount)]
+            when (random.nextInt(STEPS_PER_JUMP)) {
+                0 -> environment.moveNodeToPosition(node, randomPosition())
+                1 -> {
+                    environment.removeNode(node)
+                    environment.addNode(GenericNode(incarnation, environment), randomPosition())
+                }
+                else -> environment.moveNode(
+                    node,
+                    environment.makePosition(random.nextGaussian() * STEP, random.nextGaussian() * STEP),
+                )
+            }
+        }
+        environment.nodes.forEach { node ->
+            val expected = environment.nodes.filter {
+                it != node && environment.getDistanceBetweenNodes(it, node) <= RANGE
+            }
+            environment.getNeighborhood(node).neighbors.toList() shouldContainExactlyInAnyOrder expected
+        }
+    }
+    "the skin should not be negative" {
+        shouldThrow<IllegalArgumentException> { ConnectWithinDistance<Any, Euclidean2DPosition>(RANGE, -SKIN) }
+    }
+}) {
+    private companion object {
+        private const val NODES = 300
+        private const val SIDE = 15.0
+        private const val RANGE = 1.5
+        private const val SKIN = 0.5
+        private const val STEP = 0.05
+        private const val STEPS_PER_JUMP = 20
+        private const val OPERATIONS = 5000
+    }
+}
@@ -16,6 +16,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.UUID;
 
+import it.unibo.alchemist.loader.EngineConfiguration;
 import it.unibo.alchemist.loader.InitializedEnvironment;
 import it.unibo.alchemist.loader.export.exporters.GlobalExporter;
 import org.apache.ignite.Ignition;
@@ -23,7 +24,8 @@ import org.kaikikm.threadresloader.ResourceLoader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import it.unibo.alchemist.core.implementations.Engine;
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor;
+import it.unibo.alchemist.core.implementations.EngineFactory;
 import it.unibo.alchemist.core.interfaces.Simulation;
 import it.unibo.alchemist.grid.config.GeneralSimulationConfig;
 import it.unibo.alchemist.grid.config.SimulationConfig;
@@ -73,13 +75,20 @@ public final class RemoteSimulationImpl<T, P extends Position<P>> implements Rem
                 final Loader loader = generalConfig.getLoader();
                 final InitializedEnvironment<T, P> initialized = loader.getWith(config.getVariables());
                 final Environment<T, P> environment = initialized.getEnvironment();
-                final Simulation<T, P> simulation = new Engine<>(
+                final EngineConfiguration<T> engineConfiguration = initialized.getEngineConfiguration();
+                final Simulation<T, P> simulation = EngineFactory.engine(
+                        engineConfiguration.getType(),
                         environment,
                         generalConfig.getEndStep(),
-                        generalConfig.getEndTime()
+                        generalConfig.getEndTime(),
+                        engineConfiguration.getScheduler(),
+                        engineConfiguration.getDependencyGraph()
                 );
                 final String filename = masterNodeId.toString() + "_" + config.toString() + ".txt";
-                simulation.addOutputMonitor(new GlobalExporter<>(initialized.getExporters()));
+                final GlobalExporter<T, P> exporter = new GlobalExporter<>(initialized.getExporters());
+                simulation.addOutputMonitor(
+                    engineConfiguration.getAsynchronousExport() ? new AsynchronousOutputMonitor<>(exporter) : exporter
+                );
                 simulation.play();
                 simulation.run();
                 return new RemoteResultImpl(wd.getFileContent(filename),
@@ -59,7 +59,15 @@ public final class BrownianMove<T, P extends Position<P>> extends AbstractMoveNo
 
     @Override
     public P getNextPosition() {
-        return getEnvironment().makePosition(genRandom() * range, genRandom() * range);
+        final int dimensions = getEnvironment().getDimensions();
+        if (dimensions == 2) {
+            return getEnvironment().makePosition(genRandom() * range, genRandom() * range);
+        }
+        final Number[] movement = new Number[dimensions];
+        for (int dimension = 0; dimension < movement.length; dimension++) {
+            movement[dimension] = genRandom() * range;
+        }
+        return getEnvironment().makePosition(movement);
     }
 
     private double genRandom() {
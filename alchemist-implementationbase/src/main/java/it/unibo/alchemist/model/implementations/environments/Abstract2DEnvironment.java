@@ -13,6 +13,7 @@ import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position2D;
 import org.apache.commons.math3.util.FastMath;
 import org.danilopianini.util.FlexibleQuadTree;
+import org.danilopianini.util.SpatialIndex;
 
 import static java.lang.Double.NEGATIVE_INFINITY;
 import static java.lang.Double.NaN;
@@ -38,7 +39,20 @@ public abstract class Abstract2DEnvironment<T, P extends Position2D<P>> extends
      * @param incarnation the incarnation to be used.
      */
     protected Abstract2DEnvironment(final Incarnation<T, P> incarnation) {
-        super(incarnation, new FlexibleQuadTree<>());
+        this(incarnation, new FlexibleQuadTree<>());
+    }
+
+    /**
+     * @param incarnation the incarnation to be used.
+     * @param spatialIndex the bidimensional {@link SpatialIndex} used to locate the nodes
+     */
+    protected Abstract2DEnvironment(final Incarnation<T, P> incarnation, final SpatialIndex<Node<T>> spatialIndex) {
+        super(incarnation, spatialIndex);
+        if (spatialIndex.getDimensions() != 2) {
+            throw new IllegalArgumentException(
+                "A bidimensional environment requires a bidimensional index, got " + spatialIndex
+            );
+        }
     }
 
     /**
@@ -8,8 +8,6 @@
  */
 package it.unibo.alchemist.model.implementations.environments;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.Sets;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import gnu.trove.map.hash.TIntObjectHashMap;
@@ -17,6 +15,7 @@ import gnu.trove.set.TIntSet;
 import gnu.trove.set.hash.TIntHashSet;
 import it.unibo.alchemist.core.interfaces.Simulation;
 import it.unibo.alchemist.model.api.SupportedIncarnations;
+import it.unibo.alchemist.model.implementations.neighborhoods.MutableNeighborhood;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.GlobalReaction;
 import it.unibo.alchemist.model.interfaces.Incarnation;
@@ -26,7 +25,6 @@ import it.unibo.alchemist.model.interfaces.Molecule;
 import it.unibo.alchemist.model.interfaces.Neighborhood;
 import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.danilopianini.util.ArrayListSet;
 import org.danilopianini.util.LinkedListSet;
 import org.danilopianini.util.ListSet;
@@ -34,11 +32,15 @@ import org.danilopianini.util.ListSets;
 import org.danilopianini.util.SpatialIndex;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -75,7 +77,7 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
     private final ListSet<Node<T>> nodes = new ArrayListSet<>();
     private final TIntObjectHashMap<P> nodeToPos = new TIntObjectHashMap<>();
     private final SpatialIndex<Node<T>> spatialIndex;
-    private transient LoadingCache<ImmutablePair<P, Double>, ListSet<Node<T>>> cache;
+    private transient RangeQueryCache<T, P> cache;
     private transient Incarnation<T, P> incarnation;
     private LinkingRule<T, P> rule;
     private transient Simulation<T, P> simulation;
@@ -130,13 +132,7 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
 
     @Override
     public final boolean addNode(final Node<T> node, final P p) {
-        if (nodeShouldBeAdded(node, p)) {
-            final P actualPosition = computeActualInsertionPosition(node, p);
-            setPosition(node, actualPosition);
-            if (!nodes.add(node)) {
-                throw new IllegalArgumentException("Node with id " + node.getId() + " was already existing in this environment.");
-            }
-            spatialIndex.insert(node, actualPosition.getCoordinates());
+        if (place(node, p)) {
             /*
              * Neighborhood computation
              */
@@ -156,6 +152,69 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         return false;
     }
 
+    /**
+     * Adds all the provided nodes, in iteration order, if the linking rule is locally consistent:
+     * each node gets located and linked to the nodes already in place as {@link #addNode(Node, Position)} would,
+     * but the engine and {@link #nodeAdded(Node, Position, Neighborhood)} get notified once the whole batch
+     * is in place.
+     * Neighborhoods get computed sequentially, as linking rules are not required to be thread-safe
+     * (e.g., they may cache per-node state), and so that neighbors are listed in the very same order
+     * of adding nodes one by one, which matters to models drawing random numbers while iterating on neighbors.
+     * Admission ({@link #nodeShouldBeAdded(Node, Position)}) gets evaluated in iteration order,
+     * but before {@link #nodeAdded(Node, Position, Neighborhood)} is called for the previous nodes of the batch:
+     * subclasses whose admission depends on the nodes previously added should resort to
+     * {@link #addNodesOneByOne(Map)}.
+     */
+    @Override
+    public int addNodes(@Nonnull final Map<Node<T>, P> nodesToAdd) {
+        if (!Objects.requireNonNull(rule, "No linking rule / network model set.").isLocallyConsistent()) {
+            return addNodesOneByOne(nodesToAdd);
+        }
+        final List<Node<T>> added = new ArrayList<>(nodesToAdd.size());
+        final List<P> requested = new ArrayList<>(nodesToAdd.size());
+        for (final Map.Entry<Node<T>, P> entry : nodesToAdd.entrySet()) {
+            if (place(entry.getKey(), entry.getValue())) {
+                updateNeighborhood(entry.getKey(), true);
+                added.add(entry.getKey());
+                requested.add(entry.getValue());
+            }
+        }
+        for (int i = 0; i < added.size(); i++) {
+            final Node<T> node = added.get(i);
+            ifEngineAvailable(s -> s.nodeAdded(node));
+            nodeAdded(node, requested.get(i), getNeighborhood(node));
+        }
+        return added.size();
+    }
+
+    /**
+     * Adds the provided nodes one by one, in iteration order, via {@link #addNode(Node, Position)}.
+     *
+     * @param nodesToAdd the nodes to add, along with their positions
+     * @return the number of nodes actually added
+     */
+    protected final int addNodesOneByOne(@Nonnull final Map<Node<T>, P> nodesToAdd) {
+        int added = 0;
+        for (final Map.Entry<Node<T>, P> entry : nodesToAdd.entrySet()) {
+            if (addNode(entry.getKey(), entry.getValue())) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /*
+     * Neighborhoods that support it are updated in place, the others get replaced.
+     */
+    private void addNeighbor(final Node<T> center, final Node<T> neighbor) {
+        final Neighborhood<T> neighborhood = neighCache.get(center.getId());
+        if (neighborhood instanceof MutableNeighborhood) {
+            ((MutableNeighborhood<T, ?>) neighborhood).addNeighbor(neighbor);
+        } else {
+            neighCache.put(center.getId(), neighborhood.add(neighbor));
+        }
+    }
+
     @Override
     public final void addTerminator(final Predicate<Environment<T, P>> terminator) {
         this.terminator = this.terminator.orPredicate(terminator);
@@ -185,24 +244,20 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
     ) {
         return newNeighborhood.getNeighbors().stream()
                 .filter(neigh -> oldNeighborhood == null || !oldNeighborhood.contains(neigh))
-                .filter(neigh -> !getNeighborhood(neigh).contains(center))
+                .filter(neigh -> !liveNeighborhood(neigh).contains(center))
                 .map(n -> new Operation(center, n, true));
     }
 
     private ListSet<Node<T>> getAllNodesInRange(final P center, final double range) {
-        if (range <= 0) {
-            throw new IllegalArgumentException("Range query must be positive (provided: " + range + ")");
-        }
+        requirePositiveRange(range);
         if (cache == null) {
-            cache = Caffeine.newBuilder()
-                .maximumSize(1000)
-                .build(pair -> runQuery(pair.left, pair.right));
+            cache = new RangeQueryCache<>(1000, this::runQuery);
         }
-        return cache.get(new ImmutablePair<>(center, range));
+        return cache.get(center, range);
     }
 
     @Override
-    public final double getDistanceBetweenNodes(final Node<T> n1, final Node<T> n2) {
+    public double getDistanceBetweenNodes(final Node<T> n1, final Node<T> n2) {
         return getPosition(n1).distanceTo(getPosition(n2));
     }
 
@@ -232,8 +287,20 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         rule = Objects.requireNonNull(r);
     }
 
+    /**
+     * Neighborhoods updated in place are never handed out: an immutable snapshot gets returned instead,
+     * which is cached until the neighborhood changes.
+     */
     @Override
     public final Neighborhood<T> getNeighborhood(@Nonnull final Node<T> center) {
+        final Neighborhood<T> result = liveNeighborhood(center);
+        return result instanceof MutableNeighborhood ? ((MutableNeighborhood<T, ?>) result).snapshot() : result;
+    }
+
+    /*
+     * The neighborhood currently in use, possibly updated in place as links change.
+     */
+    private Neighborhood<T> liveNeighborhood(@Nonnull final Node<T> center) {
         final Neighborhood<T> result = neighCache.get(Objects.requireNonNull(center).getId());
         if (result == null) {
             if (getNodes().contains(center)) {
@@ -284,6 +351,77 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         return getAllNodesInRange(center, range);
     }
 
+    @Override
+    public final void forEachNodeWithinRange(
+        final Node<T> center,
+        final double range,
+        final Consumer<? super Node<T>> action
+    ) {
+        forEachNodeWithinRange(getPosition(center), range, node -> {
+            if (!node.equals(center)) {
+                action.accept(node);
+            }
+        });
+    }
+
+    /**
+     * Shares the cache with {@link #getNodesWithinRange(Position, double)}: upon a miss, the nodes found by
+     * {@link #visitNodesWithinRange(Position, double, Consumer)} get cached before being visited,
+     * so that the same query issued again (e.g., by a linking rule, as neighborhoods get recomputed)
+     * hits the cache until a node moves within range.
+     */
+    @Override
+    public final void forEachNodeWithinRange(
+        final P center,
+        final double range,
+        final Consumer<? super Node<T>> action
+    ) {
+        getAllNodesInRange(center, range).forEach(action);
+    }
+
+    /**
+     * Looks for the nearest nodes in growing ranges, starting from the side of a (hyper)cube that, were nodes
+     * spread uniformly along the non-flat dimensions, would contain about k of them, and doubling it until
+     * at least k nodes are found:
+     * they include the k nearest ones. If the range grows larger than the environment, all nodes get sorted.
+     * Subclasses may override it to search their spatial index directly.
+     */
+    @Override
+    public List<Node<T>> getNearestNodes(final Node<T> center, final int k, final Predicate<? super Node<T>> filter) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one node must be searched for, but k is " + k);
+        }
+        final Predicate<Node<T>> candidate = node -> !node.equals(center) && filter.test(node);
+        final double[] size = getSizeInDistanceUnits();
+        final double maxRange = 2 * Arrays.stream(size).max().orElse(0);
+        final double[] extents = Arrays.stream(size).filter(extent -> extent > 0).toArray();
+        double range = getNodeCount() <= k || extents.length == 0
+            ? maxRange
+            : Math.pow(Arrays.stream(extents).reduce(1, (a, b) -> a * b) / getNodeCount() * k, 1.0 / extents.length);
+        while (range > 0 && range < maxRange) {
+            final List<Node<T>> inRange = new ArrayList<>();
+            // The ranges tried are estimates, hardly ever queried again: caching them would only evict useful entries
+            visitNodesWithinRange(getPosition(center), range, node -> {
+                if (candidate.test(node)) {
+                    inRange.add(node);
+                }
+            });
+            if (inRange.size() >= k) {
+                return nearest(center, inRange, k);
+            }
+            range *= 2;
+        }
+        return nearest(center, nodes.stream().filter(candidate).collect(Collectors.toList()), k);
+    }
+
+    private List<Node<T>> nearest(final Node<T> center, final List<Node<T>> candidates, final int k) {
+        candidates.sort(
+            Comparator.<Node<T>>comparingDouble(node -> getDistanceBetweenNodes(center, node))
+                .thenComparingInt(Node::getId)
+        );
+        return candidates.size() > k ? new ArrayList<>(candidates.subList(0, k)) : candidates;
+    }
+
     @Nonnull
     @Override
     public final P getPosition(final Node<T> node) {
@@ -343,9 +481,12 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         Optional.ofNullable(getSimulation()).ifPresent(action);
     }
 
-    private void invalidateCache() {
+    /*
+     * Only the cached queries whose range includes the changed positions get invalidated.
+     */
+    private void invalidateCacheAround(@Nullable final P former, @Nullable final P current) {
         if (cache != null) {
-            cache.invalidateAll();
+            cache.invalidateAround(former, current);
         }
     }
 
@@ -370,7 +511,7 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
                 .orElse(ListSets.emptyListSet())
                 .stream()
                 .filter(neigh -> !newNeighborhood.contains(neigh))
-                .filter(neigh -> getNeighborhood(neigh).contains(center))
+                .filter(neigh -> liveNeighborhood(neigh).contains(center))
                 .map(n -> new Operation(center, n, false));
     }
 
@@ -383,6 +524,48 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
      */
     protected abstract void nodeAdded(Node<T> node, P position, Neighborhood<T> neighborhood);
 
+    /**
+     * Computes the distance between a node and a position, used to filter the results of range queries.
+     * Subclasses may override it to avoid materializing the position of the node,
+     * as long as the result is the same of {@code getPosition(node).distanceTo(position)}.
+     *
+     * @param node the node
+     * @param position the position
+     * @return the distance between the node and the position
+     */
+    protected double getDistanceBetween(final Node<T> node, final P position) {
+        return getPosition(node).distanceTo(position);
+    }
+
+    /**
+     * Executes the action on every node within range, backing both range queries and their visits.
+     * Subclasses may override it to visit their nodes without building intermediate collections,
+     * as long as the same nodes are found.
+     *
+     * @param center the query center
+     * @param range the query range
+     * @param action the action to execute on each node within range
+     */
+    protected void visitNodesWithinRange(final P center, final double range, final Consumer<? super Node<T>> action) {
+        final List<Node<T>> candidates = spatialIndex.query(center.boundingBox(range).stream()
+                .map(Position::getCoordinates)
+                .toArray(double[][]::new));
+        for (final Node<T> candidate : candidates) {
+            if (getDistanceBetween(candidate, center) <= range) {
+                action.accept(candidate);
+            }
+        }
+    }
+
+    /**
+     * This method gets called every time a node gets a new position, including upon its addition,
+     * before any neighborhood gets updated.
+     *
+     * @param node the node
+     * @param position the new position of the node
+     */
+    protected void nodePositionUpdated(final Node<T> node, final P position) { }
+
     /**
      * This method gets called once a node has been removed.
      *
@@ -417,6 +600,15 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         );
     }
 
+    private void removeNeighbor(final Node<T> center, final Node<T> neighbor) {
+        final Neighborhood<T> neighborhood = neighCache.get(center.getId());
+        if (neighborhood instanceof MutableNeighborhood) {
+            ((MutableNeighborhood<T, ?>) neighborhood).removeNeighbor(neighbor);
+        } else {
+            neighCache.put(center.getId(), neighborhood.remove(neighbor));
+        }
+    }
+
     private Queue<Operation> recursiveOperation(final Node<T> origin) {
         final Neighborhood<T> newNeighborhood = rule.computeNeighborhood(Objects.requireNonNull(origin), this);
         final Neighborhood<T> oldNeighborhood = neighCache.put(origin.getId(), newNeighborhood);
@@ -436,18 +628,18 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
 
     @Override
     public final void removeNode(@Nonnull final Node<T> node) {
-        invalidateCache();
         nodes.remove(Objects.requireNonNull(node));
         final P pos = nodeToPos.remove(node.getId());
+        invalidateCacheAround(pos, null);
         spatialIndex.remove(node, pos.getCoordinates());
         /*
          * Neighborhood update
          */
         final Neighborhood<T> neigh = neighCache.remove(node.getId());
         for (final Node<T> n : neigh) {
-            final Neighborhood<T> target = neighCache.remove(n.getId());
-            neighCache.put(n.getId(), target.remove(node));
+            removeNeighbor(n, node);
         }
+        rule.nodeRemoved(node, this);
         /*
          * Update all the reactions which may have been affected by the node
          * removal
@@ -459,14 +651,32 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
         nodeRemoved(node, neigh);
     }
 
+    /*
+     * Locates the node, if it should be added, without computing any neighborhood.
+     */
+    private boolean place(final Node<T> node, final P p) {
+        if (nodeShouldBeAdded(node, p)) {
+            final P actualPosition = computeActualInsertionPosition(node, p);
+            setPosition(node, actualPosition);
+            if (!nodes.add(node)) {
+                throw new IllegalArgumentException("Node with id " + node.getId() + " was already existing in this environment.");
+            }
+            spatialIndex.insert(node, actualPosition.getCoordinates());
+            return true;
+        }
+        return false;
+    }
+
+    private static void requirePositiveRange(final double range) {
+        if (range <= 0) {
+            throw new IllegalArgumentException("Range query must be positive (provided: " + range + ")");
+        }
+    }
+
     private ListSet<Node<T>> runQuery(final P center, final double range) {
-        final List<Node<T>> result = spatialIndex.query(center.boundingBox(range).stream()
-                .map(Position::getCoordinates)
-                .toArray(double[][]::new));
-        final int size = result.size();
-        return ListSets.unmodifiableListSet(result.stream()
-                .filter(it -> getPosition(it).distanceTo(center) <= range)
-                .collect(Collectors.toCollection(() -> new ArrayListSet<>(size))));
+        final ListSet<Node<T>> result = new ArrayListSet<>();
+        visitNodesWithinRange(center, range, result::add);
+        return ListSets.unmodifiableListSet(result);
     }
 
     /**
@@ -480,12 +690,13 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
     protected final void setPosition(final Node<T> n, final P p) {
         final P pos = nodeToPos.put(Objects.requireNonNull(n).getId(), Objects.requireNonNull(p));
         if (!p.equals(pos)) {
-            invalidateCache();
+            invalidateCacheAround(pos, p);
         }
         if (pos != null && !spatialIndex.move(n, pos.getCoordinates(), p.getCoordinates())) {
             throw new IllegalArgumentException("Tried to move a node not previously present in the environment: \n"
                     + "Node: " + n + "\n" + "Requested position" + p);
         }
+        nodePositionUpdated(n, p);
     }
 
     @Override
@@ -538,11 +749,11 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
             if (oldNeighborhood != null) {
                 StreamSupport.stream(oldNeighborhood.spliterator(), false)
                         .filter(formerNeighbor -> !newNeighborhood.contains(formerNeighbor))
-                        .map(this::getNeighborhood)
+                        .map(this::liveNeighborhood)
                         .filter(neigh -> neigh.contains(node))
                         .forEachOrdered(neighborhoodToChange -> {
                             final Node<T> formerNeighbor = neighborhoodToChange.getCenter();
-                            neighCache.put(formerNeighbor.getId(), neighborhoodToChange.remove(node));
+                            removeNeighbor(formerNeighbor, node);
                             if (!isNewNode) {
                                 ifEngineAvailable(s -> s.neighborRemoved(node, formerNeighbor));
                             }
@@ -556,7 +767,7 @@ public abstract class AbstractEnvironment<T, P extends Position<P>> implements E
                             .map(Neighborhood::getNeighbors)
                             .map(it -> (Set<? extends Node<T>>) it)
                             .orElse(Collections.emptySet()))) {
-                neighCache.put(newNeighbor.getId(), neighCache.get(newNeighbor.getId()).add(node));
+                addNeighbor(newNeighbor, node);
                 if (!isNewNode) {
                     ifEngineAvailable(s -> s.neighborAdded(node, newNeighbor));
                 }
@@ -0,0 +1,516 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.environments;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import org.danilopianini.util.SpatialIndex;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * A {@link SpatialIndex} of any number of dimensions partitioning the space in (hyper)cubic cells of the same size
+ * (a cell list), stored in a hash table so that only the occupied cells take memory.
+ * Moving an element within its cell costs O(1), moving it across cells only touches the two cells involved.
+ * Queries visit the cells overlapping the requested box, and work best when the cells are about as large as the
+ * ranges being queried: this is the case of dense, roughly uniform deployments queried with a fixed communication
+ * radius.
+ * If no cell size is provided, the elements are kept unpartitioned until the first query with a finite, non-empty
+ * box, whose smallest half side is then used as cell size: in an environment, it is the one the linking rule
+ * performs when the first node gets added, so the cells get sized after the communication range.
+ * <br>
+ * Cells are keyed by their coordinates, packed in 64 bits: each one gets 64 / dimensions bits (at most 32),
+ * hence, with more than two dimensions, cells farther than a few million sides from the origin get merged with the
+ * outermost ones. Results stay correct, as elements are always filtered by their coordinates.
+ * Subclasses expose the queries with the coordinates of the elements typed after their dimensions.
+ *
+ * @param <E> the type of the indexed elements
+ */
+public abstract class AbstractGridSpatialIndex<E> implements SpatialIndex<E> {
+
+    private static final long serialVersionUID = 1L;
+    private final int dimensions;
+    private final int bits;
+    private final long mask;
+    private final long minCell;
+    private final long maxCell;
+    private final TLongObjectMap<Cell<E>> cells = new TLongObjectHashMap<>();
+    private Cell<E> unpartitioned;
+    private double cellSize;
+
+    /**
+     * Builds an index whose cell size gets computed upon the first query.
+     *
+     * @param dimensions the number of dimensions
+     */
+    protected AbstractGridSpatialIndex(final int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("At least a dimension is required, but " + dimensions + " were given");
+        }
+        this.dimensions = dimensions;
+        bits = Math.min(Integer.SIZE, Long.SIZE / dimensions);
+        mask = (1L << bits) - 1;
+        minCell = -(1L << (bits - 1));
+        maxCell = (1L << (bits - 1)) - 1;
+        cellSize = Double.NaN;
+        unpartitioned = new Cell<>(dimensions);
+    }
+
+    /**
+     * @param dimensions the number of dimensions
+     * @param cellSize the side of the cells
+     */
+    protected AbstractGridSpatialIndex(final int dimensions, final double cellSize) {
+        this(dimensions);
+        if (!(cellSize > 0 && Double.isFinite(cellSize))) {
+            throw new IllegalArgumentException("The cell size must be positive and finite, but was " + cellSize);
+        }
+        this.cellSize = cellSize;
+        unpartitioned = null;
+    }
+
+    /**
+     * @return the side of the cells, or {@link Double#NaN} if it has not been computed yet
+     */
+    public final double getCellSize() {
+        return cellSize;
+    }
+
+    @Override
+    public final int getDimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public final void insert(final E element, final double... position) {
+        checkDimensions(position);
+        if (isPartitioned()) {
+            final long key = keyOf(position);
+            Cell<E> cell = cells.get(key);
+            if (cell == null) {
+                cell = new Cell<>(dimensions);
+                cells.put(key, cell);
+            }
+            cell.add(element, position);
+        } else {
+            unpartitioned.add(element, position);
+        }
+    }
+
+    @Override
+    public final boolean remove(final E element, final double... position) {
+        checkDimensions(position);
+        if (isPartitioned()) {
+            final long key = keyOf(position);
+            final Cell<E> cell = cells.get(key);
+            if (cell != null && cell.remove(element, position)) {
+                if (cell.size == 0) {
+                    cells.remove(key);
+                }
+                return true;
+            }
+            return false;
+        }
+        return unpartitioned.remove(element, position);
+    }
+
+    @Override
+    public final boolean move(final E element, final double[] start, final double[] end) {
+        checkDimensions(start);
+        checkDimensions(end);
+        if (isPartitioned()) {
+            final long from = keyOf(start);
+            if (from == keyOf(end)) {
+                final Cell<E> cell = cells.get(from);
+                return cell != null && cell.relocate(element, start, end);
+            }
+            if (remove(element, start)) {
+                insert(element, end);
+                return true;
+            }
+            return false;
+        }
+        return unpartitioned.relocate(element, start, end);
+    }
+
+    @Override
+    public final List<E> query(final double[]... parallelotope) {
+        final double[] min = new double[dimensions];
+        final double[] max = new double[dimensions];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (final double[] vertex : parallelotope) {
+            checkDimensions(vertex);
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                min[dimension] = Math.min(min[dimension], vertex[dimension]);
+                max[dimension] = Math.max(max[dimension], vertex[dimension]);
+            }
+        }
+        final List<E> result = new ArrayList<>();
+        visitWithin(min, max, (element, coordinates, offset) -> result.add(element));
+        return result;
+    }
+
+    /**
+     * Visits the elements within the provided box, along with their coordinates, without building any
+     * collection. The index must not be modified during the visit.
+     *
+     * @param min the lowest coordinates of the box
+     * @param max the highest coordinates of the box
+     * @param visitor the visitor to execute on each element within the box
+     */
+    protected final void visitWithin(final double[] min, final double[] max, final CellVisitor<? super E> visitor) {
+        checkDimensions(min);
+        checkDimensions(max);
+        if (!isPartitioned()) {
+            double candidateSize = Double.POSITIVE_INFINITY;
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                candidateSize = Math.min(candidateSize, (max[dimension] - min[dimension]) / 2);
+            }
+            if (candidateSize > 0 && Double.isFinite(candidateSize)) {
+                partition(candidateSize);
+            } else {
+                unpartitioned.visit(min, max, visitor);
+                return;
+            }
+        }
+        final long[] from = new long[dimensions];
+        final long[] to = new long[dimensions];
+        double visited = 1;
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            from[dimension] = cellOf(min[dimension]);
+            to[dimension] = cellOf(max[dimension]);
+            if (to[dimension] < from[dimension]) {
+                return;
+            }
+            visited *= (double) to[dimension] - from[dimension] + 1;
+        }
+        if (visited > cells.size()) {
+            /*
+             * Large (possibly infinite) boxes: scanning the occupied cells is cheaper than visiting the empty ones.
+             */
+            cells.forEachValue(cell -> {
+                cell.visit(min, max, visitor);
+                return true;
+            });
+        } else {
+            final long[] cursor = from.clone();
+            while (true) {
+                final Cell<E> cell = cells.get(key(cursor));
+                if (cell != null) {
+                    cell.visit(min, max, visitor);
+                }
+                int dimension = 0;
+                while (dimension < dimensions && cursor[dimension] == to[dimension]) {
+                    cursor[dimension] = from[dimension];
+                    dimension++;
+                }
+                if (dimension == dimensions) {
+                    return;
+                }
+                cursor[dimension]++;
+            }
+        }
+    }
+
+    /**
+     * Finds the k elements closest to the provided point among those satisfying the filter, visiting the cells in
+     * shells of growing distance from the one containing the point, until no unvisited cell can hold closer elements.
+     * Once the shells would cover more cells than the occupied ones, all the occupied cells get scanned instead.
+     * Elements at the same distance are ordered by the provided tie breaker, so that the result does not depend on
+     * the order in which the cells get visited.
+     *
+     * @param point the coordinates of the point
+     * @param k the maximum number of elements to find
+     * @param filter the condition elements must satisfy to be considered
+     * @param tieBreaker the order of the elements at the same distance
+     * @return the (at most) k closest elements, from the nearest to the farthest
+     */
+    protected final List<E> nearest(
+        final double[] point,
+        final int k,
+        final Predicate<? super E> filter,
+        final Comparator<? super E> tieBreaker
+    ) {
+        checkDimensions(point);
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one element must be searched for, but k is " + k);
+        }
+        /*
+         * The farthest of the best candidates found so far is on top, ready to be replaced
+         */
+        final PriorityQueue<Candidate<E>> best = new PriorityQueue<>(k, (a, b) -> {
+            final int byDistance = Double.compare(b.distance, a.distance);
+            return byDistance == 0 ? tieBreaker.compare(b.element, a.element) : byDistance;
+        });
+        final CellVisitor<E> collector = (element, coordinates, offset) -> {
+            if (filter.test(element)) {
+                double squared = 0;
+                for (int dimension = 0; dimension < dimensions; dimension++) {
+                    final double delta = coordinates[offset + dimension] - point[dimension];
+                    squared += delta * delta;
+                }
+                final double distance = Math.sqrt(squared);
+                if (best.size() < k) {
+                    best.add(new Candidate<>(element, distance));
+                } else if (distance < best.element().distance
+                    || distance == best.element().distance && tieBreaker.compare(element, best.element().element) < 0
+                ) {
+                    best.poll();
+                    best.add(new Candidate<>(element, distance));
+                }
+            }
+        };
+        if (isPartitioned()) {
+            final long[] center = new long[dimensions];
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                center[dimension] = cellOf(point[dimension]);
+            }
+            final long[] cursor = new long[dimensions];
+            for (long shell = 0; best.size() < k || (shell - 1) * cellSize <= best.element().distance; shell++) {
+                if (Math.pow(2.0 * shell + 1, dimensions) > cells.size()) {
+                    best.clear();
+                    cells.forEachValue(cell -> {
+                        cell.visitAll(collector);
+                        return true;
+                    });
+                    break;
+                }
+                visitShell(center, shell, cursor, 0, false, collector);
+            }
+        } else {
+            unpartitioned.visitAll(collector);
+        }
+        final List<E> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().element);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /*
+     * Visits the cells whose coordinates differ from the center by exactly shell along at least one dimension.
+     */
+    private void visitShell(
+        final long[] center,
+        final long shell,
+        final long[] cursor,
+        final int dimension,
+        final boolean onSurface,
+        final CellVisitor<? super E> visitor
+    ) {
+        if (dimension == dimensions - 1 && !onSurface) {
+            cursor[dimension] = center[dimension] - shell;
+            visitCell(cursor, visitor);
+            if (shell > 0) {
+                cursor[dimension] = center[dimension] + shell;
+                visitCell(cursor, visitor);
+            }
+            return;
+        }
+        for (long cell = center[dimension] - shell; cell <= center[dimension] + shell; cell++) {
+            cursor[dimension] = cell;
+            final boolean surface = onSurface || Math.abs(cell - center[dimension]) == shell;
+            if (dimension == dimensions - 1) {
+                visitCell(cursor, visitor);
+            } else {
+                visitShell(center, shell, cursor, dimension + 1, surface, visitor);
+            }
+        }
+    }
+
+    private void visitCell(final long[] coordinates, final CellVisitor<? super E> visitor) {
+        for (final long coordinate : coordinates) {
+            if (coordinate < minCell || coordinate > maxCell) {
+                return;
+            }
+        }
+        final Cell<E> cell = cells.get(key(coordinates));
+        if (cell != null) {
+            cell.visitAll(visitor);
+        }
+    }
+
+    private void partition(final double size) {
+        cellSize = size;
+        final Cell<E> elements = unpartitioned;
+        unpartitioned = null;
+        for (int i = 0; i < elements.size; i++) {
+            insert(elements.elements.get(i), elements.coordinatesOf(i));
+        }
+    }
+
+    private boolean isPartitioned() {
+        return unpartitioned == null;
+    }
+
+    private long cellOf(final double coordinate) {
+        return (long) Math.max(minCell, Math.min(maxCell, Math.floor(coordinate / cellSize)));
+    }
+
+    private long keyOf(final double[] position) {
+        long key = 0;
+        for (final double coordinate : position) {
+            key = (key << bits) | (cellOf(coordinate) & mask);
+        }
+        return key;
+    }
+
+    private long key(final long[] cell) {
+        long key = 0;
+        for (final long coordinate : cell) {
+            key = (key << bits) | (coordinate & mask);
+        }
+        return key;
+    }
+
+    private void checkDimensions(final double[] position) {
+        if (position.length != dimensions) {
+            throw new IllegalArgumentException(
+                "Expected " + dimensions + " coordinates, got " + Arrays.toString(position)
+            );
+        }
+    }
+
+    /**
+     * Action executed on the elements found by {@link #visitWithin(double[], double[], CellVisitor)} and during the
+     * searches of the nearest elements.
+     *
+     * @param <E> the type of the visited elements
+     */
+    @FunctionalInterface
+    protected interface CellVisitor<E> {
+        /**
+         * @param element the element
+         * @param coordinates the array holding the coordinates of the element, which must not be modified
+         * @param offset the index of the first coordinate of the element in the array
+         */
+        void visit(E element, double[] coordinates, int offset);
+    }
+
+    /**
+     * The elements falling in a cell, along with their coordinates, stored in a single array, one element after the
+     * other.
+     *
+     * @param <E> the type of the indexed elements
+     */
+    private static final class Cell<E> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private static final int INITIAL_CAPACITY = 4;
+        private final int dimensions;
+        private final List<E> elements = new ArrayList<>(INITIAL_CAPACITY);
+        private double[] coordinates;
+        private int size;
+
+        private Cell(final int dimensions) {
+            this.dimensions = dimensions;
+            coordinates = new double[INITIAL_CAPACITY * dimensions];
+        }
+
+        private void add(final E element, final double[] position) {
+            if (size * dimensions == coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+            }
+            elements.add(element);
+            System.arraycopy(position, 0, coordinates, size * dimensions, dimensions);
+            size++;
+        }
+
+        private boolean remove(final E element, final double[] position) {
+            final int index = indexOf(element, position);
+            if (index < 0) {
+                return false;
+            }
+            final int last = size - 1;
+            elements.set(index, elements.get(last));
+            elements.remove(last);
+            System.arraycopy(coordinates, last * dimensions, coordinates, index * dimensions, dimensions);
+            size = last;
+            return true;
+        }
+
+        private boolean relocate(final E element, final double[] position, final double[] newPosition) {
+            final int index = indexOf(element, position);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(newPosition, 0, coordinates, index * dimensions, dimensions);
+            return true;
+        }
+
+        private double[] coordinatesOf(final int index) {
+            return Arrays.copyOfRange(coordinates, index * dimensions, (index + 1) * dimensions);
+        }
+
+        private int indexOf(final E element, final double[] position) {
+            for (int i = 0; i < size; i++) {
+                if (isAt(i * dimensions, position) && Objects.equals(elements.get(i), element)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @SuppressFBWarnings("FE_FLOATING_POINT_EQUALITY")
+        private boolean isAt(final int offset, final double[] position) {
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                if (coordinates[offset + dimension] != position[dimension]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void visit(final double[] min, final double[] max, final CellVisitor<? super E> visitor) {
+            for (int i = 0; i < size; i++) {
+                final int offset = i * dimensions;
+                if (isWithin(offset, min, max)) {
+                    visitor.visit(elements.get(i), coordinates, offset);
+                }
+            }
+        }
+
+        private void visitAll(final CellVisitor<? super E> visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(elements.get(i), coordinates, i * dimensions);
+            }
+        }
+
+        private boolean isWithin(final int offset, final double[] min, final double[] max) {
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                final double coordinate = coordinates[offset + dimension];
+                if (!(coordinate >= min[dimension] && coordinate <= max[dimension])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Candidate<E> {
+        private final E element;
+        private final double distance;
+
+        private Candidate(final E element, final double distance) {
+            this.element = element;
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.environments;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A tridimensional {@link AbstractGridSpatialIndex}, partitioning the space in cubic cells of the same size.
+ * Cell coordinates are packed in 21 bits each, hence cells farther than about a million sides from the origin get
+ * merged with the outermost ones.
+ *
+ * @param <E> the type of the indexed elements
+ */
+public final class Grid3DSpatialIndex<E> extends AbstractGridSpatialIndex<E> {
+
+    private static final long serialVersionUID = 2L;
+    private static final int DIMENSIONS = 3;
+
+    /**
+     * Builds an index whose cell size gets computed upon the first query.
+     */
+    public Grid3DSpatialIndex() {
+        super(DIMENSIONS);
+    }
+
+    /**
+     * @param cellSize the side of the cells
+     */
+    public Grid3DSpatialIndex(final double cellSize) {
+        super(DIMENSIONS, cellSize);
+    }
+
+    /**
+     * Visits the elements within the provided box, along with their coordinates, without building any
+     * collection. The index must not be modified during the visit.
+     *
+     * @param min the lowest coordinates of the box
+     * @param max the highest coordinates of the box
+     * @param visitor the visitor to execute on each element within the box
+     */
+    public void forEachWithin(final double[] min, final double[] max, final Visitor<? super E> visitor) {
+        visitWithin(min, max, (element, coordinates, offset) ->
+            visitor.visit(element, coordinates[offset], coordinates[offset + 1], coordinates[offset + 2])
+        );
+    }
+
+    /**
+     * Finds the k elements closest to the provided point among those satisfying the filter
+     * (see {@link AbstractGridSpatialIndex#nearest(double[], int, Predicate, Comparator)}).
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param k the maximum number of elements to find
+     * @param filter the condition elements must satisfy to be considered
+     * @param tieBreaker the order of the elements at the same distance
+     * @return the (at most) k closest elements, from the nearest to the farthest
+     */
+    public List<E> nearest(
+        final double x,
+        final double y,
+        final double z,
+        final int k,
+        final Predicate<? super E> filter,
+        final Comparator<? super E> tieBreaker
+    ) {
+        return nearest(new double[] { x, y, z }, k, filter, tieBreaker);
+    }
+
+    /**
+     * Action executed on the elements found by {@link #forEachWithin(double[], double[], Visitor)}.
+     *
+     * @param <E> the type of the visited elements
+     */
+    @FunctionalInterface
+    public interface Visitor<E> {
+        /**
+         * @param element the element
+         * @param x the x coordinate of the element
+         * @param y the y coordinate of the element
+         * @param z the z coordinate of the element
+         */
+        void visit(E element, double x, double y, double z);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.environments;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A bidimensional {@link AbstractGridSpatialIndex}, partitioning the space in square cells of the same size.
+ * Queries work best when the cells are about as large as the ranges being queried: this is the case of dense,
+ * roughly uniform deployments queried with a fixed communication radius.
+ *
+ * @param <E> the type of the indexed elements
+ */
+public final class GridSpatialIndex<E> extends AbstractGridSpatialIndex<E> {
+
+    private static final long serialVersionUID = 2L;
+    private static final int DIMENSIONS = 2;
+
+    /**
+     * Builds an index whose cell size gets computed upon the first query.
+     */
+    public GridSpatialIndex() {
+        super(DIMENSIONS);
+    }
+
+    /**
+     * @param cellSize the side of the cells
+     */
+    public GridSpatialIndex(final double cellSize) {
+        super(DIMENSIONS, cellSize);
+    }
+
+    /**
+     * Visits the elements within the provided rectangle, along with their coordinates, without building any
+     * collection. The index must not be modified during the visit.
+     *
+     * @param minX the lowest x coordinate of the rectangle
+     * @param minY the lowest y coordinate of the rectangle
+     * @param maxX the highest x coordinate of the rectangle
+     * @param maxY the highest y coordinate of the rectangle
+     * @param visitor the visitor to execute on each element within the rectangle
+     */
+    public void forEachWithin(
+        final double minX,
+        final double minY,
+        final double maxX,
+        final double maxY,
+        final Visitor<? super E> visitor
+    ) {
+        visitWithin(
+            new double[] { minX, minY },
+            new double[] { maxX, maxY },
+            (element, coordinates, offset) -> visitor.visit(element, coordinates[offset], coordinates[offset + 1])
+        );
+    }
+
+    /**
+     * Finds the k elements closest to the provided point among those satisfying the filter
+     * (see {@link AbstractGridSpatialIndex#nearest(double[], int, Predicate, Comparator)}).
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param k the maximum number of elements to find
+     * @param filter the condition elements must satisfy to be considered
+     * @param tieBreaker the order of the elements at the same distance
+     * @return the (at most) k closest elements, from the nearest to the farthest
+     */
+    public List<E> nearest(
+        final double x,
+        final double y,
+        final int k,
+        final Predicate<? super E> filter,
+        final Comparator<? super E> tieBreaker
+    ) {
+        return nearest(new double[] { x, y }, k, filter, tieBreaker);
+    }
+
+    /**
+     * Action executed on the elements found by {@link #forEachWithin(double, double, double, double, Visitor)}.
+     *
+     * @param <E> the type of the visited elements
+     */
+    @FunctionalInterface
+    public interface Visitor<E> {
+        /**
+         * @param element the element
+         * @param x the x coordinate of the element
+         * @param y the y coordinate of the element
+         */
+        void visit(E element, double x, double y);
+    }
+}
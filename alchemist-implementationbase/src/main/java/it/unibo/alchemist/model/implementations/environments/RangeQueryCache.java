@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.environments;
+
+import it.unibo.alchemist.model.interfaces.Node;
+import it.unibo.alchemist.model.interfaces.Position;
+import org.danilopianini.util.ListSet;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of the results of range queries, used by {@link AbstractEnvironment}.
+ * Space is partitioned in a grid of cells, each one with a version, which gets incremented whenever a node enters,
+ * leaves, or moves within the cell: a change costs a constant time, regardless of how many queries are cached.
+ * Each cached result records the cells its range overlaps, along with the sum of their versions:
+ * lookups recompute the sum, and discard the result if it changed, namely if a node moved nearby.
+ * Queries in regions where nothing changed keep hitting the cache.
+ * Versions are stored in a fixed-size table indexed by a hash of the cell: cells sharing a slot invalidate
+ * each other's results, which is conservative, and never returns stale results.
+ * Results whose range overlaps too many cells are only valid until any node changes.
+ * The cell side is the extent of the range of the first query cached, in the coordinate space of the positions
+ * (as returned by {@link Position#boundingBox(double)}), as most queries usually share the same range.
+ * <br>
+ * Entries get evicted in least-recently-used order. When the queries get issued by a single thread, as
+ * the simulation engines do, whether a query hits the cache only depends on the sequence of operations performed on
+ * the environment, and simulations stay reproducible. Queries get computed outside the lock, so concurrent callers
+ * are allowed, but they make the eviction order (and thus which queries hit the cache) depend on thread scheduling.
+ * Entries are indexed by query center, with the (few) ranges queried from the same center chained:
+ * lookups do not allocate.
+ *
+ * @param <T> concentration type
+ * @param <P> position type
+ */
+final class RangeQueryCache<T, P extends Position<P>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int VERSION_SLOTS = 1 << 14;
+    private static final int MAX_CELLS_PER_ENTRY = 64;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private final Query<T, P> query;
+    private final Map<P, Entry<T>> entries;
+    private final long[] versions = new long[VERSION_SLOTS];
+    /*
+     * Incremented upon any change, to validate the results overlapping too many cells.
+     */
+    private long globalVersion;
+    private double cellSide = Double.NaN;
+    private int[] cursor = new int[0];
+
+    /**
+     * @param maximumSize the maximum number of query centers to retain
+     * @param query the function computing the nodes within a range, invoked upon cache misses
+     */
+    RangeQueryCache(final int maximumSize, final Query<T, P> query) {
+        this.query = query;
+        this.entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<P, Entry<T>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * @param center the query center
+     * @param range the query range
+     * @return the nodes within range, either cached or computed by the query function
+     */
+    ListSet<Node<T>> get(final P center, final double range) {
+        synchronized (this) {
+            final ListSet<Node<T>> cached = lookup(center, range);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        /*
+         * Queries get computed outside the lock, as they may be concurrent.
+         * The cells get stamped before computing, so that changes in the meanwhile invalidate the result.
+         */
+        final Entry<T> stamped = stamp(center, range);
+        final ListSet<Node<T>> result = query.run(center, range);
+        synchronized (this) {
+            if (lookup(center, range) == null) {
+                stamped.result = result;
+                stamped.next = entries.get(center);
+                entries.put(center, stamped);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidates the results of the queries whose range may include any of the provided positions.
+     *
+     * @param former the position a node had before changing, if any
+     * @param current the position a node has after changing, if any
+     */
+    synchronized void invalidateAround(@Nullable final P former, @Nullable final P current) {
+        globalVersion++;
+        if (!Double.isNaN(cellSide)) {
+            if (former != null) {
+                versions[slotOf(former)]++;
+            }
+            if (current != null) {
+                versions[slotOf(current)]++;
+            }
+        }
+    }
+
+    @Nullable
+    private ListSet<Node<T>> lookup(final P center, final double range) {
+        final Entry<T> first = entries.get(center);
+        Entry<T> previous = null;
+        for (Entry<T> entry = first; entry != null; entry = entry.next) {
+            if (entry.range == range) {
+                if (entry.version == versionOf(entry)) {
+                    return entry.result;
+                }
+                // Stale: drop it
+                if (previous == null) {
+                    if (entry.next == null) {
+                        entries.remove(center);
+                    } else {
+                        entries.put(center, entry.next);
+                    }
+                } else {
+                    previous.next = entry.next;
+                }
+                return null;
+            }
+            previous = entry;
+        }
+        return null;
+    }
+
+    private synchronized Entry<T> stamp(final P center, final double range) {
+        final List<P> corners = center.boundingBox(range);
+        final int dimensions = center.getDimensions();
+        final double[] lowest = new double[dimensions];
+        final double[] highest = new double[dimensions];
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            lowest[dimension] = Double.POSITIVE_INFINITY;
+            highest[dimension] = Double.NEGATIVE_INFINITY;
+            for (final P corner : corners) {
+                lowest[dimension] = Math.min(lowest[dimension], corner.getCoordinate(dimension));
+                highest[dimension] = Math.max(highest[dimension], corner.getCoordinate(dimension));
+            }
+        }
+        if (Double.isNaN(cellSide)) {
+            double side = 0;
+            for (int dimension = 0; dimension < dimensions; dimension++) {
+                side = Math.max(side, (highest[dimension] - lowest[dimension]) / 2);
+            }
+            cellSide = side > 0 && Double.isFinite(side) ? side : 1;
+            cursor = new int[dimensions];
+        }
+        final int[] minCell = new int[dimensions];
+        final int[] maxCell = new int[dimensions];
+        long cells = 1;
+        for (int dimension = 0; dimension < dimensions; dimension++) {
+            minCell[dimension] = cellOf(lowest[dimension]);
+            maxCell[dimension] = cellOf(highest[dimension]);
+            cells *= (long) maxCell[dimension] - minCell[dimension] + 1;
+            if (cells > MAX_CELLS_PER_ENTRY || cells < 1) {
+                cells = Long.MAX_VALUE;
+            }
+        }
+        final Entry<T> entry = cells > MAX_CELLS_PER_ENTRY
+            ? new Entry<>(range, null, null)
+            : new Entry<>(range, minCell, maxCell);
+        entry.version = versionOf(entry);
+        return entry;
+    }
+
+    /*
+     * The sum of the versions of the cells covered by the entry: as versions only grow, any change modifies it.
+     */
+    private long versionOf(final Entry<T> entry) {
+        if (entry.minCell == null || entry.maxCell == null) {
+            return globalVersion;
+        }
+        final int[] minCell = entry.minCell;
+        final int[] maxCell = entry.maxCell;
+        System.arraycopy(minCell, 0, cursor, 0, minCell.length);
+        long sum = 0;
+        while (true) {
+            sum += versions[slotOf(cursor)];
+            int dimension = 0;
+            while (dimension < cursor.length && cursor[dimension] == maxCell[dimension]) {
+                cursor[dimension] = minCell[dimension];
+                dimension++;
+            }
+            if (dimension == cursor.length) {
+                return sum;
+            }
+            cursor[dimension]++;
+        }
+    }
+
+    private int cellOf(final double coordinate) {
+        return (int) Math.floor(coordinate / cellSide);
+    }
+
+    private int slotOf(final P position) {
+        long hash = 0;
+        for (int dimension = 0; dimension < position.getDimensions(); dimension++) {
+            hash = (hash + cellOf(position.getCoordinate(dimension))) * HASH_MULTIPLIER;
+        }
+        return slot(hash);
+    }
+
+    private int slotOf(final int[] cell) {
+        long hash = 0;
+        for (final int coordinate : cell) {
+            hash = (hash + coordinate) * HASH_MULTIPLIER;
+        }
+        return slot(hash);
+    }
+
+    private static int slot(final long hash) {
+        return (int) (hash ^ hash >>> 32) & (VERSION_SLOTS - 1);
+    }
+
+    /**
+     * Computes the nodes within a range.
+     *
+     * @param <T> concentration type
+     * @param <P> position type
+     */
+    @FunctionalInterface
+    interface Query<T, P extends Position<P>> {
+        /**
+         * @param center the query center
+         * @param range the query range
+         * @return the nodes within range
+         */
+        ListSet<Node<T>> run(P center, double range);
+    }
+
+    private static final class Entry<T> {
+        private final double range;
+        @Nullable
+        private final int[] minCell;
+        @Nullable
+        private final int[] maxCell;
+        private long version;
+        private ListSet<Node<T>> result;
+        @Nullable
+        private Entry<T> next;
+
+        private Entry(final double range, @Nullable final int[] minCell, @Nullable final int[] maxCell) {
+            this.range = range;
+            this.minCell = minCell;
+            this.maxCell = maxCell;
+        }
+    }
+}
@@ -14,9 +14,9 @@ import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Neighborhood;
 import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position;
-import org.danilopianini.util.ListSet;
 
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This linking rule dynamically searches for the best radius for each device,
@@ -173,10 +173,13 @@ public class AdaptiveRange<T, P extends Position<P>> extends ConnectWithinDistan
             ranges.put(center.getId(), getRange());
         }
         final double curRange = ranges.get(center.getId());
-        final ListSet<Node<T>> potentialNeighs = environment.getNodesWithinRange(center, curRange);
-        final Neighborhood<T> neigh = Neighborhoods.make(environment, center, potentialNeighs.stream()
-                .filter(neighbor -> !conditionForRemoval(environment, center, neighbor, curRange, ranges.get(neighbor.getId())))
-                .collect(Collectors.toList()));
+        final List<Node<T>> neighbors = new ArrayList<>();
+        environment.forEachNodeWithinRange(center, curRange, neighbor -> {
+            if (!conditionForRemoval(environment, center, neighbor, curRange, ranges.get(neighbor.getId()))) {
+                neighbors.add(neighbor);
+            }
+        });
+        final Neighborhood<T> neigh = Neighborhoods.make(environment, center, neighbors);
         if (neigh.size() > n + t) {
             ranges.put(center.getId(), Math.max(curRange - defaultAdjustment, minRange));
         } else if (neigh.size() < Math.max(1, n - t)) {
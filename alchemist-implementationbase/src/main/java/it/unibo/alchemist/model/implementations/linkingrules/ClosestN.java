@@ -9,10 +9,7 @@ package it.unibo.alchemist.model.implementations.linkingrules;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.MinMaxPriorityQueue;
-import com.google.common.primitives.Doubles;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import it.unibo.alchemist.util.BugReporting;
 import it.unibo.alchemist.model.implementations.neighborhoods.Neighborhoods;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.LinkingRule;
@@ -20,11 +17,9 @@ import it.unibo.alchemist.model.interfaces.Neighborhood;
 import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position;
 import org.apache.commons.math3.util.FastMath;
-import org.danilopianini.util.stream.SmallestN;
-import org.jooq.lambda.tuple.Tuple2;
 
-import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
@@ -33,6 +28,10 @@ import java.util.stream.Stream;
 /**
  * Non local-consistent rule that connect the closest N nodes together.
  * Two nodes get connected if either one belongs to the set of the ten devices closest to the other.
+ * The closest nodes are found through {@link Environment#getNearestNodes(Node, int, java.util.function.Predicate)},
+ * with a single query per node: nodes at the same distance are preferred in order of id.
+ * The distance of the farthest of the closest nodes is recorded as the communication range of each node,
+ * for up to maxNodes nodes (see {@link #getRange(Environment, Node)}).
  * 
  * @param <T> Concentration type
  * @param <P> {@link Position} type
@@ -120,36 +119,12 @@ public class ClosestN<T, P extends Position<P>> implements LinkingRule<T, P> {
         if (!nodeIsEnabled(center)) {
             return Stream.empty();
         }
-        double currentRange = getRange(environment, center);
-        Set<Node<T>> inRange;
-        final double maxRange = Doubles.max(environment.getSizeInDistanceUnits()) * 2;
-        do {
-            inRange = (environment.getNodeCount() > n && currentRange < maxRange
-                    ? nodesInRange(environment, center, currentRange).stream()
-                    : environment.getNodes().stream())
-                        .filter(n -> !n.equals(center) && nodeIsEnabled(n))
-                        .collect(Collectors.toCollection(LinkedHashSet::new));
-            currentRange *= 2;
-        } while (inRange.size() < n && inRange.size() < environment.getNodeCount() - 1 && currentRange < maxRange * 2);
-        if (inRange.isEmpty()) {
-            return Stream.empty();
-        }
-        final MinMaxPriorityQueue<Tuple2<Double, Node<T>>> closestN = inRange.stream()
-                .map(node -> new Tuple2<>(environment.getDistanceBetweenNodes(center, node), node))
-                .collect(new SmallestN<>(n));
-        final var farthestNode = closestN.peekLast();
-        if (farthestNode == null) {
-            final var debugDetails = new HashMap<String, Object>();
-            debugDetails.put("farthestNode", null);
-            debugDetails.put("inRange", inRange);
-            debugDetails.put("closestN", closestN);
-            BugReporting.reportBug(
-                "neighbors were found, but no neighbor was included in the list",
-                debugDetails
-            );
+        final List<Node<T>> closest = environment.getNearestNodes(center, n, this::nodeIsEnabled);
+        if (maxNodes > 0 && !closest.isEmpty()) {
+            final double farthest = environment.getDistanceBetweenNodes(center, closest.get(closest.size() - 1));
+            ranges().put(center, Math.max(Double.MIN_VALUE, farthest) * CONNECTION_RANGE_TOLERANCE);
         }
-        setRange(center, Math.max(Double.MIN_VALUE, farthestNode.v1()) * CONNECTION_RANGE_TOLERANCE);
-        return closestN.stream().map(Tuple2::v2);
+        return closest.stream();
     }
 
     /**
@@ -178,14 +153,19 @@ public class ClosestN<T, P extends Position<P>> implements LinkingRule<T, P> {
     }
 
     /**
-     * Gets the communication range of a node.
-     * 
+     * Gets the communication range of a node: the one recorded when its closest nodes were last computed,
+     * or an estimate based on the density of the environment otherwise.
+     *
      * @param environment
      *            the environment
      * @param center
      *            the node
      * @return the communication range
+     * @deprecated the closest nodes are found through
+     *             {@link Environment#getNearestNodes(Node, int, java.util.function.Predicate)},
+     *             which does not need ranges
      */
+    @Deprecated
     protected final double getRange(final Environment<T, ?> environment, final Node<T> center) {
         try {
             /*
@@ -211,13 +191,17 @@ public class ClosestN<T, P extends Position<P>> implements LinkingRule<T, P> {
     }
 
     /**
-     * Sets a communication range for a node. Used for optimization purposes.
-     * 
+     * Sets a communication range for a node.
+     *
      * @param center
      *            the node
      * @param range
      *            the range
+     * @deprecated the closest nodes are found through
+     *             {@link Environment#getNearestNodes(Node, int, java.util.function.Predicate)},
+     *             which does not need ranges
      */
+    @Deprecated
     protected final void setRange(final Node<T> center, final double range) {
         ranges().put(center, range);
     }
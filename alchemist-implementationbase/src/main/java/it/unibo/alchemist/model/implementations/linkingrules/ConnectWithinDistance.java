@@ -7,15 +7,30 @@
  */
 package it.unibo.alchemist.model.implementations.linkingrules;
 
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 import it.unibo.alchemist.model.implementations.neighborhoods.Neighborhoods;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Neighborhood;
 import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Position;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * LinkingRule which connects nodes whose euclidean distance is shorter than a
  * given radius.
+ * <p>
+ * If a positive skin is provided, each node keeps a Verlet list: the nodes within
+ * the radius plus the skin at the time the list was built. Neighborhoods are then
+ * computed by filtering the list, and the environment gets queried again only when
+ * some node drifts too far from the position it had when lists were last built.
+ * Lists are rebuilt lazily, one node at a time, hence the maximum drift allowed to
+ * each node is a quarter of the skin: two nodes can never get closer by more than
+ * the skin since either list was built. Larger skins mean fewer queries, but longer
+ * lists to filter.
  * 
  * @param <T>
  *            The type which describes the concentration of a molecule
@@ -25,13 +40,30 @@ public class ConnectWithinDistance<T, P extends Position<P>> extends AbstractLoc
 
     private static final long serialVersionUID = -405055780667941773L;
     private final double range;
+    private final double skin;
+    private final TIntObjectMap<VerletList<T, P>> verletLists = new TIntObjectHashMap<>();
+    private int epoch;
 
     /**
      * @param radius
      *            connection radius
      */
     public ConnectWithinDistance(final double radius) {
+        this(radius, 0);
+    }
+
+    /**
+     * @param radius
+     *            connection radius
+     * @param skin
+     *            additional distance covered by the Verlet lists, zero disables them
+     */
+    public ConnectWithinDistance(final double radius, final double skin) {
+        if (!(skin >= 0)) {
+            throw new IllegalArgumentException("The skin must be a non-negative number, but it is " + skin);
+        }
         range = radius;
+        this.skin = skin;
     }
 
     /**
@@ -39,7 +71,23 @@ public class ConnectWithinDistance<T, P extends Position<P>> extends AbstractLoc
      */
     @Override
     public Neighborhood<T> computeNeighborhood(final Node<T> center, final Environment<T, P> environment) {
-        return Neighborhoods.make(environment, center, environment.getNodesWithinRange(center, range));
+        if (skin > 0) {
+            return Neighborhoods.make(environment, center, verletNeighbors(center, environment));
+        }
+        final List<Node<T>> neighbors = new ArrayList<>();
+        environment.forEachNodeWithinRange(center, range, neighbors::add);
+        return Neighborhoods.make(environment, center, neighbors);
+    }
+
+    /**
+     * Forgets the Verlet list of the removed node, and invalidates all the others,
+     * as they may still contain it.
+     */
+    @Override
+    public synchronized void nodeRemoved(final Node<T> node, final Environment<T, P> environment) {
+        if (verletLists.remove(node.getId()) != null) {
+            epoch++;
+        }
     }
 
     /**
@@ -49,4 +97,73 @@ public class ConnectWithinDistance<T, P extends Position<P>> extends AbstractLoc
         return range;
     }
 
+    /**
+     * @return the skin of the Verlet lists, zero if they are disabled
+     */
+    protected final double getSkin() {
+        return skin;
+    }
+
+    private synchronized List<Node<T>> verletNeighbors(final Node<T> center, final Environment<T, P> environment) {
+        final P position = environment.getPosition(center);
+        final double maxDrift = skin / 4;
+        VerletList<T, P> list = verletLists.get(center.getId());
+        if (list == null) {
+            /*
+             * New node: its list is built right away, and it joins the valid lists of its candidates
+             */
+            list = buildList(center, position, environment);
+            for (final Node<T> candidate : list.candidates) {
+                final VerletList<T, P> other = verletLists.get(candidate.getId());
+                if (other != null && other.epoch == epoch && !other.candidates.contains(center)) {
+                    other.candidates.add(center);
+                }
+            }
+        } else if (list.epoch != epoch) {
+            /*
+             * The node did not move since the lists got invalidated, unless it just jumped
+             */
+            if (list.last.distanceTo(position) > maxDrift) {
+                epoch++;
+                list = buildList(center, position, environment);
+            } else {
+                list = buildList(center, list.last, environment);
+            }
+        } else if (list.anchor.distanceTo(position) > maxDrift) {
+            epoch++;
+            list = buildList(center, position, environment);
+        }
+        list.last = position;
+        final List<Node<T>> neighbors = new ArrayList<>(list.candidates.size());
+        for (final Node<T> candidate : list.candidates) {
+            if (environment.getDistanceBetweenNodes(center, candidate) <= range) {
+                neighbors.add(candidate);
+            }
+        }
+        return neighbors;
+    }
+
+    private VerletList<T, P> buildList(final Node<T> center, final P anchor, final Environment<T, P> environment) {
+        final List<Node<T>> candidates = new ArrayList<>();
+        environment.forEachNodeWithinRange(center, range + skin, candidates::add);
+        final VerletList<T, P> list = new VerletList<>(epoch, anchor, candidates);
+        verletLists.put(center.getId(), list);
+        return list;
+    }
+
+    private static final class VerletList<T, P extends Position<P>> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int epoch;
+        private final P anchor;
+        private final List<Node<T>> candidates;
+        private P last;
+
+        private VerletList(final int epoch, final P anchor, final List<Node<T>> candidates) {
+            this.epoch = epoch;
+            this.anchor = anchor;
+            this.candidates = candidates;
+            last = anchor;
+        }
+    }
+
 }
@@ -55,10 +55,16 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
     private final int hash;
     private List<? extends Action<T>> actions = new ArrayList<>(0);
     private List<? extends Condition<T>> conditions = new ArrayList<>(0);
+    /*
+     * Read-only views, built once: the engine reads the conditions at every execution.
+     */
+    private List<Action<T>> actionsView = Collections.unmodifiableList(actions);
+    private List<Condition<T>> conditionsView = Collections.unmodifiableList(conditions);
     private Context incontext = Context.LOCAL, outcontext = Context.LOCAL;
     private ListSet<Dependency> outbound = new LinkedListSet<>();
     private ListSet<Dependency> inbound = new LinkedListSet<>();
     private int stringLength = Byte.MAX_VALUE;
+    private int schedulerHandle = -1;
     private final TimeDistribution<T> timeDistribution;
     private final Node<T> node;
 
@@ -116,7 +122,7 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
 
     @Override
     public final int compareTo(final Actionable<T> o) {
-        return getTau().compareTo(o.getTau());
+        return Double.compare(getTauAsDouble(), o.getTauAsDouble());
     }
 
     @Override
@@ -129,8 +135,8 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
      */
     @Override
     public void execute() {
-        for (final Action<T> a : actions) {
-            a.execute();
+        for (int i = 0; i < actions.size(); i++) {
+            actions.get(i).execute();
         }
     }
 
@@ -143,7 +149,7 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
     @Nonnull
     @Override
     public List<Action<T>> getActions() {
-        return Collections.unmodifiableList(actions);
+        return actionsView;
     }
 
     /**
@@ -155,7 +161,7 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
     @Nonnull
     @Override
     public List<Condition<T>> getConditions() {
-        return Collections.unmodifiableList(conditions);
+        return conditionsView;
     }
 
     @Nonnull
@@ -204,6 +210,21 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
         return timeDistribution.getNextOccurence();
     }
 
+    @Override
+    public final double getTauAsDouble() {
+        return timeDistribution.getNextOccurenceAsDouble();
+    }
+
+    @Override
+    public final int getSchedulerHandle() {
+        return schedulerHandle;
+    }
+
+    @Override
+    public final void setSchedulerHandle(final int schedulerHandle) {
+        this.schedulerHandle = schedulerHandle;
+    }
+
     @Nonnull
     @Override
     public final TimeDistribution<T> getTimeDistribution() {
@@ -275,6 +296,7 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
     @Override
     public void setActions(@Nonnull final List<? extends Action<T>> actions) {
         this.actions = Objects.requireNonNull(actions, "The actions list can't be null");
+        this.actionsView = Collections.unmodifiableList(actions);
         setOutputContext(actions.stream().map(Action::getContext).reduce(Context.LOCAL, Context::getWider));
         outbound = computeDependencies(actions.stream().map(Action::getOutboundDependencies).flatMap(List::stream));
     }
@@ -288,6 +310,7 @@ public abstract class AbstractReaction<T> implements Reaction<T> {
     @Override
     public void setConditions(@Nonnull final List<? extends Condition<T>> conditions) {
         this.conditions = Objects.requireNonNull(conditions, "The conditions list can't be null");
+        this.conditionsView = Collections.unmodifiableList(conditions);
         setInputContext(conditions.stream().map(Condition::getContext).reduce(Context.LOCAL, Context::getWider));
         inbound = computeDependencies(conditions.stream().map(Condition::getInboundDependencies).flatMap(List::stream));
     }
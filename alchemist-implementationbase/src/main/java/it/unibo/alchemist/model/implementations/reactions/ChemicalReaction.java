@@ -8,6 +8,7 @@
  */
 package it.unibo.alchemist.model.implementations.reactions;
 
+import it.unibo.alchemist.model.implementations.timedistributions.TauLeapingTime;
 import it.unibo.alchemist.model.interfaces.Condition;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Node;
@@ -17,8 +18,10 @@ import it.unibo.alchemist.model.interfaces.TimeDistribution;
 import javax.annotation.Nonnull;
 
 /**
- * 
- * 
+ * A reaction whose propensity is the product of its rate and of the propensity contributions of its conditions.
+ * If its time distribution is a {@link TauLeapingTime}, every execution fires the reaction as many times as
+ * drawn by the distribution, stopping earlier if the reaction can no longer execute.
+ *
  * @param <T> concentration type
  */
 public class ChemicalReaction<T> extends AbstractReaction<T> {
@@ -50,6 +53,25 @@ public class ChemicalReaction<T> extends AbstractReaction<T> {
         update(atTime, true, environment);
     }
 
+    @Override
+    public void execute() {
+        final TimeDistribution<T> distribution = getTimeDistribution();
+        final int firings = distribution instanceof TauLeapingTime
+            ? ((TauLeapingTime<T>) distribution).drawFirings()
+            : 1;
+        for (int firing = 0; firing < firings && (firing == 0 || canExecute()); firing++) {
+            fire();
+        }
+    }
+
+    /**
+     * Fires the reaction once, executing its actions.
+     * Subclasses willing to change how the actions get executed should override this method.
+     */
+    protected void fire() {
+        super.execute();
+    }
+
     /**
      * Subclasses must call super.updateInternalStatus for the rate to get updated in case of method override.
      */
@@ -7,6 +7,7 @@
  */
 package it.unibo.alchemist.model.implementations.timedistributions;
 
+import it.unibo.alchemist.model.implementations.times.DoubleTime;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Node;
 import it.unibo.alchemist.model.interfaces.Time;
@@ -22,7 +23,11 @@ import it.unibo.alchemist.model.interfaces.TimeDistribution;
 public abstract class AbstractDistribution<T> implements TimeDistribution<T> {
 
     private static final long serialVersionUID = -8906648194668569179L;
-    private Time tau;
+    /*
+     * The next occurrence is stored as a double, the corresponding Time gets created only if requested.
+     */
+    private double tau;
+    private Time tauAsTime;
     private boolean schedulable;
     private final Time startTime;
 
@@ -31,7 +36,7 @@ public abstract class AbstractDistribution<T> implements TimeDistribution<T> {
      *            initial time
      */
     public AbstractDistribution(final Time start) {
-        tau = start;
+        setNextOccurrence(start);
         startTime = start;
     }
 
@@ -42,7 +47,19 @@ public abstract class AbstractDistribution<T> implements TimeDistribution<T> {
      *            the new time
      */
     protected final void setNextOccurrence(final Time t) {
+        this.tau = t.toDouble();
+        this.tauAsTime = t;
+    }
+
+    /**
+     * Allows subclasses to set the next putative time without creating a {@link Time}. Use with care.
+     *
+     * @param t
+     *            the new time
+     */
+    protected final void setNextOccurrence(final double t) {
         this.tau = t;
+        this.tauAsTime = null;
     }
 
     @Override
@@ -68,6 +85,14 @@ public abstract class AbstractDistribution<T> implements TimeDistribution<T> {
 
     @Override
     public final Time getNextOccurence() {
+        if (tauAsTime == null) {
+            tauAsTime = tau == Double.POSITIVE_INFINITY ? Time.INFINITY : new DoubleTime(tau);
+        }
+        return tauAsTime;
+    }
+
+    @Override
+    public final double getNextOccurenceAsDouble() {
         return tau;
     }
 
@@ -54,7 +54,7 @@ public class DiracComb<T> extends AbstractDistribution<T> {
             final double param,
             final Environment<T, ?> environment) {
         if (executed) {
-            setNextOccurrence(new DoubleTime(currentTime.toDouble() + timeInterval));
+            setNextOccurrence(currentTime.toDouble() + timeInterval);
         }
     }
 
@@ -7,15 +7,17 @@
  */
 package it.unibo.alchemist.model.implementations.timedistributions;
 
+import it.unibo.alchemist.model.implementations.times.DoubleTime;
 import it.unibo.alchemist.model.interfaces.Node;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.util.FastMath;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import it.unibo.alchemist.model.implementations.times.DoubleTime;
 import it.unibo.alchemist.model.interfaces.Environment;
 import it.unibo.alchemist.model.interfaces.Time;
 
+import java.util.Arrays;
+
 /**
  * Markovian events.
  * 
@@ -28,6 +30,10 @@ public class ExponentialTime<T> extends AbstractDistribution<T> {
     @SuppressFBWarnings(value = "SE_BAD_FIELD", justification = "All the random engines provided by Apache are Serializable")
     private final RandomGenerator randomGenerator;
     private final double rate;
+    /*
+     * Subclasses overriding the deprecated genTime keep getting it called, at the cost of a Time per event.
+     */
+    private final boolean genTimeOverridden = overridesGenTime(getClass());
 
     /**
      * @param markovianRate
@@ -72,18 +78,19 @@ public class ExponentialTime<T> extends AbstractDistribution<T> {
         oldPropensity = newpropensity;
     }
 
+    @SuppressWarnings("deprecation")
     @SuppressFBWarnings("FE_FLOATING_POINT_EQUALITY")
     private void update(final double newpropensity, final boolean isMu, final Time curTime) {
         assert !Double.isNaN(newpropensity);
         assert !Double.isNaN(oldPropensity);
+        final double now = curTime.toDouble();
         if (isMu) {
-            final Time dt = genTime(newpropensity);
-            setNextOccurrence(curTime.plus(dt));
+            setNextOccurrence(
+                now + (genTimeOverridden ? genTime(newpropensity).toDouble() : uniformToExponential(newpropensity))
+            );
         } else {
             if (oldPropensity != newpropensity) {
-                final Time sub = getNextOccurence().minus(curTime);
-                final Time mul = sub.times(oldPropensity / newpropensity);
-                setNextOccurrence(mul.plus(curTime));
+                setNextOccurrence((getNextOccurenceAsDouble() - now) * (oldPropensity / newpropensity) + now);
             }
         }
     }
@@ -93,7 +100,10 @@ public class ExponentialTime<T> extends AbstractDistribution<T> {
      *            the current propensity for the reaction
      * @return the next occurrence time for the reaction, in case this is the
      *         reaction which have been executed.
+     * @deprecated next occurrences are computed on primitive doubles, with no {@link Time} allocation:
+     *             this method only gets called if a subclass overrides it
      */
+    @Deprecated
     protected Time genTime(final double propensity) {
         return new DoubleTime(uniformToExponential(propensity));
     }
@@ -102,6 +112,18 @@ public class ExponentialTime<T> extends AbstractDistribution<T> {
         return -FastMath.log1p(-randomGenerator.nextDouble()) / lambda;
     }
 
+    private static boolean overridesGenTime(final Class<?> type) {
+        for (Class<?> current = type; !ExponentialTime.class.equals(current); current = current.getSuperclass()) {
+            if (Arrays.stream(current.getDeclaredMethods()).anyMatch(method ->
+                "genTime".equals(method.getName())
+                    && Arrays.equals(method.getParameterTypes(), new Class<?>[] { double.class })
+            )) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Must be overridden by subclasses returning the correct instance.
      *
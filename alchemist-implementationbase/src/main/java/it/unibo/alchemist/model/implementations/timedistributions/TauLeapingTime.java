@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.timedistributions;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import it.unibo.alchemist.model.interfaces.Environment;
+import it.unibo.alchemist.model.interfaces.Node;
+import it.unibo.alchemist.model.interfaces.Time;
+import org.apache.commons.math3.distribution.PoissonDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Approximate Markovian events, simulated through tau-leaping.
+ * Rather than firing once per exponentially distributed waiting time, the reaction
+ * advances in leaps, and fires, at the end of each leap, a Poisson-distributed number of times
+ * whose mean is the integral of the propensity over the leap
+ * (see {@link it.unibo.alchemist.model.implementations.reactions.ChemicalReaction}).
+ * <br>
+ * The leap gets selected adaptively, following the leap condition: every leap should alter the propensity
+ * by at most a fraction epsilon. The relative change of propensity due to a single firing is observed
+ * at every execution, and the leap is sized so that the expected number of firings does not exceed
+ * epsilon divided by such change (nor a given maximum).
+ * When the allowed number of firings is below a critical threshold (namely, when counts are low),
+ * or when no execution has been observed yet, the distribution falls back to exact SSA,
+ * behaving as an {@link ExponentialTime}.
+ *
+ * @param <T> concentration type
+ */
+public class TauLeapingTime<T> extends AbstractDistribution<T> {
+
+    /**
+     * Default maximum relative change of propensity allowed in a leap.
+     */
+    public static final double DEFAULT_EPSILON = 0.03;
+    /**
+     * Default number of expected firings below which exact SSA gets used.
+     */
+    public static final int DEFAULT_CRITICAL_FIRINGS = 10;
+    /**
+     * Default maximum number of expected firings in a single leap.
+     */
+    public static final int DEFAULT_MAX_FIRINGS = 1000;
+    private static final long serialVersionUID = 1L;
+    @SuppressFBWarnings(
+        value = "SE_BAD_FIELD",
+        justification = "All the random engines provided by Apache are Serializable"
+    )
+    private final RandomGenerator randomGenerator;
+    private final double rate;
+    private final double epsilon;
+    private final int criticalFirings;
+    private final int maxFirings;
+    private double propensity;
+    private double sensitivity = Double.NaN;
+    private boolean leaping;
+    private double leapStart;
+    private double integratedPropensity;
+    private int firings;
+
+    /**
+     * @param markovianRate
+     *            Markovian rate for this distribution
+     * @param randomGenerator
+     *            {@link RandomGenerator} used internally
+     */
+    public TauLeapingTime(final double markovianRate, final RandomGenerator randomGenerator) {
+        this(markovianRate, DEFAULT_EPSILON, randomGenerator);
+    }
+
+    /**
+     * @param markovianRate
+     *            Markovian rate for this distribution
+     * @param epsilon
+     *            maximum relative change of propensity allowed in a leap
+     * @param randomGenerator
+     *            {@link RandomGenerator} used internally
+     */
+    public TauLeapingTime(final double markovianRate, final double epsilon, final RandomGenerator randomGenerator) {
+        this(markovianRate, epsilon, DEFAULT_CRITICAL_FIRINGS, DEFAULT_MAX_FIRINGS, randomGenerator);
+    }
+
+    /**
+     * @param markovianRate
+     *            Markovian rate for this distribution
+     * @param epsilon
+     *            maximum relative change of propensity allowed in a leap
+     * @param criticalFirings
+     *            number of expected firings per leap below which exact SSA gets used
+     * @param maxFirings
+     *            maximum number of expected firings in a single leap
+     * @param randomGenerator
+     *            {@link RandomGenerator} used internally
+     */
+    public TauLeapingTime(
+            final double markovianRate,
+            final double epsilon,
+            final int criticalFirings,
+            final int maxFirings,
+            final RandomGenerator randomGenerator
+    ) {
+        this(markovianRate, epsilon, criticalFirings, maxFirings, Time.ZERO, randomGenerator);
+    }
+
+    /**
+     * @param markovianRate
+     *            Markovian rate for this distribution
+     * @param epsilon
+     *            maximum relative change of propensity allowed in a leap
+     * @param criticalFirings
+     *            number of expected firings per leap below which exact SSA gets used
+     * @param maxFirings
+     *            maximum number of expected firings in a single leap
+     * @param start
+     *            initial time
+     * @param randomGenerator
+     *            {@link RandomGenerator} used internally
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "This is intentional")
+    public TauLeapingTime(
+            final double markovianRate,
+            final double epsilon,
+            final int criticalFirings,
+            final int maxFirings,
+            final Time start,
+            final RandomGenerator randomGenerator
+    ) {
+        super(start);
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("epsilon must be in (0, 1), but it is " + epsilon);
+        }
+        if (criticalFirings < 1 || maxFirings < criticalFirings) {
+            throw new IllegalArgumentException(
+                "Invalid firing bounds: critical " + criticalFirings + ", maximum " + maxFirings
+            );
+        }
+        rate = markovianRate;
+        this.epsilon = epsilon;
+        this.criticalFirings = criticalFirings;
+        this.maxFirings = maxFirings;
+        this.randomGenerator = randomGenerator;
+    }
+
+    /**
+     * Draws the number of times the reaction must fire at the current occurrence.
+     * Must be called once per execution, before {@link #update(Time, boolean, double, Environment)}.
+     *
+     * @return 1 when simulating exactly, a Poisson-distributed number of firings when leaping
+     */
+    public final int drawFirings() {
+        if (leaping) {
+            final double mean = integratedPropensity + propensity * (getNextOccurenceAsDouble() - leapStart);
+            firings = mean > 0
+                ? new PoissonDistribution(
+                    randomGenerator,
+                    mean,
+                    PoissonDistribution.DEFAULT_EPSILON,
+                    PoissonDistribution.DEFAULT_MAX_ITERATIONS
+                ).sample()
+                : 0;
+        } else {
+            firings = 1;
+        }
+        return firings;
+    }
+
+    /**
+     * @return true if the distribution is currently leaping, false if it is simulating exactly
+     */
+    public final boolean isLeaping() {
+        return leaping;
+    }
+
+    @Override
+    protected final void updateStatus(
+            final Time currentTime,
+            final boolean executed,
+            final double newPropensity,
+            final Environment<T, ?> environment
+    ) {
+        assert !Double.isNaN(newPropensity);
+        final double now = currentTime.toDouble();
+        if (executed) {
+            if (firings > 0 && propensity > 0) {
+                sensitivity = FastMath.abs(newPropensity - propensity) / propensity / firings;
+            }
+            firings = 0;
+            startInterval(now, newPropensity);
+        } else if (newPropensity != propensity) {
+            if (newPropensity == 0 || propensity == 0) {
+                /*
+                 * Either the reactants got exhausted, and the pending firings would be blocked anyway,
+                 * or the reaction just got enabled.
+                 */
+                startInterval(now, newPropensity);
+            } else if (leaping) {
+                integratedPropensity += propensity * (now - leapStart);
+                leapStart = now;
+            } else {
+                setNextOccurrence((getNextOccurenceAsDouble() - now) * (propensity / newPropensity) + now);
+            }
+        }
+        propensity = newPropensity;
+    }
+
+    private void startInterval(final double now, final double newPropensity) {
+        leapStart = now;
+        integratedPropensity = 0;
+        if (newPropensity == 0) {
+            leaping = false;
+            setNextOccurrence(Time.INFINITY);
+            return;
+        }
+        /*
+         * NaN sensitivity (nothing observed yet) disables leaping, zero sensitivity allows the maximum leap
+         */
+        final double leapFirings = FastMath.min(epsilon / sensitivity, maxFirings);
+        leaping = leapFirings >= criticalFirings;
+        if (leaping) {
+            setNextOccurrence(now + leapFirings / newPropensity);
+        } else {
+            setNextOccurrence(now - FastMath.log1p(-randomGenerator.nextDouble()) / newPropensity);
+        }
+    }
+
+    @Override
+    public TauLeapingTime<T> cloneOnNewNode(final Node<T> destination, final Time currentTime) {
+        return new TauLeapingTime<>(rate, epsilon, criticalFirings, maxFirings, Time.ZERO, randomGenerator);
+    }
+
+    /**
+     * @return the rate of the reaction
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+}
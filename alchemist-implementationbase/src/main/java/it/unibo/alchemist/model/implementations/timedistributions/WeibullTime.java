@@ -90,7 +90,7 @@ public class WeibullTime<T> extends AbstractDistribution<T> {
         final Environment<T, ?> environment
     ) {
         if (executed) {
-            setNextOccurrence(currentTime.plus(new DoubleTime(genSample())));
+            setNextOccurrence(currentTime.toDouble() + genSample());
         }
     }
 
@@ -52,6 +52,8 @@ open class ToggleMoleculeRandomly<T>(
         }
     }
 
+    override fun usesSharedRandomGenerator() = true
+
     /**
      * Returns true if it is time to toggle the molecule.
      */
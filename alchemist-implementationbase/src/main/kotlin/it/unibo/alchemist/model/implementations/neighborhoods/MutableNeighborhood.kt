@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+package it.unibo.alchemist.model.implementations.neighborhoods
+
+import gnu.trove.impl.Constants
+import gnu.trove.map.hash.TIntIntHashMap
+import it.unibo.alchemist.model.interfaces.Environment
+import it.unibo.alchemist.model.interfaces.Neighborhood
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Position
+import org.danilopianini.util.ListSet
+
+/**
+ * A [Neighborhood] that environments can update in place when links change:
+ * neighbors are stored in insertion order, and located through an open-addressing map from their ids,
+ * so that [addNeighbor], [removeNeighbor], [contains] and [size] take amortized constant time.
+ * Removed neighbors leave a hole, and holes get compacted once they outnumber the neighbors:
+ * neighbors are always listed in the same order of a [SimpleNeighborhood] subject to the same changes.
+ *
+ * Iteration works directly on the live neighbors, and fails with a [ConcurrentModificationException]
+ * if the neighborhood changes in the meanwhile.
+ * Consumers needing a stable view must rely on [snapshot], which is lazily rebuilt after changes,
+ * and which [getNeighbors] is based upon.
+ * As for any other [Neighborhood], [add] and [remove] leave this neighborhood untouched,
+ * and return a [SimpleNeighborhood] with the requested change.
+ * Mutable and simple neighborhoods with the same environment, center and neighbors (in the same order) are equal.
+ */
+class MutableNeighborhood<T, P : Position<P>> internal constructor(
+    private val environment: Environment<T, P>,
+    private val center: Node<T>,
+    neighbors: Iterable<Node<T>>,
+) : Neighborhood<T> {
+
+    private val slots = ArrayList<Node<T>?>()
+    private val indexes = TIntIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, NO_ID, NO_INDEX)
+    private var holes = 0
+    private var modifications = 0
+
+    @Volatile
+    @Transient
+    private var snapshot: SimpleNeighborhood<T, P>? = null
+
+    init {
+        neighbors.forEach { addNeighbor(it) }
+    }
+
+    /**
+     * Adds [node] among the neighbors, modifying this neighborhood.
+     * Returns true if [node] was not a neighbor already.
+     */
+    fun addNeighbor(node: Node<T>): Boolean {
+        if (indexes.containsKey(node.id)) {
+            return false
+        }
+        indexes.put(node.id, slots.size)
+        slots.add(node)
+        changed()
+        return true
+    }
+
+    /**
+     * Removes [node] from the neighbors, modifying this neighborhood.
+     * Returns true if [node] was a neighbor.
+     */
+    fun removeNeighbor(node: Node<T>): Boolean {
+        val index = indexes.remove(node.id)
+        if (index == NO_INDEX) {
+            return false
+        }
+        slots[index] = null
+        holes++
+        while (slots.isNotEmpty() && slots.last() == null) {
+            slots.removeAt(slots.lastIndex)
+            holes--
+        }
+        if (holes > slots.size / 2) {
+            compact()
+        }
+        changed()
+        return true
+    }
+
+    /**
+     * Returns an immutable copy of this neighborhood, cached until the next change.
+     */
+    fun snapshot(): Neighborhood<T> = snapshotOrRebuild()
+
+    override fun clone() = MutableNeighborhood(environment, center, this)
+
+    override fun contains(node: Node<T>?) = node != null && indexes.containsKey(node.id)
+
+    override fun getCenter() = center
+
+    override fun getNeighbors(): ListSet<out Node<T>> = snapshotOrRebuild().getNeighbors()
+
+    override fun isEmpty() = size() == 0
+
+    override fun iterator(): Iterator<Node<T>> = object : Iterator<Node<T>> {
+        private val expectedModifications = modifications
+        private var next = firstNeighborFrom(0)
+
+        override fun hasNext(): Boolean {
+            checkForModifications()
+            return next < slots.size
+        }
+
+        override fun next(): Node<T> {
+            if (!hasNext()) {
+                throw NoSuchElementException("No other elements.")
+            }
+            val result = checkNotNull(slots[next])
+            next = firstNeighborFrom(next + 1)
+            return result
+        }
+
+        private fun checkForModifications() {
+            if (modifications != expectedModifications) {
+                throw ConcurrentModificationException("The neighborhood of $center changed while iterating")
+            }
+        }
+    }
+
+    override fun size() = slots.size - holes
+
+    override fun toString() = "$center links: ${getNeighbors()}"
+
+    override fun equals(other: Any?): Boolean = when (other) {
+        is MutableNeighborhood<*, *> -> snapshotOrRebuild() == other.snapshotOrRebuild()
+        is SimpleNeighborhood<*, *> -> snapshotOrRebuild() == other
+        else -> false
+    }
+
+    override fun hashCode(): Int = snapshotOrRebuild().hashCode()
+
+    override fun add(node: Node<T>): Neighborhood<T> = snapshotOrRebuild().add(node)
+
+    override fun remove(node: Node<T>): Neighborhood<T> = snapshotOrRebuild().remove(node)
+
+    private fun changed() {
+        modifications++
+        snapshot = null
+    }
+
+    private fun compact() {
+        var size = 0
+        for (index in slots.indices) {
+            val node = slots[index]
+            if (node != null) {
+                slots[size] = node
+                indexes.put(node.id, size)
+                size++
+            }
+        }
+        slots.subList(size, slots.size).clear()
+        holes = 0
+    }
+
+    private fun firstNeighborFrom(index: Int): Int {
+        var current = index
+        while (current < slots.size && slots[current] == null) {
+            current++
+        }
+        return current
+    }
+
+    private fun snapshotOrRebuild(): SimpleNeighborhood<T, P> = snapshot
+        ?: SimpleNeighborhood(environment, center, this).also { snapshot = it }
+
+    private companion object {
+        private const val serialVersionUID = 2L
+        private const val NO_ID = Int.MIN_VALUE
+        private const val NO_INDEX = -1
+    }
+}
@@ -17,18 +17,18 @@ import it.unibo.alchemist.model.interfaces.Position
 class Neighborhoods private constructor() {
     companion object {
         /**
-         * Creates a [SimpleNeighborhood].
+         * Creates a [MutableNeighborhood], which environments can update in constant time as links change.
          *
          * @param environment The environment of the neighborhood.
          * @param center The center of the neighborhood.
          * @param neighbors The neighbors in the neighborhood, defaults to empty.
          *
-         * @return The newly created [SimpleNeighborhood].
+         * @return The newly created [MutableNeighborhood].
          */
         @JvmStatic @JvmOverloads fun <T, P : Position<P>> make(
             environment: Environment<T, P>,
             center: Node<T>,
             neighbors: Iterable<Node<T>> = emptyList()
-        ) = SimpleNeighborhood(environment, center, neighbors)
+        ) = MutableNeighborhood(environment, center, neighbors)
     }
 }
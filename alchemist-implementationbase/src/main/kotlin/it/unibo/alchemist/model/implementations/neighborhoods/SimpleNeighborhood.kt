@@ -49,10 +49,14 @@ class SimpleNeighborhood<T, P : Position<P>> private constructor(
 
     override fun toString() = "$center links: $neighbors"
 
-    override fun equals(other: Any?): Boolean = other is SimpleNeighborhood<*, *> &&
-        other.environment == environment &&
-        other.center == center &&
-        other.neighbors == neighbors
+    override fun equals(other: Any?): Boolean = when (other) {
+        is SimpleNeighborhood<*, *> -> other.environment == environment &&
+            other.center == center &&
+            other.neighbors == neighbors
+        // Compares its own snapshot with this neighborhood
+        is MutableNeighborhood<*, *> -> other == this
+        else -> false
+    }
 
     override fun hashCode(): Int = Hashes.hash32(environment, center, neighbors)
 
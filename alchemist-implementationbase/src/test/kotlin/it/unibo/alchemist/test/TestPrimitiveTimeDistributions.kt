@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import it.unibo.alchemist.model.implementations.timedistributions.AbstractDistribution
+import it.unibo.alchemist.model.implementations.timedistributions.DiracComb
+import it.unibo.alchemist.model.implementations.timedistributions.ExponentialTime
+import it.unibo.alchemist.model.implementations.timedistributions.WeibullTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import org.apache.commons.math3.util.FastMath
+
+class TestPrimitiveTimeDistributions : StringSpec(
+    {
+        "the primitive next occurrence should match the materialized one" {
+            listOf<AbstractDistribution<Nothing>>(
+                ExponentialTime(2.0, MersenneTwister(1)),
+                DiracComb(2.0),
+                WeibullTime(1.0, 0.5, MersenneTwister(1)),
+            ).forEach { distribution ->
+                var now: Time = Time.ZERO
+                repeat(100) {
+                    distribution.update(now, true, 2.0, null)
+                    distribution.nextOccurenceAsDouble shouldBe distribution.nextOccurence.toDouble()
+                    now = distribution.nextOccurence
+                }
+            }
+        }
+        "exponential times should be computed as with Time arithmetics" {
+            val random = MersenneTwister(1)
+            val distribution = ExponentialTime<Nothing>(1.0, MersenneTwister(1))
+            var expected: Time = Time.ZERO
+            repeat(100) {
+                val now = expected
+                distribution.update(now, true, 1.0, null)
+                expected = now.plus(DoubleTime(-FastMath.log1p(-random.nextDouble())))
+                distribution.nextOccurence shouldBe expected
+            }
+            // A change of propensity rescales the remaining time
+            val now = DoubleTime(expected.toDouble() - 0.5)
+            distribution.update(now, false, 2.0, null)
+            distribution.nextOccurence shouldBe expected.minus(now).times(1.0 / 2.0).plus(now)
+        }
+        "subclasses overriding genTime should still drive the next occurrence" {
+            val distribution = object : ExponentialTime<Nothing>(1.0, MersenneTwister(1)) {
+                @Deprecated("Overridden to check that it is still honored")
+                override fun genTime(propensity: Double): Time = DoubleTime(1 / propensity)
+            }
+            distribution.update(DoubleTime(1.0), true, 4.0, null)
+            distribution.nextOccurenceAsDouble shouldBe 1.25
+        }
+        "blocked distributions should materialize the infinite time" {
+            val distribution = ExponentialTime<Nothing>(1.0, MersenneTwister(1))
+            distribution.update(Time.ZERO, true, 1.0, null)
+            distribution.update(Time.ZERO, false, 0.0, null)
+            distribution.nextOccurence shouldBeSameInstanceAs Time.INFINITY
+        }
+    }
+)
@@ -45,4 +45,9 @@ public abstract class AbstractRandomizableAction<T> extends AbstractAction<T> {
         return rand;
     }
 
+    @Override
+    public final boolean usesSharedRandomGenerator() {
+        return true;
+    }
+
 }
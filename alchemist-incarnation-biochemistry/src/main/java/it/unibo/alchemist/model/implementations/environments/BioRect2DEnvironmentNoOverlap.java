@@ -25,6 +25,7 @@ import javax.annotation.Nonnull;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Comparator;
+import java.util.Map;
 import java.util.stream.Stream;
 
 /**
@@ -257,6 +258,14 @@ public final class BioRect2DEnvironmentNoOverlap
         return Optional.of(result);
     }
 
+    /**
+     * Cells are added one by one, as each of them may prevent the following ones from fitting.
+     */
+    @Override
+    public int addNodes(@Nonnull final Map<Node<Double>, Euclidean2DPosition> nodesToAdd) {
+        return addNodesOneByOne(nodesToAdd);
+    }
+
     @Override
     protected void nodeAdded(
         final @Nonnull Node<Double> node,
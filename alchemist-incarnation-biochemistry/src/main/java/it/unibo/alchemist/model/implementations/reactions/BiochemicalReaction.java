@@ -48,6 +48,11 @@ public final class BiochemicalReaction extends ChemicalReaction<Double> {
      * - If only neighbor actions are present the target node must be randomly choose.
      */
     private boolean neighborConditionsPresent;
+    /*
+     * True once the reaction fired after the last update: further firings in the same execution (leaps) must
+     * recompute the valid neighbors, as the previous firings may have exhausted some of them.
+     */
+    private boolean firedSinceUpdate;
 
     /**
      * @param node
@@ -83,24 +88,19 @@ public final class BiochemicalReaction extends ChemicalReaction<Double> {
             final Environment<Double, ?> environment
     ) {
         if (neighborConditionsPresent) {
-            validNeighbors = getConditions().stream()
-                .filter(it -> it instanceof AbstractNeighborCondition)
-                .map(it -> (AbstractNeighborCondition<Double>) it)
-                .map(AbstractNeighborCondition::getValidNeighbors)
-                .reduce((m1, m2) -> m1.entrySet().stream()
-                        .map(it -> new Container(it.getKey(), it.getValue(), m2.get(it.getKey())))
-                        .filter(it -> it.propensity2 != null)
-                        .collect(toMap(e -> e.node, e -> e.propensity1 * e.propensity2)))
-                .orElseThrow(() -> new IllegalStateException(
-                        "At least a neighbor condition is present, but the mapping was empty"
-                ));
+            validNeighbors = computeValidNeighbors();
+            firedSinceUpdate = false;
         }
         super.updateInternalStatus(currentTime, hasBeenExecuted, environment);
     }
 
-    @Override 
-    public void execute() {
+    @Override
+    protected void fire() {
         if (neighborConditionsPresent) {
+            if (firedSinceUpdate) {
+                validNeighbors = computeValidNeighbors();
+            }
+            firedSinceUpdate = true;
             final List<Pair<Node<Double>, Double>> neighborsList = validNeighbors.entrySet().stream()
                     .map(e -> new Pair<>(e.getKey(), e.getValue()))
                     .collect(toList());
@@ -116,16 +116,38 @@ public final class BiochemicalReaction extends ChemicalReaction<Double> {
                 }
             });
         } else {
-            super.execute();
+            super.fire();
         }
     }
 
+    /**
+     * @return true if a neighbor gets randomly selected upon execution, or if any action draws random numbers
+     */
+    @Override
+    public boolean usesSharedRandomGenerator() {
+        return neighborConditionsPresent || super.usesSharedRandomGenerator();
+    }
+
     @Override
     public void setConditions(@Nonnull final List<? extends Condition<Double>> conditions) {
         super.setConditions(conditions);
         neighborConditionsPresent = conditions.stream().anyMatch(it -> it instanceof AbstractNeighborCondition);
     }
 
+    private Map<Node<Double>, Double> computeValidNeighbors() {
+        return getConditions().stream()
+            .filter(it -> it instanceof AbstractNeighborCondition)
+            .map(it -> (AbstractNeighborCondition<Double>) it)
+            .map(AbstractNeighborCondition::getValidNeighbors)
+            .reduce((m1, m2) -> m1.entrySet().stream()
+                    .map(it -> new Container(it.getKey(), it.getValue(), m2.get(it.getKey())))
+                    .filter(it -> it.propensity2 != null)
+                    .collect(toMap(e -> e.node, e -> e.propensity1 * e.propensity2)))
+            .orElseThrow(() -> new IllegalStateException(
+                    "At least a neighbor condition is present, but the mapping was empty"
+            ));
+    }
+
     private static final class Container {
         private final Node<Double> node;
         private final Double propensity1;
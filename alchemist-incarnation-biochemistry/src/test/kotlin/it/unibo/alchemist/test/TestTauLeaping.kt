@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.doubles.plusOrMinus
+import io.kotest.matchers.doubles.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.longs.shouldBeLessThanOrEqual
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.model.BiochemistryIncarnation
+import it.unibo.alchemist.model.implementations.environments.BioRect2DEnvironment
+import it.unibo.alchemist.model.implementations.linkingrules.ConnectWithinDistance
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.model.implementations.timedistributions.TauLeapingTime
+import it.unibo.alchemist.model.implementations.times.DoubleTime
+import it.unibo.alchemist.model.interfaces.Node
+import it.unibo.alchemist.model.interfaces.Time
+import org.apache.commons.math3.random.MersenneTwister
+import org.apache.commons.math3.random.RandomGenerator
+import kotlin.math.exp
+import kotlin.math.sqrt
+
+private val INCARNATION = BiochemistryIncarnation()
+private val REACTANT = INCARNATION.createMolecule("A")
+private val PRODUCT = INCARNATION.createMolecule("B")
+private val TOKEN = INCARNATION.createMolecule("token")
+
+class TestTauLeaping : StringSpec({
+    "tau-leaping should match the mean and variance of the exact decay with far fewer steps" {
+        /*
+         * With exact SSA, each of the initial molecules decays independently by time t with probability
+         * 1 - exp(-t), so the products are binomially distributed. The products of each leaping run get
+         * standardized against such distribution: with no bias, the standardized values have zero mean and
+         * unit variance. Leaps of relative size epsilon bias the mean by about epsilon * t / 2 of the reactants,
+         * a small fraction of a standard deviation with the parameters below.
+         */
+        val standardized = (1..RUNS).map { seed ->
+            val (node, engine) = decay(DECAY_INITIAL, DoubleTime(1.0), MersenneTwister(seed.toLong())) {
+                TauLeapingTime(1.0, DECAY_EPSILON, it)
+            }
+            node.getConcentration(REACTANT) + node.getConcentration(PRODUCT) shouldBe DECAY_INITIAL
+            // The last leap may end past the final time: compare against the exact law at the actual end
+            val probability = 1 - exp(-engine.time.toDouble())
+            val exactMean = DECAY_INITIAL * probability
+            engine.step shouldBeLessThan (exactMean / 10).toLong()
+            (node.getConcentration(PRODUCT) - exactMean) / sqrt(exactMean * (1 - probability))
+        }
+        val mean = standardized.average()
+        val variance = standardized.sumOf { (it - mean) * (it - mean) } / (RUNS - 1)
+        // Four standard errors of the sample mean and of the sample variance of RUNS standard normal values
+        mean shouldBe (0.0 plusOrMinus 4 / sqrt(RUNS.toDouble()))
+        variance shouldBe (1.0 plusOrMinus 4 * sqrt(2.0 / (RUNS - 1)))
+    }
+    "tau-leaping should fall back to exact simulation when counts are low" {
+        val initial = 5.0
+        val (node, engine) = decay(initial, Time.INFINITY, MersenneTwister(1)) { TauLeapingTime(1.0, it) }
+        node.getConcentration(REACTANT) shouldBe 0.0
+        node.getConcentration(PRODUCT) shouldBe initial
+        // One step per exact firing, plus the final step reaching the infinite time
+        engine.step shouldBeLessThanOrEqual initial.toLong() + 1
+    }
+    "leaps should never consume reactants from exhausted neighbors" {
+        val random = MersenneTwister(1)
+        val environment = BioRect2DEnvironment(INCARNATION)
+        environment.linkingRule = ConnectWithinDistance(1.0)
+        val origin = Euclidean2DPosition(0.0, 0.0)
+        val center = INCARNATION.createNode(random, environment, null)
+        environment.addNode(center, origin)
+        val neighbors = (1..NEIGHBORS).map { tokens ->
+            INCARNATION.createNode(random, environment, null).also {
+                it.setConcentration(TOKEN, tokens.toDouble())
+                environment.addNode(it, origin)
+            }
+        }
+        val total = neighbors.sumOf { it.getConcentration(TOKEN) }
+        // Large leaps, each one spanning many firings drawn among neighbors with few tokens
+        val timeDistribution = TauLeapingTime<Double>(1.0, LARGE_EPSILON, 1, TauLeapingTime.DEFAULT_MAX_FIRINGS, random)
+        center.addReaction(
+            INCARNATION.createReaction(random, environment, center, timeDistribution, "[token in neighbor] --> [token]")
+        )
+        var leaped = false
+        environment.startSimulationWithoutParameters(
+            stepDone = {
+                leaped = leaped || timeDistribution.isLeaping
+                neighbors.forEach { it.getConcentration(TOKEN) shouldBeGreaterThanOrEqual 0.0 }
+            }
+        )
+        leaped shouldBe true
+        neighbors.forEach { it.getConcentration(TOKEN) shouldBe 0.0 }
+        center.getConcentration(TOKEN) shouldBe total
+    }
+}) {
+    private companion object {
+        private const val RUNS = 30
+        private const val DECAY_INITIAL = 10_000.0
+        private const val DECAY_EPSILON = 0.003
+        private const val NEIGHBORS = 10
+        private const val LARGE_EPSILON = 0.9
+    }
+}
+
+private fun decay(
+    initial: Double,
+    finalTime: Time,
+    random: RandomGenerator,
+    timeDistribution: (RandomGenerator) -> TauLeapingTime<Double>,
+): Pair<Node<Double>, Engine<Double, *>> {
+    val environment = BioRect2DEnvironment(INCARNATION)
+    val node = INCARNATION.createNode(random, environment, null)
+    node.setConcentration(REACTANT, initial)
+    node.addReaction(INCARNATION.createReaction(random, environment, node, timeDistribution(random), "[A] --> [B]"))
+    environment.addNode(node, environment.makePosition(0, 0))
+    val engine = Engine(environment, finalTime)
+    engine.play()
+    engine.run()
+    engine.error.shouldBeEmpty()
+    return node to engine
+}
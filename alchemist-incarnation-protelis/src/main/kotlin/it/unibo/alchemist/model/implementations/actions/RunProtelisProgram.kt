@@ -23,6 +23,7 @@ import it.unibo.alchemist.model.math.RealDistributionUtil
 import it.unibo.alchemist.protelis.AlchemistExecutionContext
 import it.unibo.alchemist.protelis.AlchemistNetworkManager
 import org.apache.commons.math3.distribution.RealDistribution
+import org.apache.commons.math3.random.MersenneTwister
 import org.apache.commons.math3.random.RandomGenerator
 import org.danilopianini.util.ImmutableListSet
 import org.protelis.lang.ProtelisLoader
@@ -45,6 +46,10 @@ import java.io.ObjectInputStream
  *
  * It is possible to sumulate the loss of messages due to a higher connection distance by providing a [RealDistribution]
  * ([packetLossDistance]) mapping distances to the loss probability. By default this feature is disabled.
+ *
+ * The program draws random numbers (e.g., via `self.nextRandomDouble()`) from a generator of its own,
+ * seeded from [randomGenerator] upon creation: the results do not depend on the order in which the programs of
+ * different nodes get executed, and simultaneous rounds can be executed concurrently.
  */
 class RunProtelisProgram<P : Position<P>> private constructor(
     val randomGenerator: RandomGenerator,
@@ -161,6 +166,8 @@ class RunProtelisProgram<P : Position<P>> private constructor(
         .count()
         .let { otherCopies -> SimpleMolecule(program.name + if (otherCopies == 0) "" else "\$copy$otherCopies") }
 
+    private val programRandomGenerator: RandomGenerator = MersenneTwister(randomGenerator.nextLong())
+
     private val networkManager = AlchemistNetworkManager(reaction, device, this, retentionTime, packetLossDistance)
 
     /**
@@ -169,7 +176,8 @@ class RunProtelisProgram<P : Position<P>> private constructor(
      * @return the current [AlchemistExecutionContext]
      */
     @Transient
-    var executionContext = AlchemistExecutionContext(environment, node, reaction, randomGenerator, networkManager)
+    var executionContext =
+        AlchemistExecutionContext(environment, node, reaction, programRandomGenerator, networkManager)
         private set
 
     @Transient
@@ -233,7 +241,8 @@ class RunProtelisProgram<P : Position<P>> private constructor(
     @Suppress("UnusedPrivateMember")
     private fun readObject(stream: ObjectInputStream) {
         stream.defaultReadObject()
-        executionContext = AlchemistExecutionContext(environment, node, reaction, randomGenerator, networkManager)
+        executionContext =
+            AlchemistExecutionContext(environment, node, reaction, programRandomGenerator, networkManager)
         vm = ProtelisVM(program, executionContext)
     }
 
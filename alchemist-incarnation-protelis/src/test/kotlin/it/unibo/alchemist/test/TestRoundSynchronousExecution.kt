@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.optional.shouldBeEmpty
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import it.unibo.alchemist.core.implementations.RoundSynchronousEngine
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import it.unibo.alchemist.testsupport.createSimulation
+import it.unibo.alchemist.testsupport.loadAlchemist
+import it.unibo.alchemist.testsupport.runInCurrentThread
+
+class TestRoundSynchronousExecution : StringSpec(
+    {
+        "in synchronous rounds, the gradient should advance by one hop per round" {
+            val rounds = 4
+            val simulation = loadAlchemist<Any, Euclidean2DPosition>("gradient-on-a-line-in-rounds.yml")
+                // Every round executes a program and a send per node
+                .createSimulation(finalStep = 2L * NODES * rounds)
+                .runInCurrentThread()
+            simulation.shouldBeInstanceOf<RoundSynchronousEngine<*, *>>()
+            simulation.error.shouldBeEmpty()
+            simulation.environment.nodes.forEach { node ->
+                val distance = node.contents.values.filterIsInstance<Double>().single()
+                distance shouldBe if (node.id < rounds) node.id.toDouble() else Double.POSITIVE_INFINITY
+            }
+        }
+        "in synchronous rounds, Protelis programs drawing random numbers should run on the worker threads" {
+            val simulation = loadAlchemist<Any, Euclidean2DPosition>("threads-in-rounds.yml")
+                // Every round executes a program per node
+                .createSimulation(finalStep = 2L * NODES)
+                .runInCurrentThread()
+            simulation.error.shouldBeEmpty()
+            simulation.step shouldBe 2L * NODES
+            simulation.environment.nodes.forEach { node ->
+                node.contents.values.filterIsInstance<String>().single() shouldNotBe Thread.currentThread().name
+            }
+        }
+    }
+) {
+    private companion object {
+        private const val NODES = 10
+    }
+}
@@ -111,6 +111,14 @@ public class LsaStandardAction extends LsaAbstractAction {
         return Context.LOCAL;
     }
 
+    /**
+     * @return true if the molecule requires a random number
+     */
+    @Override
+    public boolean usesSharedRandomGenerator() {
+        return initRand && rand != null;
+    }
+
     /**
      * @return the modified molecule
      */
@@ -308,6 +308,14 @@ public final class SAPEREReaction extends AbstractReaction<List<ILsaMolecule>> {
         return timeDistribution == null || timeDistribution.isStatic();
     }
 
+    /**
+     * @return true, as matches get randomly selected upon execution
+     */
+    @Override
+    public boolean usesSharedRandomGenerator() {
+        return true;
+    }
+
     @Override
     public double getRate() {
         return totalPropensity;
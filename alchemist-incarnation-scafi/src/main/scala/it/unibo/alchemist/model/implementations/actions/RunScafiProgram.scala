@@ -14,7 +14,7 @@ import it.unibo.alchemist.model.scafi.ScafiIncarnationForAlchemist
 import it.unibo.alchemist.model.scafi.ScafiIncarnationForAlchemist.{ContextImpl, _}
 import it.unibo.alchemist.scala.PimpMyAlchemist._
 import it.unibo.scafi.space.Point3D
-import org.apache.commons.math3.random.RandomGenerator
+import org.apache.commons.math3.random.{MersenneTwister, RandomGenerator}
 import org.apache.commons.math3.util.FastMath
 import org.kaikikm.threadresloader.ResourceLoader
 
@@ -83,6 +83,11 @@ sealed class RunScafiProgram[T, P <: Position[P]](
   private var neighborhoodManager: Map[ID, NeighborData[P]] = Map()
   private val commonNames = new ScafiIncarnationForAlchemist.StandardSensorNames {}
   private var completed = false
+  /*
+   * Exposed to the program as a sensor. It is private to this program, and seeded from the simulation generator:
+   * results do not depend on the order in which simultaneous programs get executed, which may be concurrent.
+   */
+  private val programRandomGenerator: RandomGenerator = new MersenneTwister(randomGenerator.nextLong())
   declareDependencyTo(Dependency.EVERY_MOLECULE)
 
   def asMolecule = programNameMolecule
@@ -177,7 +182,7 @@ sealed class RunScafiProgram[T, P <: Position[P]](
             )
           )
         case LSNS_ALCHEMIST_ENVIRONMENT => Some(environment)
-        case LSNS_ALCHEMIST_RANDOM => Some(randomGenerator)
+        case LSNS_ALCHEMIST_RANDOM => Some(programRandomGenerator)
         case LSNS_ALCHEMIST_TIMESTAMP => Some(alchemistCurrentTime)
         case _ => localSensors.get(lsns)
       }).map(_.asInstanceOf[T])
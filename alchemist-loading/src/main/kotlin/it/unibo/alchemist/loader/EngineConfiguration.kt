@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.loader
+
+import it.unibo.alchemist.core.interfaces.DependencyGraph
+import it.unibo.alchemist.core.interfaces.Scheduler
+
+/**
+ * The engine-related choices of a simulation, as specified in the `engine` section of the simulation file.
+ * A null value means that the default implementation should be used.
+ *
+ * @property type the name of the engine implementation
+ * @property scheduler the [Scheduler] the engine should use
+ * @property dependencyGraph the [DependencyGraph] the engine should use
+ * @property asynchronousExport whether the exporters should run on a dedicated thread,
+ * rather than on the simulation thread
+ */
+data class EngineConfiguration<T>(
+    val type: String? = null,
+    val scheduler: Scheduler<T>? = null,
+    val dependencyGraph: DependencyGraph<T>? = null,
+    val asynchronousExport: Boolean = false,
+)
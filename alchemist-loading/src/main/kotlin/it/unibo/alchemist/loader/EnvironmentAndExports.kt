@@ -20,6 +20,8 @@ data class EnvironmentAndExports<T, P : Position<P>>(
 
     override val environment: Environment<T, P>,
 
-    override val exporters: List<Exporter<T, P>>
+    override val exporters: List<Exporter<T, P>>,
+
+    override val engineConfiguration: EngineConfiguration<T> = EngineConfiguration(),
 
 ) : InitializedEnvironment<T, P>
@@ -28,4 +28,9 @@ interface InitializedEnvironment<T, P : Position<P>> {
      * The data exporters for this environment.
      */
     val exporters: List<Exporter<T, P>>
+
+    /**
+     * The engine choices for this environment. Defaults to an empty configuration (all defaults).
+     */
+    val engineConfiguration: EngineConfiguration<T> get() = EngineConfiguration()
 }
@@ -23,7 +23,10 @@ import it.unibo.alchemist.model.interfaces.Time
  * @param samplingInterval the sampling time, defaults to [DEFAULT_INTERVAL].
  */
 abstract class AbstractExporter<T, P : Position<P>> (
-    private val samplingInterval: Double
+    /**
+     * The simulated time between two exports.
+     */
+    val samplingInterval: Double
 ) : Exporter<T, P> {
 
     final override lateinit var dataExtractors: List<Extractor<*>>
@@ -87,15 +90,49 @@ abstract class AbstractExporter<T, P : Position<P>> (
      *  when the difference between steps is as big as the sampling interval.
      */
     final override fun update(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) {
-        val curSample: Long = (time.toDouble() / samplingInterval).toLong()
-        if (curSample > count) {
-            count = curSample
+        if (sample(time)) {
             exportData(environment, reaction, time, step)
         }
     }
 
     /**
+     * As [update], but only extracts the data to export, returning null if [time] is not sampled.
+     * The extracted data does not refer to the [environment], and can be exported later,
+     * even by another thread, through [exportExtractedData].
+     */
+    fun extract(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) =
+        if (sample(time)) extractData(environment, reaction, time, step) else null
+
+    /**
+     * Extracts the data of each one of the [dataExtractors], in order.
+     */
+    protected fun extractData(
+        environment: Environment<T, P>,
+        reaction: Actionable<T>?,
+        time: Time,
+        step: Long,
+    ): List<Map<String, Any>> = dataExtractors.map { it.extractData(environment, reaction, time, step) }
+
+    /**
+     * Exports the data of the [dataExtractors] at the current step.
+     * By default, extracts the data and delegates to [exportExtractedData].
+     */
+    open fun exportData(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) {
+        exportExtractedData(extractData(environment, reaction, time, step))
+    }
+
+    /**
+     * Exports [data], previously extracted from the [dataExtractors] in order.
      * Delegates the concrete implementation of this method to his subclasses.
      */
-    abstract fun exportData(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long)
+    abstract fun exportExtractedData(data: List<Map<String, Any>>)
+
+    private fun sample(time: Time): Boolean {
+        val curSample: Long = (time.toDouble() / samplingInterval).toLong()
+        if (curSample > count) {
+            count = curSample
+            return true
+        }
+        return false
+    }
 }
@@ -12,7 +12,6 @@ package it.unibo.alchemist.loader.export.exporters
 import com.google.common.base.Charsets
 import it.unibo.alchemist.model.implementations.times.DoubleTime
 import it.unibo.alchemist.model.interfaces.Environment
-import it.unibo.alchemist.model.interfaces.Actionable
 import it.unibo.alchemist.model.interfaces.Position
 import it.unibo.alchemist.model.interfaces.Time
 import org.slf4j.LoggerFactory
@@ -84,28 +83,29 @@ class CSVExporter<T, P : Position<P>> @JvmOverloads constructor(
         exportData(environment, null, DoubleTime(), 0)
     }
 
-    override fun exportData(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) {
+    override fun exportExtractedData(data: List<Map<String, Any>>) {
         with(outputPrintStream) {
-            dataExtractors.forEach { extractor ->
-                val data = extractor.extractData(environment, reaction, time, step)
+            dataExtractors.zip(data).forEach { (extractor, extracted) ->
                 val names = extractor.columnNames
                 when {
-                    data.size <= 1 -> data.values.forEach { print("$it ") }
+                    extracted.size <= 1 -> extracted.values.forEach { print("$it ") }
                     // Labels and keys match
-                    data.size == names.size && data.keys.containsAll(names) -> names.forEach {
-                        print(requireNotNull(data[it]) { "Bug in ${this::class.simpleName}" })
+                    extracted.size == names.size && extracted.keys.containsAll(names) -> names.forEach {
+                        print(requireNotNull(extracted[it]) { "Bug in ${this::class.simpleName}" })
                         print(' ')
                     }
                     // If the labels do not match keys, require predictable iteration order
                     else -> {
-                        require(data.hasPredictableIteration) {
+                        require(extracted.hasPredictableIteration) {
                             """
                             Extractor "${extractor::class.simpleName}" is likely bugged:
-                            1. the set of labels $names does not match the keys ${data.keys}, but iteration may fail as
-                            2. it returned a map with non-predictable iteration order of type ${data::class.simpleName}"
+                            1. the set of labels $names does not match the keys ${extracted.keys},
+                               but iteration may fail as
+                            2. it returned a map with non-predictable iteration order
+                               of type ${extracted::class.simpleName}"
                             """.trimIndent()
                         }
-                        data.values.forEach { print("$it ") }
+                        extracted.values.forEach { print("$it ") }
                     }
                 }
             }
@@ -10,6 +10,8 @@
 package it.unibo.alchemist.loader.export.exporters
 
 import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.boundary.interfaces.Sampling
+import it.unibo.alchemist.boundary.interfaces.SnapshotOutputMonitor
 import it.unibo.alchemist.loader.export.Exporter
 import it.unibo.alchemist.model.interfaces.Environment
 import it.unibo.alchemist.model.interfaces.Actionable
@@ -19,11 +21,29 @@ import it.unibo.alchemist.model.interfaces.Time
 /**
  *  Contains all exporters selected in the configuration file.
  *  Implements the [OutputMonitor] interface and delegate the export phase to each one of his internal exporters.
+ *  If all the exporters are [AbstractExporter]s, it can also work as a [SnapshotOutputMonitor]:
+ *  snapshots contain the data extracted by each exporter (null if not sampled), which get exported later,
+ *  possibly on another thread.
  *  @param exporters The list of [Exporter].
  */
 class GlobalExporter<T, P : Position<P>>(
     private val exporters: List<Exporter<T, P>>
-) : OutputMonitor<T, P> {
+) : OutputMonitor<T, P>, SnapshotOutputMonitor<T, P, List<List<Map<String, Any>>?>> {
+
+    /**
+     * How often this monitor must be notified of the simulation steps.
+     * If all the [exporters] are [AbstractExporter]s sharing the same sampling interval,
+     * they would discard all the steps but those sampled by the equivalent time-based [Sampling]:
+     * the simulation can then avoid calling this monitor for every step.
+     * Intervals that are not positive and finite get no equivalent [Sampling], and every step is notified.
+     */
+    val sampling: Sampling = exporters
+        .map { (it as? AbstractExporter<*, *>)?.samplingInterval }
+        .distinct()
+        .singleOrNull()
+        ?.takeIf { it.isFinite() && it > 0 }
+        ?.let { Sampling.everyTime(it) }
+        ?: Sampling.everyStep()
 
     @Override
     override fun initialized(environment: Environment<T, P>) {
@@ -38,10 +58,30 @@ class GlobalExporter<T, P : Position<P>>(
         }
     }
 
+    override fun snapshot(
+        environment: Environment<T, P>,
+        reaction: Actionable<T>?,
+        time: Time,
+        step: Long,
+    ): List<List<Map<String, Any>>?>? = exporters
+        .map { it.asAbstractExporter().extract(environment, reaction, time, step) }
+        .takeIf { extracted -> extracted.any { it != null } }
+
+    override fun stepDone(snapshot: List<List<Map<String, Any>>?>) {
+        exporters.zip(snapshot).forEach { (exporter, data) ->
+            data?.let { exporter.asAbstractExporter().exportExtractedData(it) }
+        }
+    }
+
     @Override
     override fun finished(environment: Environment<T, P>, time: Time, step: Long) {
         exporters.forEach {
             it.close(environment, time, step)
         }
     }
+
+    private fun Exporter<T, P>.asAbstractExporter(): AbstractExporter<T, P> =
+        requireNotNull(this as? AbstractExporter<T, P>) {
+            "Only ${AbstractExporter::class.simpleName}s can export snapshots, but $this is a ${this::class.simpleName}"
+        }
 }
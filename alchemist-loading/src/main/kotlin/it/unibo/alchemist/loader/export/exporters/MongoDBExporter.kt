@@ -10,7 +10,6 @@
 package it.unibo.alchemist.loader.export.exporters
 
 import it.unibo.alchemist.model.interfaces.Environment
-import it.unibo.alchemist.model.interfaces.Actionable
 import it.unibo.alchemist.model.interfaces.Position
 import it.unibo.alchemist.model.interfaces.Time
 import org.bson.Document
@@ -44,27 +43,18 @@ class MongoDBExporter<T, P : Position<P>> @JvmOverloads constructor(
         mongoService.createCollection(collectionName)
     }
 
-    override fun exportData(environment: Environment<T, P>, reaction: Actionable<T>?, time: Time, step: Long) {
-        mongoService.pushToDatabase(convertToDocument(environment, reaction, time, step))
-    }
-
-    override fun close(environment: Environment<T, P>, time: Time, step: Long) {
-        mongoService.stopService()
-    }
-
-    private fun convertToDocument(
-        environment: Environment<T, P>,
-        reaction: Actionable<T>?,
-        time: Time,
-        step: Long,
-    ): Document {
+    override fun exportExtractedData(data: List<Map<String, Any>>) {
         val document = Document()
-        dataExtractors.forEach { extractor ->
-            extractor.extractData(environment, reaction, time, step).forEach { (dataLabel, dataValue) ->
+        data.forEach { extracted ->
+            extracted.forEach { (dataLabel, dataValue) ->
                 document.append(dataLabel, dataValue)
             }
         }
-        return document
+        mongoService.pushToDatabase(document)
+    }
+
+    override fun close(environment: Environment<T, P>, time: Time, step: Long) {
+        mongoService.stopService()
     }
 
     companion object {
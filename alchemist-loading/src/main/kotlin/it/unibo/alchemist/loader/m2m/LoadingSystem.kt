@@ -141,7 +141,11 @@ internal abstract class LoadingSystem(
                 SimulationModel.visitSingleExporter(incarnation, context, it)
             }
             exporters.forEach { it.bindVariables(variableValues) }
-            return EnvironmentAndExports(environment, exporters)
+            // ENGINE
+            val engineConfiguration =
+                SimulationModel.visitEngineConfiguration<T>(context, root[DocumentRoot.engine])
+            logger.debug("Engine configuration: {}", engineConfiguration)
+            return EnvironmentAndExports(environment, exporters, engineConfiguration)
         }
 
         private fun <T, P : Position<P>> loadGlobalProgramsOnEnvironment(
@@ -257,6 +261,7 @@ internal abstract class LoadingSystem(
                 environment.linkingRule = composedLinkingRule
                 contextualize<LinkingRule<T, P>>(composedLinkingRule)
             }
+            val nodes = LinkedHashMap<Node<T>, P>()
             deployment.stream().forEach { position ->
                 val node = SimulationModel.visitNode(simulationRNG, incarnation, environment, context, nodeDescriptor)
                 contextualize(node)
@@ -268,10 +273,12 @@ internal abstract class LoadingSystem(
                 // PROGRAMS
                 loadProgramsOnNode(simulationRNG, incarnation, environment, node, position, descriptor)
                 node.properties.forEach { decontextualize(it) }
-                environment.addNode(node, position)
-                logger.debug("Added node {} at {}", node.id, position)
+                nodes[node] = position
                 decontextualize(node)
             }
+            // Nodes get added all together, so that the simulation gets notified once the deployment is in place
+            val added = environment.addNodes(nodes)
+            logger.debug("Added {} nodes out of {} positions of {}", added, nodes.size, deployment)
         }
 
         private fun computeAllKnownValues(allVariableValues: Map<String, Any?>): Map<String, *> {
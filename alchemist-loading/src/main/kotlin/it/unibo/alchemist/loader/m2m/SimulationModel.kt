@@ -10,6 +10,9 @@
 package it.unibo.alchemist.loader.m2m
 
 import arrow.core.Either
+import it.unibo.alchemist.core.interfaces.DependencyGraph
+import it.unibo.alchemist.core.interfaces.Scheduler
+import it.unibo.alchemist.loader.EngineConfiguration
 import it.unibo.alchemist.loader.Loader
 import it.unibo.alchemist.loader.export.Exporter
 import it.unibo.alchemist.loader.export.Extractor
@@ -381,6 +384,34 @@ internal object SimulationModel {
         visitDependentVariable(name, context, root)
             ?.onSuccess { if (root is Map<*, *>) context.registerVariable(name, root) }
 
+    fun <T> visitEngineConfiguration(context: Context, root: Any?): EngineConfiguration<T> =
+        when (root) {
+            null -> EngineConfiguration()
+            is Map<*, *> -> {
+                require(DocumentRoot.Engine.validateDescriptor(root)) {
+                    "Invalid engine descriptor: $root. ${DocumentRoot.Engine.guide}"
+                }
+                EngineConfiguration(
+                    type = root[JavaType.type]?.toString(),
+                    scheduler = root[DocumentRoot.Engine.scheduler]?.let { scheduler ->
+                        visitBuilding<Scheduler<T>>(context, scheduler)?.getOrThrow()
+                            ?: cantBuildWith<Scheduler<T>>(scheduler, JavaType)
+                    },
+                    dependencyGraph = root[DocumentRoot.Engine.dependencyGraph]?.let { dependencyGraph ->
+                        visitBuilding<DependencyGraph<T>>(context, dependencyGraph)?.getOrThrow()
+                            ?: cantBuildWith<DependencyGraph<T>>(dependencyGraph, JavaType)
+                    },
+                    asynchronousExport = root[DocumentRoot.Engine.asynchronousExport]?.let { asynchronous ->
+                        requireNotNull(asynchronous.toString().toBooleanStrictOrNull()) {
+                            "Invalid ${DocumentRoot.Engine.asynchronousExport} value $asynchronous: " +
+                                "either true or false is required"
+                        }
+                    } ?: false,
+                )
+            }
+            else -> EngineConfiguration(type = root.toString())
+        }
+
     @Suppress("UNCHECKED_CAST")
     fun <T, P : Position<P>> visitEnvironment(
         incarnation: Incarnation<*, *>,
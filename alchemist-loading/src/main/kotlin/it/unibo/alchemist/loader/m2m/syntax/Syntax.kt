@@ -115,6 +115,16 @@ internal object DocumentRoot : SyntaxElement {
             )
         }
     }
+    object Engine : SyntaxElement {
+        val scheduler by OwnName()
+        const val dependencyGraph = "dependency-graph"
+        const val asynchronousExport = "asynchronous-export"
+        override val validDescriptors = setOf(
+            validDescriptor {
+                optional(JavaType.type, scheduler, dependencyGraph, asynchronousExport)
+            }
+        )
+    }
     object Environment : SyntaxElement {
         const val globalPrograms = "global-programs"
         object GlobalProgram : SyntaxElement {
@@ -161,6 +171,7 @@ internal object DocumentRoot : SyntaxElement {
         )
     }
     val deployments by OwnName()
+    val engine by OwnName()
     val environment by OwnName()
     val export by OwnName()
     val incarnation by OwnName()
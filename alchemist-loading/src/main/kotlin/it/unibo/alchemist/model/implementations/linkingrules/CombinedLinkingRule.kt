@@ -33,4 +33,7 @@ class CombinedLinkingRule<T, P : Position<P>>(
     )
 
     override fun isLocallyConsistent() = isConsistent
+
+    override fun nodeRemoved(node: Node<T>, environment: Environment<T, P>) =
+        subRules.forEach { it.nodeRemoved(node, environment) }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.collections.shouldNotBeEmpty
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor
+import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.loader.InitializedEnvironment
+import it.unibo.alchemist.loader.export.exporters.GlobalExporter
+import it.unibo.alchemist.model.interfaces.Position
+import it.unibo.alchemist.test.TestCSVExporter.Companion.getCSVExporter
+import it.unibo.alchemist.testsupport.createSimulation
+import it.unibo.alchemist.testsupport.loadAlchemist
+import it.unibo.alchemist.testsupport.runInCurrentThread
+import java.io.File
+
+class TestAsynchronousExport<T, P : Position<P>> : StringSpec({
+    "exporting asynchronously should produce the same data of exporting synchronously" {
+        val synchronous: InitializedEnvironment<T, P> = loadAlchemist(SIMULATION)
+        synchronous.createSimulation().runInCurrentThread()
+        val asynchronous: InitializedEnvironment<T, P> = loadAlchemist(SIMULATION)
+        val exporter = GlobalExporter(asynchronous.exporters)
+        val monitor = AsynchronousOutputMonitor(exporter, capacity = 4)
+        Engine(asynchronous.environment).apply { addOutputMonitor(monitor, exporter.sampling) }.runInCurrentThread()
+        val expected = exportedData(synchronous)
+        expected.shouldNotBeEmpty()
+        exportedData(asynchronous) shouldBe expected
+        monitor.droppedSteps shouldBe 0L
+    }
+}) {
+    private companion object {
+        private const val SIMULATION = "testCSVExporter.yml"
+
+        private fun <T, P : Position<P>> exportedData(initialized: InitializedEnvironment<T, P>): List<String> {
+            val exporter = getCSVExporter(initialized)
+            return File(exporter.exportPath).listFiles()
+                .orEmpty()
+                .single { it.extension == exporter.fileExtension }
+                .readLines()
+                .filterNot { it.startsWith("#") }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.FreeSpec
+import io.kotest.matchers.booleans.shouldBeFalse
+import io.kotest.matchers.booleans.shouldBeTrue
+import io.kotest.matchers.nulls.shouldBeNull
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeInstanceOf
+import it.unibo.alchemist.core.implementations.CalendarQueue
+import it.unibo.alchemist.core.implementations.EngineFactory
+import it.unibo.alchemist.core.implementations.JGraphTDependencyGraph
+import it.unibo.alchemist.core.implementations.ParallelEngine
+import it.unibo.alchemist.loader.LoadAlchemist
+import org.kaikikm.threadresloader.ResourceLoader
+
+class TestEngineLoading : FreeSpec({
+    "the engine section should select the engine implementations" {
+        val initialized = LoadAlchemist.from(ResourceLoader.getResource("testEngineLoading.yml"))
+            .getDefault<Any, Nothing>()
+        with(initialized.engineConfiguration) {
+            type shouldBe "ParallelEngine"
+            scheduler.shouldBeInstanceOf<CalendarQueue<*>>()
+            dependencyGraph.shouldBeInstanceOf<JGraphTDependencyGraph<*>>()
+            asynchronousExport.shouldBeTrue()
+            val engine = EngineFactory.engine(
+                type,
+                initialized.environment,
+                scheduler = scheduler,
+                dependencyGraph = dependencyGraph,
+            )
+            engine.shouldBeInstanceOf<ParallelEngine<*, *>>()
+        }
+    }
+    "the engine section should be optional" {
+        val configuration = LoadAlchemist.from(ResourceLoader.getResource("testGlobalReactionLoading.yml"))
+            .getDefault<Any, Nothing>()
+            .engineConfiguration
+        configuration.type.shouldBeNull()
+        configuration.scheduler.shouldBeNull()
+        configuration.dependencyGraph.shouldBeNull()
+        configuration.asynchronousExport.shouldBeFalse()
+    }
+})
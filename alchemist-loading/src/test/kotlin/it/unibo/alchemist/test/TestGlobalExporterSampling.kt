@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2010-2022, Danilo Pianini and contributors
+ * listed, for each module, in the respective subproject's build.gradle.kts file.
+ *
+ * This file is part of Alchemist, and is distributed under the terms of the
+ * GNU General Public License, with a linking exception,
+ * as described in the file LICENSE in the Alchemist distribution's top directory.
+ */
+
+package it.unibo.alchemist.test
+
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import it.unibo.alchemist.boundary.interfaces.Sampling
+import it.unibo.alchemist.loader.export.exporters.CSVExporter
+import it.unibo.alchemist.loader.export.exporters.GlobalExporter
+import it.unibo.alchemist.model.implementations.positions.Euclidean2DPosition
+import kotlin.io.path.createTempDirectory
+
+class TestGlobalExporterSampling : StringSpec({
+    val exportPath = createTempDirectory("alchemist-export").toString()
+
+    fun samplingOf(vararg intervals: Double) =
+        GlobalExporter(intervals.map { CSVExporter<Any, Euclidean2DPosition>(interval = it, exportPath = exportPath) })
+            .sampling
+
+    "exporters sharing a positive interval should be sampled in time" {
+        samplingOf(2.0, 2.0) shouldBe Sampling.everyTime(2.0)
+    }
+    "exporters with different intervals should be notified every step" {
+        samplingOf(1.0, 2.0) shouldBe Sampling.everyStep()
+    }
+    "intervals that are not positive and finite should fall back to every step" {
+        listOf(0.0, -1.0, Double.NaN, Double.POSITIVE_INFINITY).forEach {
+            samplingOf(it) shouldBe Sampling.everyStep()
+        }
+    }
+})
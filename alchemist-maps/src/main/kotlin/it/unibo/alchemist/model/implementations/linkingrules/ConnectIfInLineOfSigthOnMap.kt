@@ -29,14 +29,17 @@ class ConnectIfInLineOfSigthOnMap<T> @JvmOverloads constructor(
         require(environment is MapEnvironment<T, *, *>) {
             "Cannot operate of environments of type " + environment::class.simpleName
         }
-        val inRange = environment.getNodesWithinRange(center, maxRange)
-            .filter { target ->
+        val inRange = buildList {
+            environment.forEachNodeWithinRange(center, maxRange) { target ->
                 val losDistance = environment.getDistanceBetweenNodes(center, target)
                 val outbound = environment.computeRoute(center, target)
                 val inbound = environment.computeRoute(target, center)
                 val shortest = min(outbound.length(), inbound.length())
-                shortest <= maxRange && abs(shortest - losDistance) < tolerance * shortest
+                if (shortest <= maxRange && abs(shortest - losDistance) < tolerance * shortest) {
+                    add(target)
+                }
             }
+        }
         return Neighborhoods.make(environment, center, inRange)
     }
 }
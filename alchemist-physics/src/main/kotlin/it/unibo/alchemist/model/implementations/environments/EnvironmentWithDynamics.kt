@@ -126,6 +126,13 @@ class EnvironmentWithDynamics<T> @JvmOverloads constructor(
         return false
     }
 
+    /**
+     * Nodes are added one by one, as each of them needs a body in the physical world.
+     */
+    override fun addNodes(nodesToAdd: Map<Node<T>, Euclidean2DPosition>): Int = nodesToAdd.count { (node, position) ->
+        addNode(node, position)
+    }
+
     private fun addNodeBody(node: Node<T>) {
         val nodeBody = Body()
         addPhysicalProperties(nodeBody, node.asProperty<T, AreaProperty<T>>().shape.radius)
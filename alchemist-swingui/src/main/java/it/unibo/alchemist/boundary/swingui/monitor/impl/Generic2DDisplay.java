@@ -23,6 +23,7 @@ import it.unibo.alchemist.boundary.wormhole.impl.AngleManagerImpl;
 import it.unibo.alchemist.boundary.wormhole.impl.WormholeSwing;
 import it.unibo.alchemist.core.interfaces.Simulation;
 import it.unibo.alchemist.core.interfaces.Status;
+import it.unibo.alchemist.model.implementations.neighborhoods.Neighborhoods;
 import it.unibo.alchemist.model.implementations.times.DoubleTime;
 import it.unibo.alchemist.model.interfaces.Actionable;
 import it.unibo.alchemist.model.interfaces.Environment;
@@ -702,7 +703,10 @@ public class Generic2DDisplay<T, P extends Position2D<P>> extends JPanel impleme
             neighbors.clear();
             environment.getNodes().parallelStream().forEach(node -> {
                 positions.put(node, environment.getPosition(node));
-                neighbors.put(node, environment.getNeighborhood(node));
+                /*
+                 * Neighborhoods may get updated in place by the simulation: painting requires a copy
+                 */
+                neighbors.put(node, Neighborhoods.make(environment, node, environment.getNeighborhood(node)));
             });
             releaseData();
             repaint();
@@ -11,7 +11,9 @@
 package it.unibo.alchemist.testsupport
 
 import it.unibo.alchemist.boundary.interfaces.OutputMonitor
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor
 import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.EngineFactory
 import it.unibo.alchemist.core.interfaces.Simulation
 import it.unibo.alchemist.loader.InitializedEnvironment
 import it.unibo.alchemist.loader.LoadAlchemist
@@ -64,13 +66,25 @@ fun loadAlchemistFromResource(simulationResource: String): Loader {
 }
 
 /**
- * Builds a new [Engine], adding a [GlobalExporter] with the required [it.unibo.alchemist.loader.export.Exporter]s.
+ * Builds a new [Engine] as specified by the [InitializedEnvironment.engineConfiguration],
+ * adding a [GlobalExporter] with the required [it.unibo.alchemist.loader.export.Exporter]s
+ * (wrapped in an [AsynchronousOutputMonitor] if [it.unibo.alchemist.loader.EngineConfiguration.asynchronousExport]
+ * is set).
  */
 fun <T, P : Position<P>> InitializedEnvironment<T, P>.createSimulation(
     finalTime: Time = Time.INFINITY,
     finalStep: Long = Long.MAX_VALUE
-) = Engine(environment, finalStep, finalTime).also {
-    it.addOutputMonitor(GlobalExporter(exporters))
+) = EngineFactory.engine(
+    engineConfiguration.type,
+    environment,
+    finalStep,
+    finalTime,
+    engineConfiguration.scheduler,
+    engineConfiguration.dependencyGraph,
+).also {
+    val exporter = GlobalExporter(exporters)
+    val monitor = if (engineConfiguration.asynchronousExport) AsynchronousOutputMonitor(exporter) else exporter
+    it.addOutputMonitor(monitor, exporter.sampling)
 }
 
 /**
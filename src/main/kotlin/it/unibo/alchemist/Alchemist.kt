@@ -32,13 +32,17 @@ private typealias ValidLauncher = Pair<Validation.OK, Launcher>
  * Starts Alchemist.
  */
 object Alchemist {
+    private const val ASYNCHRONOUS_EXPORT = "ae"
     private const val HEADLESS = "hl"
     private const val VARIABLES = "var"
     private const val BATCH = 'b'
     private const val FXUI = "fxui"
+    private const val DEPENDENCY_GRAPH = "dg"
     private const val DISTRIBUTED = 'd'
+    private const val ENGINE = "eng"
     private const val GRAPHICS = 'g'
     private const val HELP = 'h'
+    private const val SCHEDULER = "sch"
     private const val SERVER = 's'
     private const val PARALLELISM = 'p'
     private const val TIME = 't'
@@ -236,7 +240,11 @@ object Alchemist {
                 ?: AlchemistExecutionOptions.defaultParallelism,
             variables = getOptionValues(VARIABLES)?.toList()
                 ?: emptyList(),
-            configuration = getOptionValue(YAML)
+            configuration = getOptionValue(YAML),
+            engine = getOptionValue(ENGINE),
+            scheduler = getOptionValue(SCHEDULER),
+            dependencyGraph = getOptionValue(DEPENDENCY_GRAPH),
+            asynchronousExport = hasOption(ASYNCHRONOUS_EXPORT),
         )
 
     private enum class ExitStatus {
@@ -23,6 +23,12 @@ package it.unibo.alchemist
  * @property server if launched as Alchemist grid node server, the path to the configuration file. Null otherwise.
  * @property parallelism parallel threads used for running locally. Defaults to [defaultParallelism]
  * @property endTime final simulation time. Defaults to [defaultEndTime]
+ * @property engine the name of the engine implementation, or null if the simulation file choice should be used
+ * @property scheduler the name of the scheduler implementation, or null if the simulation file choice should be used
+ * @property dependencyGraph the name of the dependency graph implementation,
+ * or null if the simulation file choice should be used
+ * @property asynchronousExport true if the exporters must run on a dedicated thread,
+ * false if the simulation file choice should be used (default)
  */
 data class AlchemistExecutionOptions(
     val configuration: String? = null,
@@ -35,7 +41,11 @@ data class AlchemistExecutionOptions(
     val help: Boolean = false,
     val server: String? = null,
     val parallelism: Int = defaultParallelism,
-    val endTime: Double = defaultEndTime
+    val endTime: Double = defaultEndTime,
+    val engine: String? = null,
+    val scheduler: String? = null,
+    val dependencyGraph: String? = null,
+    val asynchronousExport: Boolean = false,
 ) {
     /**
      * returns true if all options are set to their default value.
@@ -11,7 +11,8 @@ package it.unibo.alchemist.launch
 
 import com.google.common.collect.Lists
 import it.unibo.alchemist.AlchemistExecutionOptions
-import it.unibo.alchemist.core.implementations.Engine
+import it.unibo.alchemist.core.implementations.AsynchronousOutputMonitor
+import it.unibo.alchemist.core.implementations.EngineFactory
 import it.unibo.alchemist.core.interfaces.Simulation
 import it.unibo.alchemist.loader.InitializedEnvironment
 import it.unibo.alchemist.loader.LoadAlchemist
@@ -70,9 +71,23 @@ abstract class SimulationLauncher : AbstractLauncher() {
         variables: Map<String, *>
     ): Simulation<T, P> {
         val initialized: InitializedEnvironment<T, P> = loader.getWith(variables)
-        val simulation = Engine(initialized.environment, DoubleTime(parameters.endTime))
+        val environment = initialized.environment
+        val configuration = initialized.engineConfiguration
+        val simulation = EngineFactory.engine(
+            parameters.engine ?: configuration.type,
+            environment,
+            finalTime = DoubleTime(parameters.endTime),
+            scheduler = parameters.scheduler?.let { EngineFactory.scheduler(it) } ?: configuration.scheduler,
+            dependencyGraph = parameters.dependencyGraph?.let { EngineFactory.dependencyGraph(it, environment) }
+                ?: configuration.dependencyGraph,
+        )
         if (initialized.exporters.isNotEmpty()) {
-            simulation.addOutputMonitor(GlobalExporter(initialized.exporters))
+            val exporter = GlobalExporter(initialized.exporters)
+            val monitor = when {
+                parameters.asynchronousExport || configuration.asynchronousExport -> AsynchronousOutputMonitor(exporter)
+                else -> exporter
+            }
+            simulation.addOutputMonitor(monitor, exporter.sampling)
         }
         return simulation
     }